@@ -1,6 +1,10 @@
 package br.com.dao.implementacao;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
@@ -14,6 +18,9 @@ public class DaoEntidade extends ImplementacaoCrud<Entidade> implements Reposito
 
 	private static final long serialVersionUID = 1L;
 
+	// Usuários por comando de gravação do último acesso (2 parâmetros cada)
+	private static final int ACESSOS_POR_COMANDO = 500;
+
 	@Override
 	public Date getUltimoAcessoEntidadeLogada(String name) {
 
@@ -32,15 +39,45 @@ public class DaoEntidade extends ImplementacaoCrud<Entidade> implements Reposito
 		super.getSimpleJdbcTemplate().update(sql, login);
 		
 	}
+
+	/**
+	 * Grava o último acesso de vários usuários num único comando
+	 * (update ... from (values ...)), em blocos de ACESSOS_POR_COMANDO usuários.
+	 * Um acesso mais antigo que o já gravado não sobrescreve o valor do banco.
+	 */
+	@Override
+	public void updateUltimoAcessoUsers(Map<String, Date> acessos) {
+
+		List<Map.Entry<String, Date>> pendentes = new ArrayList<Map.Entry<String, Date>>(acessos.entrySet());
+
+		for (int inicio = 0; inicio < pendentes.size(); inicio += ACESSOS_POR_COMANDO) {
+
+			List<Map.Entry<String, Date>> bloco = pendentes.subList(inicio,
+					Math.min(inicio + ACESSOS_POR_COMANDO, pendentes.size()));
+
+			StringBuilder sql = new StringBuilder("update entidade e set ent_ultimoacesso = v.acesso from (values ");
+			List<Object> parametros = new ArrayList<Object>(bloco.size() * 2);
+
+			for (int i = 0; i < bloco.size(); i++) {
+				sql.append(i == 0 ? "" : ", ").append("(?, cast(? as timestamp))");
+				parametros.add(bloco.get(i).getKey());
+				parametros.add(new Timestamp(bloco.get(i).getValue().getTime()));
+			}
+
+			sql.append(") as v(login, acesso) where e.ent_login = v.login and e.ent_inativo is false ")
+					.append("and (e.ent_ultimoacesso is null or e.ent_ultimoacesso < v.acesso)");
+
+			super.getJdbcTemplate().update(sql.toString(), parametros.toArray());
+		}
+	}
 	
 	
 	@Override
 	public boolean existeUsuario(String ent_login) {
 
-		StringBuilder builder = new StringBuilder();
-		
-		builder.append(" select count(1) >= 1 from entidade where ent_login = '").append(ent_login).append("' ") ;
-		return super.getJdbcTemplate().queryForObject(builder.toString(), Boolean.class);
+		String sql = " select count(1) >= 1 from entidade where ent_login = ? ";
+
+		return super.getJdbcTemplate().queryForObject(sql, Boolean.class, ent_login);
 	}
 
 }
@@ -1,9 +1,11 @@
 package br.com.dao.implementacao;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
 import br.com.framwork.implementacao.crud.ImplementacaoCrud;
+import br.com.project.acessos.CodificadorSenha;
 import br.com.repository.interfaces.RepositoryLogin;
 
 /**
@@ -15,14 +17,14 @@ import br.com.repository.interfaces.RepositoryLogin;
  * 📌 Usa JdbcTemplate para acesso ao banco de dados de forma direta.
  * 📌 Herda da classe ImplementacaoCrud, que oferece suporte genérico a JDBC.
  * 
- * 🧩 Essa implementação verifica se existe um registro na tabela `entidade`
- *     com o login e senha informados.
+ * 🧩 Essa implementação busca o usuário ativo na tabela `entidade` pelo login
+ *     e confere a senha informada com a gravada (hash BCrypt).
  * 
  * 🧪 Se encontrar, o login é considerado válido e retorna `true`; caso contrário, `false`.
  * 
  * ⚠️ IMPORTANTE:
- * - Nunca salve senhas em texto puro (plaintext) como no exemplo!
- * - Sempre use hashing (ex: BCrypt) para segurança.
+ * - As senhas são gravadas com hash BCrypt (CodificadorSenha); as antigas, em
+ *   texto puro, são convertidas no primeiro login (ProvedorAutenticacao).
  * 
  * 📚 Boas práticas utilizadas:
  * - Uso de `JdbcTemplate` via `super.getJdbcTemplate()` para evitar redundância
@@ -39,40 +41,52 @@ public class DaoLogin extends ImplementacaoCrud<Object> implements RepositoryLog
 
 	private static final long serialVersionUID = 1L;
 
+	// 🔑 Confere a senha digitada com o hash gravado (BCrypt) ou, antes da migração, com o texto puro
+	@Autowired
+	private CodificadorSenha codificadorSenha;
+
 	/**
-	 * 🔐 Valida se o login e senha fornecidos correspondem a um usuário válido.
+	 * 🔐 Valida se o login e senha fornecidos correspondem a um usuário ativo.
+	 * 
+	 * Busca a senha gravada pelo login (upper(ent_login), coberto pelo índice
+	 * entidade_login_idx) e confere com {@link CodificadorSenha#matches}.
+	 * A verificação bem-sucedida fica em cache no codificador: o login do Spring
+	 * Security logo em seguida não refaz o hash.
 	 * 
 	 * @param login - Nome de login informado pelo usuário
-	 * @param senha - Senha correspondente (em texto puro, o que não é seguro)
-	 * @return true se houver um usuário com as credenciais fornecidas; false caso contrário
+	 * @param senha - Senha digitada
+	 * @return true se houver um usuário ativo com as credenciais fornecidas; false caso contrário
 	 * @throws Exception em caso de erro no acesso ao banco
 	 */
 	@Override
 	public boolean autentico(String login, String senha) throws Exception {
 
-		// 1. Define o SQL para contar quantos registros existem com login/senha fornecidos
-		String sql = "select count(1) as autentica from entidade where ent_login = ? and ent_senha = ?";
+		if (login == null || senha == null) {
+			return false;
+		}
 
-		// 2. Executa a SQL com os parâmetros usando JdbcTemplate
-		SqlRowSet rowSet = super.getJdbcTemplate().queryForRowSet(sql, new Object[] {login, senha});
+		// 1. Busca a senha gravada do usuário ativo (o mesmo critério do Spring Security)
+		String sql = "select ent_senha from entidade where upper(ent_login) = upper(?) and ent_inativo is false";
 
-		// 3. Move o cursor para a primeira (e única) linha do resultado
-		boolean existeResultado = rowSet.next();
+		SqlRowSet rowSet = super.getJdbcTemplate().queryForRowSet(sql, new Object[] { login.trim() });
 
-		// 4. Se não houver linha (o que é improvável, mas possível em erros), retorna false
-		if (!existeResultado) {
-		    return false;
+		// 2. Usuário inexistente ou inativo
+		if (!rowSet.next()) {
+			return false;
 		}
 
-		// 5. Recupera o valor da coluna "autentica" (que é a contagem de registros encontrados)
-		int autenticacao = rowSet.getInt("autentica");
-
-		// 6. Verifica se essa contagem é maior que zero (se sim, é um login válido)
-		boolean loginValido = autenticacao > 0;
+		// 3. Confere a senha digitada com a gravada
+		return codificadorSenha.matches(senha, rowSet.getString("ent_senha"));
+	}
 
-		// 7. Retorna o resultado final
-		return loginValido;
+	/**
+	 * 🔁 Grava a senha já codificada do usuário (migração para hash no login).
+	 */
+	@Override
+	public void atualizarSenha(String login, String senhaCodificada) throws Exception {
 
+		String sql = "update entidade set ent_senha = ? where upper(ent_login) = upper(?)";
 
+		super.getJdbcTemplate().update(sql, new Object[] { senhaCodificada, login });
 	}
 }
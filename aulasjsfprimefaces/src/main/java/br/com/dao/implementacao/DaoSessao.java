@@ -0,0 +1,131 @@
+package br.com.dao.implementacao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.repository.interfaces.RepositorySessao;
+
+/**
+ * 🌐 DaoSessao
+ * -----------------------------------------------------------------------------
+ * Registro de sessões na tabela sessao_usuario (migração v4), compartilhado
+ * por todos os nós que usam o mesmo banco.
+ * 
+ * 📌 Usa o DataSource do pool diretamente (springDataSource), e não a conexão
+ *    da requisição: o registro da sessão não depende do commit/rollback da
+ *    transação da tela, e as chamadas feitas fora de requisição (timeout de
+ *    sessão, tarefa periódica) funcionam igual.
+ * 📌 O pool não usa auto-commit: cada gravação roda na sua própria transação
+ *    (TransactionTemplate sobre o transactionManager), confirmada ao final.
+ * 📌 Datas gravadas com now() do banco, para não depender do relógio de cada nó.
+ */
+public class DaoSessao extends JdbcDaoSupport implements RepositorySessao {
+
+	private static final long serialVersionUID = 1L;
+
+	private TransactionTemplate transactionTemplate;
+
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	public void registrar(final String idSessao, final String login, final String no) throws Exception {
+
+		transactionTemplate.execute(new TransactionCallback<Object>() {
+			@Override
+			public Object doInTransaction(TransactionStatus status) {
+
+				int alterados = getJdbcTemplate().update(
+						"update sessao_usuario set ses_login = ?, ses_no = ?, ses_ultimo_acesso = now(), ses_invalidar = false"
+								+ " where ses_id = ?",
+						new Object[] { login, no, idSessao });
+
+				if (alterados == 0) {
+					getJdbcTemplate().update("insert into sessao_usuario (ses_id, ses_login, ses_no) values (?, ?, ?)",
+							new Object[] { idSessao, login, no });
+				}
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public void remover(String idSessao) throws Exception {
+		atualizar("delete from sessao_usuario where ses_id = ?", new Object[] { idSessao });
+	}
+
+	@Override
+	public void atualizarAcesso(String idSessao) throws Exception {
+		atualizar("update sessao_usuario set ses_ultimo_acesso = now() where ses_id = ?", new Object[] { idSessao });
+	}
+
+	@Override
+	public List<SessionInformation> sessoesDoUsuario(String login) throws Exception {
+		return getJdbcTemplate().query(
+				"select ses_id, ses_login, ses_ultimo_acesso, ses_invalidar from sessao_usuario"
+						+ " where upper(ses_login) = upper(?)",
+				new Object[] { login }, new RowMapper<SessionInformation>() {
+					@Override
+					public SessionInformation mapRow(ResultSet rs, int rowNum) throws SQLException {
+						SessionInformation sessao = new SessionInformation(rs.getString("ses_login"),
+								rs.getString("ses_id"), rs.getTimestamp("ses_ultimo_acesso"));
+						if (rs.getBoolean("ses_invalidar")) {
+							sessao.expireNow();
+						}
+						return sessao;
+					}
+				});
+	}
+
+	@Override
+	public int marcarInvalidacaoUsuario(String login) throws Exception {
+		return atualizar("update sessao_usuario set ses_invalidar = true where upper(ses_login) = upper(?)",
+				new Object[] { login });
+	}
+
+	@Override
+	public void marcarInvalidacaoSessao(String idSessao) throws Exception {
+		atualizar("update sessao_usuario set ses_invalidar = true where ses_id = ?", new Object[] { idSessao });
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<String> sessoesMarcadas(String no) throws Exception {
+		return getJdbcTemplate().queryForList("select ses_id from sessao_usuario where ses_no = ? and ses_invalidar",
+				new Object[] { no }, String.class);
+	}
+
+	@Override
+	public int removerInativas(int minutosInativos) throws Exception {
+		return atualizar("delete from sessao_usuario where ses_ultimo_acesso < now() - (? * interval '1 minute')",
+				new Object[] { minutosInativos });
+	}
+
+	@Override
+	public int removerDoNo(String no) throws Exception {
+		return atualizar("delete from sessao_usuario where ses_no = ?", new Object[] { no });
+	}
+
+	/**
+	 * Executa a gravação em uma transação própria, confirmada ao final.
+	 */
+	private int atualizar(final String sql, final Object[] parametros) {
+		return transactionTemplate.execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				return getJdbcTemplate().update(sql, parametros);
+			}
+		});
+	}
+
+}
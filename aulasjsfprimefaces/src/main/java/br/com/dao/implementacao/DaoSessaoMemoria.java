@@ -0,0 +1,138 @@
+package br.com.dao.implementacao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.security.core.session.SessionInformation;
+
+import br.com.repository.interfaces.RepositorySessao;
+
+/**
+ * 🌐 DaoSessaoMemoria
+ * -----------------------------------------------------------------------------
+ * Registro de sessões em memória, para instalações com um único nó (ou
+ * desenvolvimento sem a tabela sessao_usuario). Mesmo comportamento do
+ * DaoSessao, mas visível apenas na JVM local.
+ */
+public class DaoSessaoMemoria implements RepositorySessao {
+
+	private static final long serialVersionUID = 1L;
+
+	// Id da sessão -> registro
+	private final transient ConcurrentMap<String, Registro> sessoes = new ConcurrentHashMap<String, Registro>();
+
+	@Override
+	public void registrar(String idSessao, String login, String no) throws Exception {
+		sessoes.put(idSessao, new Registro(login, no));
+	}
+
+	@Override
+	public void remover(String idSessao) throws Exception {
+		sessoes.remove(idSessao);
+	}
+
+	@Override
+	public void atualizarAcesso(String idSessao) throws Exception {
+		Registro registro = sessoes.get(idSessao);
+		if (registro != null) {
+			registro.ultimoAcesso = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public List<SessionInformation> sessoesDoUsuario(String login) throws Exception {
+		List<SessionInformation> lista = new ArrayList<SessionInformation>();
+		for (Map.Entry<String, Registro> entrada : sessoes.entrySet()) {
+			Registro registro = entrada.getValue();
+			if (registro.login.equalsIgnoreCase(login)) {
+				SessionInformation sessao = new SessionInformation(registro.login, entrada.getKey(),
+						new Date(registro.ultimoAcesso));
+				if (registro.invalidar) {
+					sessao.expireNow();
+				}
+				lista.add(sessao);
+			}
+		}
+		return lista;
+	}
+
+	@Override
+	public int marcarInvalidacaoUsuario(String login) throws Exception {
+		int marcadas = 0;
+		for (Registro registro : sessoes.values()) {
+			if (registro.login.equalsIgnoreCase(login)) {
+				registro.invalidar = true;
+				marcadas++;
+			}
+		}
+		return marcadas;
+	}
+
+	@Override
+	public void marcarInvalidacaoSessao(String idSessao) throws Exception {
+		Registro registro = sessoes.get(idSessao);
+		if (registro != null) {
+			registro.invalidar = true;
+		}
+	}
+
+	@Override
+	public List<String> sessoesMarcadas(String no) throws Exception {
+		List<String> ids = new ArrayList<String>();
+		for (Map.Entry<String, Registro> entrada : sessoes.entrySet()) {
+			if (entrada.getValue().invalidar && entrada.getValue().no.equals(no)) {
+				ids.add(entrada.getKey());
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public int removerInativas(int minutosInativos) throws Exception {
+		long limite = System.currentTimeMillis() - minutosInativos * 60 * 1000L;
+		int removidas = 0;
+		Iterator<Registro> iterator = sessoes.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().ultimoAcesso < limite) {
+				iterator.remove();
+				removidas++;
+			}
+		}
+		return removidas;
+	}
+
+	@Override
+	public int removerDoNo(String no) throws Exception {
+		int removidas = 0;
+		Iterator<Registro> iterator = sessoes.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().no.equals(no)) {
+				iterator.remove();
+				removidas++;
+			}
+		}
+		return removidas;
+	}
+
+	private static final class Registro {
+
+		private final String login;
+
+		private final String no;
+
+		private volatile long ultimoAcesso = System.currentTimeMillis();
+
+		private volatile boolean invalidar;
+
+		Registro(String login, String no) {
+			this.login = login;
+			this.no = no;
+		}
+	}
+
+}
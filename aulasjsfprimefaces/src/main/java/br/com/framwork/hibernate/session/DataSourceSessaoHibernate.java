@@ -0,0 +1,96 @@
+package br.com.framwork.hibernate.session;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.SmartDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * DataSource dos beans JdbcTemplate/SimpleJdbcTemplate/SimpleJdbcInsert que
+ * compartilha a conexão (e a transação) da sessão Hibernate da requisição.
+ *
+ * Dentro de uma requisição controlada pelo FilterOpenSessionInView, a conexão
+ * entregue é a mesma da transação Hibernate corrente: gravações feitas pelo
+ * ImplementacaoCrud e pelos DAOs JDBC são confirmadas ou desfeitas juntas, e a
+ * requisição ocupa uma única conexão do pool.
+ *
+ * Fora desse escopo (threads de segundo plano, inicialização) não há quem faça
+ * o commit: o pool entrega conexões com auto-commit desligado e desfaz, na
+ * devolução, o que não foi confirmado. Por isso, fora da requisição, o acesso
+ * só é aceito dentro de uma transação explícita do bean "transactionManager"
+ * (TransactionTemplate), cuja conexão é entregue aqui; sem ela é lançada
+ * IllegalStateException em vez de perder a gravação em silêncio.
+ */
+public class DataSourceSessaoHibernate extends DelegatingDataSource implements SmartDataSource {
+
+	public DataSourceSessaoHibernate() {
+	}
+
+	public DataSourceSessaoHibernate(DataSource targetDataSource) {
+		super(targetDataSource);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+
+		// Transação explícita do DataSourceTransactionManager (TransactionTemplate)
+		if (TransactionSynchronizationManager.hasResource(getTargetDataSource())) {
+			return DataSourceUtils.getConnection(getTargetDataSource());
+		}
+
+		if (!HibernateUtil.isEscopoRequisicao()) {
+			throw new IllegalStateException("Acesso JDBC fora de requisição sem transação: "
+					+ "use um TransactionTemplate sobre o bean transactionManager");
+		}
+
+		// Inicia a transação Hibernate se a requisição ainda não tocou o banco
+		Session session = HibernateUtil.getCurrentSession();
+
+		// O SQL direto precisa enxergar as alterações que o Hibernate ainda não
+		// enviou, qualquer que seja o FlushMode (COMMIT/MANUAL do flush adiado
+		// também): o JDBC não passa pelo auto-flush das consultas do Hibernate
+		if (session.isDirty()) {
+			session.flush();
+		}
+
+		return conexaoSessao(session);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getConnection();
+	}
+
+	/**
+	 * A conexão da transação explícita é fechada pelo transactionManager no fim
+	 * da transação, não pelo JdbcTemplate. A da sessão Hibernate pode ser
+	 * fechada: é um empréstimo e o close() apenas o devolve.
+	 */
+	@Override
+	public boolean shouldClose(Connection con) {
+		return !DataSourceUtils.isConnectionTransactional(con, getTargetDataSource());
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	/**
+	 * Conexão "emprestada" da sessão: o close() feito pelo JdbcTemplate apenas
+	 * devolve o empréstimo, a conexão continua com a transação Hibernate.
+	 */
+	@SuppressWarnings("deprecation")
+	private Connection conexaoSessao(Session session) {
+		return session.connection();
+	}
+
+}
@@ -1,20 +1,29 @@
 package br.com.framwork.hibernate.session;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import javax.faces.bean.ApplicationScoped;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 
+import org.hibernate.EntityMode;
+import org.hibernate.FlushMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.jdbc.Work;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 
 import br.com.framwork.implementacao.crud.VariavelConexaoUtil;
+import br.com.project.annotation.IdentificaCampoPesquisa;
 
 /**
  * Classe utilitária responsável pela configuração, criação e gerenciamento
@@ -41,9 +50,27 @@ public class HibernateUtil implements Serializable {
 	/** Caminho JNDI do DataSource configurado no Tomcat */
 	public static String JAVA_COMP_EMC_JDBC_DATA_SOURCE = "java:/comp/env/jdbc/datasource";
 
+	/** Caminho JNDI do DataSource da réplica de leitura (opcional, context.xml) */
+	public static final String JAVA_COMP_ENV_JDBC_DATA_SOURCE_LEITURA = "java:/comp/env/jdbc/datasourceLeitura";
+
+	/** Região do cache de consultas das listas de seleção (configurada no ehcache.xml) */
+	public static final String REGIAO_CACHE_REFERENCIA = "consultaReferencia";
+
 	/** Instância única do SessionFactory */
 	private static SessionFactory sessionfactory = buildSessionFactory();
 
+	/** Marca a thread que está atendendo uma requisição do FilterOpenSessionInView */
+	private static final ThreadLocal<Boolean> escopoRequisicao = new ThreadLocal<Boolean>();
+
+	/** Session da réplica de leitura aberta pela requisição, fechada junto com o escopo */
+	private static final ThreadLocal<Session> sessionLeituraRequisicao = new ThreadLocal<Session>();
+
+	/** DataSource da réplica de leitura, null quando não configurado */
+	private static volatile DataSource dataSourceLeitura;
+
+	/** Indica se o lookup da réplica de leitura já foi feito */
+	private static volatile boolean dataSourceLeituraVerificado;
+
 	
 //--------------------------------------------------------------------------------------------------------------------------
 	
@@ -67,6 +94,7 @@ public class HibernateUtil implements Serializable {
 			if (sessionfactory == null) {
 				sessionfactory = new Configuration().configure().buildSessionFactory();
 
+				prepararColunasPesquisa(sessionfactory);
 			}
 
 			return sessionfactory;
@@ -78,6 +106,91 @@ public class HibernateUtil implements Serializable {
 	}
 
 	
+//--------------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Garante as colunas sombra normalizadas dos campos de pesquisa
+	 * (@IdentificaCampoPesquisa com campoNormalizado), chamando a função
+	 * criar_coluna_pesquisa criada pela migração v2_pesquisa_normalizada.
+	 *
+	 * <p>Em banco novo o Flyway roda antes do Hibernate criar as tabelas, então a
+	 * migração não encontra as tabelas; por isso a função é chamada novamente aqui,
+	 * depois do hbm2ddl. A função é idempotente e, desde a migração
+	 * v6_coluna_pesquisa_incremental, só preenche as linhas com a coluna sombra
+	 * vazia: num banco já carregado a chamada não percorre nem bloqueia a tabela.</p>
+	 *
+	 * <p>Campos normalizados de relacionamento (ex: "estado.est_nome_pesquisa")
+	 * são preparados pela entidade dona da coluna.</p>
+	 *
+	 * <p>Pelo mesmo motivo cria aqui o índice do login (migração v5_indice_login).</p>
+	 */
+	private static void prepararColunasPesquisa(SessionFactory factory) {
+
+		Session session = factory.openSession();
+
+		try {
+			session.beginTransaction();
+
+			for (ClassMetadata metadata : factory.getAllClassMetadata().values()) {
+
+				final AbstractEntityPersister persister = (AbstractEntityPersister) metadata;
+				Class<?> classe = metadata.getMappedClass(EntityMode.POJO);
+
+				// Tabela sem o schema (ex: "public.entidade" -> "entidade")
+				String nomeTabela = persister.getTableName();
+				final String tabela = nomeTabela.substring(nomeTabela.lastIndexOf('.') + 1);
+
+				for (Field field : classe.getDeclaredFields()) {
+
+					IdentificaCampoPesquisa anotacao = field.getAnnotation(IdentificaCampoPesquisa.class);
+
+					if (anotacao == null || anotacao.campoNormalizado().isEmpty()
+							|| anotacao.campoNormalizado().contains(".")) {
+						continue;
+					}
+
+					final String coluna = persister.getPropertyColumnNames(field.getName())[0];
+
+					session.doWork(new Work() {
+						@Override
+						public void execute(Connection connection) throws SQLException {
+							CallableStatement statement = connection.prepareCall("{call criar_coluna_pesquisa(?, ?)}");
+							try {
+								statement.setString(1, tabela);
+								statement.setString(2, coluna);
+								statement.execute();
+							} finally {
+								statement.close();
+							}
+						}
+					});
+				}
+			}
+
+			// Verificado no pg_class: "create index if not exists" exige PostgreSQL 9.5
+			Number indiceLogin = (Number) session
+					.createSQLQuery("select count(*) from pg_class where relname = 'entidade_login_idx'").uniqueResult();
+
+			if (indiceLogin.intValue() == 0) {
+				session.createSQLQuery("create index entidade_login_idx on entidade (upper(ent_login))").executeUpdate();
+			}
+
+			session.getTransaction().commit();
+
+		} catch (Exception e) {
+			// Sem a função (migração não aplicada) a pesquisa continua, só que sem índice
+			e.printStackTrace();
+			if (session.getTransaction().isActive()) {
+				session.getTransaction().rollback();
+			}
+		} finally {
+			// Com auto_close_session o commit/rollback já fecha a sessão
+			if (session.isOpen()) {
+				session.close();
+			}
+		}
+	}
+
 //--------------------------------------------------------------------------------------------------------------------------
 	
 	
@@ -104,14 +217,185 @@ public class HibernateUtil implements Serializable {
 	 * <p>Requer configuração no hibernate.cfg.xml:
 	 * <code>hibernate.current_session_context_class</code> deve estar definido como <code>thread</code>.</p>
 	 *
-	 * @return Sessão corrente do Hibernate associada à thread
+	 * <p>O FilterOpenSessionInView não inicia transação: ela é iniciada aqui (ou pelo
+	 * ImplementacaoCrud) no primeiro uso, e só então a conexão é obtida do pool.</p>
+	 *
+	 * @return Sessão corrente do Hibernate associada à thread, com transação ativa
 	 */
 	public static Session getCurrentSession() {
 
-		return getSessionFactory().getCurrentSession();
+		Session session = getSessionFactory().getCurrentSession();
+
+		if (!session.getTransaction().isActive()) {
+			session.beginTransaction();
+		}
+
+		return session;
+	}
+	
+	
+	
+//--------------------------------------------------------------------------------------------------------------------------	
+
+	
+	/**
+	 * @return true quando o recurso JNDI jdbc/datasourceLeitura (réplica de leitura) está configurado.
+	 */
+	public static boolean isReplicaLeituraConfigurada() {
+		return getDataSourceLeitura() != null;
+	}
+
+	/**
+	 * Abre uma Session somente leitura com conexão própria: FlushMode.MANUAL,
+	 * entidades carregadas como read-only e transação "SET TRANSACTION READ ONLY".
+	 *
+	 * <p>Deve ser sempre fechada com {@link #fecharSessionSomenteLeitura(Session)}.</p>
+	 *
+	 * @param replica true para usar a réplica de leitura quando configurada; false
+	 *                para sempre usar o banco principal (leituras que alimentam caches
+	 *                não podem ver o atraso da réplica)
+	 * @return Session independente, não vinculada à thread
+	 * @throws SQLException se não for possível obter ou preparar a conexão
+	 */
+	public static Session openSessionSomenteLeitura(boolean replica) throws SQLException {
+
+		DataSource dataSource = replica ? getDataSourceLeitura() : null;
+
+		Connection connection = dataSource != null ? dataSource.getConnection() : getConnectionProvider();
+
+		try {
+			connection.setAutoCommit(false);
+
+			Statement statement = connection.createStatement();
+			try {
+				statement.execute("SET TRANSACTION READ ONLY");
+			} finally {
+				statement.close();
+			}
+
+			Session session = getSessionFactory().openSession(connection);
+			session.setFlushMode(FlushMode.MANUAL);
+			session.setDefaultReadOnly(true);
+
+			return session;
+
+		} catch (SQLException e) {
+			connection.close();
+			throw e;
+		}
 	}
+
+	/**
+	 * Fecha a Session aberta por {@link #openSessionSomenteLeitura(boolean)}, encerra a
+	 * transação somente leitura e devolve a conexão ao pool.
+	 */
+	public static void fecharSessionSomenteLeitura(Session session) {
+
+		if (session == null || !session.isOpen()) {
+			return;
+		}
+
+		Connection connection = session.close();
+
+		if (connection != null) {
+			try {
+				connection.rollback();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			} finally {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lookup (uma única vez) do DataSource da réplica de leitura.
+	 */
+	private static DataSource getDataSourceLeitura() {
+
+		if (!dataSourceLeituraVerificado) {
+			synchronized (HibernateUtil.class) {
+				if (!dataSourceLeituraVerificado) {
+					try {
+						dataSourceLeitura = (DataSource) new InitialContext().lookup(JAVA_COMP_ENV_JDBC_DATA_SOURCE_LEITURA);
+					} catch (NamingException e) {
+						// Réplica não configurada: tudo vai para o banco principal
+						dataSourceLeitura = null;
+					}
+					dataSourceLeituraVerificado = true;
+				}
+			}
+		}
+
+		return dataSourceLeitura;
+	}
+
 	
+//--------------------------------------------------------------------------------------------------------------------------	
+
 	
+	/**
+	 * Marca o início de uma requisição com Open Session in View. Enquanto marcada,
+	 * o {@link DataSourceSessaoHibernate} entrega aos beans JDBC a conexão da
+	 * transação Hibernate da thread.
+	 */
+	public static void iniciarEscopoRequisicao() {
+		escopoRequisicao.set(Boolean.TRUE);
+	}
+
+	/**
+	 * Encerra a marcação feita por {@link #iniciarEscopoRequisicao()} e fecha a
+	 * Session da réplica de leitura, se a requisição abriu uma.
+	 */
+	public static void encerrarEscopoRequisicao() {
+		escopoRequisicao.remove();
+
+		Session sessionLeitura = sessionLeituraRequisicao.get();
+		sessionLeituraRequisicao.remove();
+
+		fecharSessionSomenteLeitura(sessionLeitura);
+	}
+
+	/**
+	 * Session somente leitura na réplica para a requisição atual. É aberta na
+	 * primeira consulta e fica aberta até o fim da requisição (como a sessão do
+	 * Open Session in View), para a renderização carregar as associações lazy
+	 * das entidades lidas na réplica.
+	 *
+	 * @return Session da réplica vinculada à requisição
+	 * @throws SQLException se não for possível obter ou preparar a conexão
+	 */
+	public static Session getSessionLeituraRequisicao() throws SQLException {
+
+		Session session = sessionLeituraRequisicao.get();
+
+		if (session == null || !session.isOpen()) {
+			session = openSessionSomenteLeitura(true);
+			sessionLeituraRequisicao.set(session);
+		}
+
+		return session;
+	}
+
+	/**
+	 * @return Session da réplica já aberta pela requisição atual, ou null
+	 */
+	public static Session getSessionLeituraRequisicaoAberta() {
+		Session session = sessionLeituraRequisicao.get();
+		return session != null && session.isOpen() ? session : null;
+	}
+
+	/**
+	 * @return true quando a thread atual está atendendo uma requisição com Open Session in View.
+	 */
+	public static boolean isEscopoRequisicao() {
+		return Boolean.TRUE.equals(escopoRequisicao.get());
+	}
+
 	
 //--------------------------------------------------------------------------------------------------------------------------	
 
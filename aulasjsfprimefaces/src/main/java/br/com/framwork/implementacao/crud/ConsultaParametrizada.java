@@ -0,0 +1,190 @@
+package br.com.framwork.implementacao.crud;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.project.enums.CondicaoPesquisa;
+
+/**
+ * Monta consultas HQL com parâmetros nomeados (bind) em vez de concatenar os
+ * valores digitados pelo usuário na string da consulta.
+ *
+ * Como os valores ficam nos parâmetros, o texto HQL depende apenas da "forma"
+ * da consulta (campos, operadores e ordenação). Assim o QueryPlanCache do
+ * Hibernate e os prepared statements do PostgreSQL são reaproveitados entre
+ * pesquisas, em vez de cada valor gerar um novo parse/plano.
+ *
+ * Exemplo de uso:
+ * <pre>
+ * ConsultaParametrizada&lt;Entidade&gt; consulta = new ConsultaParametrizada&lt;Entidade&gt;(Entidade.class)
+ *         .igual("ent_login", login)
+ *         .restricao(" and entity.ent_inativo is false ");
+ * Entidade entidade = entidadeController.findUniqueByConsulta(consulta);
+ * </pre>
+ *
+ * @param <T> Entidade consultada.
+ */
+public class ConsultaParametrizada<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// Entidade consultada (alias "entity" na HQL)
+	private final Class<T> entidade;
+
+	// Condições do where, cada uma iniciando com " and "
+	private final StringBuilder condicoes = new StringBuilder();
+
+	// Valores dos parâmetros nomeados (p0, p1, ...) na ordem em que foram adicionados
+	private final Map<String, Object> parametros = new LinkedHashMap<String, Object>();
+
+	// Campos de ordenação relativos a "entity"
+	private final List<String> ordenacao = new ArrayList<String>();
+
+	public ConsultaParametrizada(Class<T> entidade) {
+		this.entidade = entidade;
+	}
+
+//---------------------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Adiciona a condição "entity.campo = :parametro".
+	 *
+	 * @param campo atributo relativo a "entity" (ex: "ent_login", "estado.est_nome")
+	 * @param valor valor comparado, enviado como parâmetro
+	 */
+	public ConsultaParametrizada<T> igual(String campo, Object valor) {
+		condicoes.append(" and entity.").append(campo).append(" = :").append(novoParametro(valor)).append(' ');
+		return this;
+	}
+
+	/**
+	 * Adiciona a condição de pesquisa das telas de consulta, comparando sem acento
+	 * e sem diferenciar maiúsculas: retira_acentos(upper(cast(entity.campo as text))).
+	 *
+	 * @param campo    atributo relativo a "entity"
+	 * @param condicao condição selecionada pelo usuário (igual, contém, inicia, termina)
+	 * @param valor    valor digitado pelo usuário
+	 */
+	public ConsultaParametrizada<T> pesquisa(String campo, CondicaoPesquisa condicao, String valor) {
+		return pesquisa(campo, null, condicao, valor);
+	}
+
+	/**
+	 * Igual a {@link #pesquisa(String, CondicaoPesquisa, String)}, mas quando o campo
+	 * possui coluna sombra normalizada compara direto com ela, sem aplicar
+	 * funções sobre a coluna, o que permite ao banco usar o índice.
+	 *
+	 * @param campo            atributo relativo a "entity"
+	 * @param campoNormalizado coluna sombra normalizada (null ou vazio quando não existe)
+	 * @param condicao         condição selecionada pelo usuário (igual, contém, inicia, termina)
+	 * @param valor            valor digitado pelo usuário
+	 */
+	public ConsultaParametrizada<T> pesquisa(String campo, String campoNormalizado, CondicaoPesquisa condicao,
+			String valor) {
+
+		String texto = valor != null ? valor : "";
+		String operador = " like ";
+
+		if (CondicaoPesquisa.IGUAL_A.equals(condicao)) {
+			operador = " = ";
+		} else if (CondicaoPesquisa.CONTEM.equals(condicao)) {
+			texto = "%" + texto + "%";
+		} else if (CondicaoPesquisa.TERMINA_COM.equals(condicao)) {
+			texto = "%" + texto;
+		} else if (CondicaoPesquisa.INICIA.equals(condicao)) {
+			texto = texto + "%";
+		}
+
+		if (campoNormalizado != null && !campoNormalizado.isEmpty()) {
+			condicoes.append(" and entity.").append(campoNormalizado).append(' ');
+		} else {
+			condicoes.append(" and retira_acentos(upper(cast(entity.").append(campo).append(" as text))) ");
+		}
+		condicoes.append(operador).append("retira_acentos(upper(:").append(novoParametro(texto)).append(")) ");
+
+		return this;
+	}
+
+	/**
+	 * Adiciona um trecho fixo ao where, sem valores do usuário.
+	 * Exemplo: " and entity.ent_inativo is false ".
+	 */
+	public ConsultaParametrizada<T> restricao(String fragmento) {
+		if (fragmento != null && !fragmento.trim().isEmpty()) {
+			condicoes.append(' ').append(fragmento.trim()).append(' ');
+		}
+		return this;
+	}
+
+	/**
+	 * Adiciona um campo de ordenação (relativo a "entity").
+	 */
+	public ConsultaParametrizada<T> ordenarPor(String campo) {
+		ordenacao.add(campo);
+		return this;
+	}
+
+//---------------------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * @return " from Entidade entity where ..." sem select e sem order by.
+	 */
+	public String getHqlFromWhere() {
+
+		StringBuilder hql = new StringBuilder();
+		hql.append(" from ").append(entidade.getSimpleName()).append(" entity ");
+
+		String where = condicoes.toString().trim();
+
+		if (!where.isEmpty()) {
+			// Remove o primeiro "and" para iniciar o where
+			hql.append(" where ").append(where.replaceFirst("(?i)^and\\s+", "")).append(' ');
+		}
+
+		return hql.toString();
+	}
+
+	/**
+	 * @return consulta completa: select + from/where + order by.
+	 */
+	public String getHql() {
+
+		StringBuilder hql = new StringBuilder();
+		hql.append(" select entity ").append(getHqlFromWhere());
+
+		for (int i = 0; i < ordenacao.size(); i++) {
+			hql.append(i == 0 ? " order by " : ", ").append("entity.").append(ordenacao.get(i));
+		}
+
+		return hql.toString();
+	}
+
+	/**
+	 * @return consulta de contagem com o mesmo where (sem order by).
+	 */
+	public String getHqlContagem() {
+		return " select count(entity) " + getHqlFromWhere();
+	}
+
+	/**
+	 * @return parâmetros nomeados da consulta (somente leitura).
+	 */
+	public Map<String, Object> getParametros() {
+		return Collections.unmodifiableMap(parametros);
+	}
+
+	public Class<T> getEntidade() {
+		return entidade;
+	}
+
+	private String novoParametro(Object valor) {
+		String nome = "p" + parametros.size();
+		parametros.put(nome, valor);
+		return nome;
+	}
+
+}
@@ -1,11 +1,22 @@
 package br.com.framwork.implementacao.crud;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.transaction.Synchronization;
+
+import org.hibernate.Cache;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.SessionFactoryImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
@@ -15,7 +26,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import br.com.framwork.hibernate.session.HibernateUtil;
 import br.com.framwork.interfac.crud.InterfaceCrud;
+import br.com.project.acessos.ServicoDetalhesUsuario;
+import br.com.project.been.geral.RegistroListaSelecao;
+import br.com.project.enums.EstrategiaFlush;
 import br.com.project.model.classes.Entidade;
+import br.com.srv.interfaces.SrvContagemRegistro;
 
 /**
  * Implementação genérica da interface de CRUD (Create, Read, Update, Delete)
@@ -53,6 +68,23 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	@Autowired
 	private SimpleJDBCClassImpl simpleJDBCClassImpl;
 
+	@Autowired
+	private SrvContagemRegistro srvContagemRegistro;
+
+	// Cache de usuários do Spring Security: descartado quando a Entidade é gravada
+	@Autowired(required = false)
+	private ServicoDetalhesUsuario servicoDetalhesUsuario;
+
+	// Estratégia padrão da aplicação (context-param "estrategiaFlush" do web.xml)
+	private static volatile EstrategiaFlush estrategiaFlushPadrao = EstrategiaFlush.FIM_REQUISICAO;
+
+	// Estratégia escolhida para a requisição/thread atual, quando diferente da padrão
+	private static final ThreadLocal<EstrategiaFlush> estrategiaFlushThread = new ThreadLocal<EstrategiaFlush>();
+
+	// Indica que a requisição/thread atual já gravou: as leituras seguintes não vão
+	// para a réplica nem desligam o flush, para enxergarem as próprias gravações
+	private static final ThreadLocal<Boolean> gravacaoThread = new ThreadLocal<Boolean>();
+
 //---------------------------------------------------------------------------------------------------------------------------------
 
 	/**
@@ -71,7 +103,8 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	public void save(T obj) throws Exception { // * Salva um novo registro na base de dados.
 		validaSessionFactory();
 		sessionFactory.getCurrentSession().save(obj);
-		executeFlushSession();
+		flushConformeEstrategia();
+		evictContagem(obj);
 
 	}
 
@@ -79,21 +112,26 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	public void persist(T obj) throws Exception { // * Persiste um novo registro na base de dados.
 		validaSessionFactory();
 		sessionFactory.getCurrentSession().persist(obj);
-		executeFlushSession();
+		flushConformeEstrategia();
+		evictContagem(obj);
 	}
 
 	@Override
 	public void saveOrUpdate(T obj) throws Exception { // * Salva ou atualiza um registro na base de dados.
 		validaSessionFactory();
+		liberaSomenteLeitura(obj);
 		sessionFactory.getCurrentSession().saveOrUpdate(obj);
-		executeFlushSession();
+		flushConformeEstrategia();
+		evictContagem(obj);
 	}
 
 	@Override
 	public void update(T obj) throws Exception { // * Atualiza um registro existente na base de dados.
 		validaSessionFactory();
+		liberaSomenteLeitura(obj);
 		sessionFactory.getCurrentSession().update(obj);
-		executeFlushSession();
+		flushConformeEstrategia();
+		evictContagem(obj);
 
 	}
 
@@ -101,29 +139,148 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	public void delete(T obj) throws Exception {// * Remove um registro da base de dados.
 		validaSessionFactory();
 		sessionFactory.getCurrentSession().delete(obj);
-		executeFlushSession();
+		flushConformeEstrategia();
+		evictContagem(obj);
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public T merge(T obj) throws Exception { // * Realiza o merge de um objeto com o contexto da sessão Hibernate.
 		validaSessionFactory();
+		liberaSomenteLeitura(obj);
 		obj = (T) sessionFactory.getCurrentSession().merge(obj);
-		executeFlushSession();
+		flushConformeEstrategia();
+		evictContagem(obj);
 
 		return obj;
 	}
 
+//---------------------------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * Salva uma coleção de registros usando batch JDBC.
+	 * 
+	 * Em vez de um flush por objeto, faz flush + clear a cada "hibernate.jdbc.batch_size"
+	 * registros: os inserts vão ao banco em lote e a sessão não acumula todos os objetos
+	 * em memória. Atenção: o clear() desanexa da sessão tudo que foi carregado antes.
+	 */
+	@Override
+	public void saveAll(Collection<T> objs) throws Exception {
+		saveAll(objs, getTamanhoLote());
+	}
+
+	@Override
+	public void saveAll(Collection<T> objs, int intervaloFlush) throws Exception { // * Salva em lote.
+		validaSessionFactory();
+		Session session = sessionFactory.getCurrentSession();
+		Set<Class<?>> classes = new HashSet<Class<?>>();
+		int contador = 0;
+
+		for (T obj : objs) {
+			session.save(obj);
+			classes.add(Hibernate.getClass(obj));
+			limpaSessionLote(session, ++contador, intervaloFlush);
+		}
+
+		finalizaLote(session, classes);
+	}
+
+	@Override
+	public List<T> mergeAll(Collection<T> objs) throws Exception {
+		return mergeAll(objs, getTamanhoLote());
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
-	public List<T> findList(Class<T> entidade) throws Exception { // * Retorna todos os registros da entidade informada.
+	public List<T> mergeAll(Collection<T> objs, int intervaloFlush) throws Exception { // * Merge em lote, retorna as cópias persistidas.
 		validaSessionFactory();
+		Session session = sessionFactory.getCurrentSession();
+		Set<Class<?>> classes = new HashSet<Class<?>>();
+		List<T> lista = new ArrayList<T>(objs.size());
+		int contador = 0;
+
+		for (T obj : objs) {
+			T persistido = (T) session.merge(obj);
+			lista.add(persistido);
+			classes.add(Hibernate.getClass(persistido));
+			limpaSessionLote(session, ++contador, intervaloFlush);
+		}
+
+		finalizaLote(session, classes);
+
+		return lista;
+	}
+
+	@Override
+	public void deleteAll(Collection<T> objs) throws Exception {
+		deleteAll(objs, getTamanhoLote());
+	}
+
+	@Override
+	public void deleteAll(Collection<T> objs, int intervaloFlush) throws Exception { // * Remove em lote.
+		validaSessionFactory();
+		Session session = sessionFactory.getCurrentSession();
+		Set<Class<?>> classes = new HashSet<Class<?>>();
+		int contador = 0;
+
+		for (T obj : objs) {
+			classes.add(Hibernate.getClass(obj));
+			session.delete(obj);
+			limpaSessionLote(session, ++contador, intervaloFlush);
+		}
+
+		finalizaLote(session, classes);
+	}
+
+	/**
+	 * Tamanho do lote configurado em hibernate.jdbc.batch_size (mínimo 1).
+	 */
+	private int getTamanhoLote() {
+		int tamanho = ((SessionFactoryImplementor) sessionFactory).getSettings().getJdbcBatchSize();
+		return tamanho > 0 ? tamanho : 1;
+	}
+
+	/**
+	 * A cada intervaloFlush registros envia o lote ao banco e esvazia a sessão.
+	 */
+	private void limpaSessionLote(Session session, int contador, int intervaloFlush) {
+		if (intervaloFlush > 0 && contador % intervaloFlush == 0) {
+			session.flush();
+			session.clear();
+		}
+	}
+
+	/**
+	 * Envia o último lote incompleto e descarta as contagens e listas de seleção em cache das entidades alteradas.
+	 */
+	private void finalizaLote(Session session, Set<Class<?>> classes) {
+		session.flush();
+		session.clear();
+
+		gravacaoThread.set(Boolean.TRUE);
+
+		for (Class<?> classe : classes) {
+			invalidaContagem(classe);
+			invalidaListaSelecao(classe);
+		}
+	}
+
+//---------------------------------------------------------------------------------------------------------------------------------
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<T> findList(Class<T> entidade) throws Exception { // * Retorna todos os registros da entidade informada.
 		StringBuilder query = new StringBuilder();
 		query.append(" select distinct (entity) from ").append(entidade.getSimpleName()).append(" entity ");
 
-		List<T> lista = sessionFactory.getCurrentSession().createQuery(query.toString()).list();
+		final String hql = query.toString();
 
-		return lista;
+		return executaSomenteLeitura(new ConsultaLeitura<List<T>>() {
+			@Override
+			public List<T> executar(Session session) {
+				return session.createQuery(hql).setReadOnly(true).list();
+			}
+		});
 	}
 
 	@Override
@@ -147,31 +304,78 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 
 	@SuppressWarnings("unchecked")
 	@Override
-	public List<T> findListByQueryDinamic(String s) throws Exception { // * Executa uma consulta HQL dinâmica.
+	public List<T> findListByQueryDinamic(final String s) throws Exception { // * Executa uma consulta HQL dinâmica.
+		return executaSomenteLeitura(new ConsultaLeitura<List<T>>() {
+			@Override
+			public List<T> executar(Session session) {
+				return session.createQuery(s).setReadOnly(true).list();
+			}
+		});
+	}
+
+	/**
+	 * Consulta HQL com resultado no cache de consultas. Usada nas listas de dados de
+	 * referência (Estado, Pais, Cidade), cujas entidades também estão no cache de
+	 * segundo nível: a lista é montada sem ir ao banco até que uma das tabelas
+	 * envolvidas seja alterada pelo Hibernate.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<T> findListByQueryCache(String s, String regiaoCache) throws Exception {
+		validaSessionFactory();
+
+		// Nunca vai para a réplica: um resultado atrasado ficaria preso no cache de consultas
+		return sessionFactory.getCurrentSession().createQuery(s).setCacheable(true).setCacheRegion(regiaoCache)
+				.setReadOnly(true).list();
+	}
+
+	/**
+	 * Gravações feitas pela sessão já atualizam o cache (READ_WRITE) e invalidam as
+	 * consultas em cache. Este método é para alterações feitas por fora, como
+	 * JdbcTemplate/SimpleJdbcInsert ou scripts no banco.
+	 */
+	@Override
+	public void evictCache(Class<?> entidade) throws Exception {
 		validaSessionFactory();
-		List<T> list = new ArrayList<T>();
-		list = sessionFactory.getCurrentSession().createQuery(s).list();
 
-		return list;
+		Cache cache = sessionFactory.getCache();
+		if (sessionFactory.getClassMetadata(entidade) != null) {
+			cache.evictEntityRegion(entidade);
+		}
+		cache.evictQueryRegion(HibernateUtil.REGIAO_CACHE_REFERENCIA);
+		cache.evictDefaultQueryRegion();
+
+		RegistroListaSelecao.invalidar(entidade);
 	}
 
 	@Override
 	public void executeUpdateQueryDinamic(String s) throws Exception { // * Executa uma query HQL de atualização.
 		validaSessionFactory();
 		sessionFactory.getCurrentSession().createQuery(s).executeUpdate();
-		executeFlushSession();
+		flushConformeEstrategia();
+		evictContagemTodas();
 	}
 
 	@Override
 	public void executeUpdateSQLDinamic(String s) throws Exception { // * Executa uma query SQL de atualização.
 		validaSessionFactory();
 		sessionFactory.getCurrentSession().createSQLQuery(s).executeUpdate();
+		flushConformeEstrategia();
+		evictContagemTodas();
+	}
+
+	@Override
+	public void flush() throws Exception { // * Envia ao banco as alterações pendentes, independente da estratégia.
+		validaSessionFactory();
 		executeFlushSession();
 	}
 
 	@Override
 	public void clearSession() throws Exception { // * Limpa a sessão atual do Hibernate.
-		sessionFactory.getCurrentSession().clear();
+		// Sem transação a requisição ainda não usou a sessão: não há o que limpar
+		if (sessionFactory.getCurrentSession().getTransaction().isActive()) {
+			sessionFactory.getCurrentSession().clear();
+		}
 	}
 
 	@Override
@@ -188,12 +392,14 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	}
 
 	@Override
-	public List<?> getListSqlDinamic(String sql) throws Exception { // * Executa uma query SQL retornando lista de
+	public List<?> getListSqlDinamic(final String sql) throws Exception { // * Executa uma query SQL retornando lista de
 																	// objetos.
-		validaSessionFactory();
-		List<?> list = sessionFactory.getCurrentSession().createSQLQuery(sql).list();
-
-		return list;
+		return executaSomenteLeitura(new ConsultaLeitura<List<?>>() {
+			@Override
+			public List<?> executar(Session session) {
+				return session.createSQLQuery(sql).setReadOnly(true).list();
+			}
+		});
 	}
 
 	@Override
@@ -243,14 +449,115 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
-	public List<T> findListByQueryDinamic(String Query, int iniciaNoRegistro, int maximoResultado) throws Exception {
+	public List<T> findListByQueryDinamic(final String Query, final int iniciaNoRegistro, final int maximoResultado)
+			throws Exception {
+		return executaSomenteLeitura(new ConsultaLeitura<List<T>>() {
+			@Override
+			public List<T> executar(Session session) {
+				return session.createQuery(Query).setFirstResult(iniciaNoRegistro).setMaxResults(maximoResultado)
+						.setReadOnly(true).list();
+			}
+		});
+	}
+
+	/**
+	 * Executa uma consulta HQL paginada com parâmetros nomeados, retornando cada
+	 * linha como array com as colunas do select.
+	 * 
+	 * Usada pela paginação por chave (keyset), onde o select traz a entidade junto
+	 * com o valor da coluna de ordenação e o id da última linha da página.
+	 * 
+	 * @param Query            Query HQL com mais de uma coluna no select.
+	 * @param parametros       Parâmetros nomeados da query (pode ser null).
+	 * @param iniciaNoRegistro Posição inicial (0 quando a paginação é por chave).
+	 * @param maximoResultado  Número máximo de resultados.
+	 * @return Lista de arrays com as colunas do select.
+	 * @throws Exception Caso ocorra erro na operação.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Object[]> findListArrayByQueryDinamic(final String Query, final Map<String, Object> parametros,
+			final int iniciaNoRegistro, final int maximoResultado) throws Exception {
+		return executaSomenteLeitura(new ConsultaLeitura<List<Object[]>>() {
+			@Override
+			public List<Object[]> executar(Session session) {
+				Query query = criaQuery(session, Query, parametros);
+
+				if (iniciaNoRegistro > 0) {
+					query.setFirstResult(iniciaNoRegistro);
+				}
+
+				return query.setMaxResults(maximoResultado).list();
+			}
+		});
+	}
+
+	@Override
+	public Query obterQuery(String query, Map<String, Object> parametros) throws Exception { // * Cria a Query HQL com os parâmetros nomeados.
 		validaSessionFactory();
-		List<T> list = new ArrayList<T>();
 
-		list = sessionFactory.getCurrentSession().createQuery(Query).setFirstResult(iniciaNoRegistro)
-				.setMaxResults(maximoResultado).list();
+		return criaQuery(sessionFactory.getCurrentSession(), query, parametros);
+	}
+
+	private static Query criaQuery(Session session, String query, Map<String, Object> parametros) {
+		Query queryReturn = session.createQuery(query);
+
+		if (parametros != null) {
+			for (Map.Entry<String, Object> parametro : parametros.entrySet()) {
+				queryReturn.setParameter(parametro.getKey(), parametro.getValue());
+			}
+		}
+
+		return queryReturn;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<T> findListByConsulta(final ConsultaParametrizada<T> consulta) throws Exception { // * Executa a consulta parametrizada.
+		return executaSomenteLeitura(new ConsultaLeitura<List<T>>() {
+			@Override
+			public List<T> executar(Session session) {
+				return criaQuery(session, consulta.getHql(), consulta.getParametros()).setReadOnly(true).list();
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<T> findListByConsulta(final ConsultaParametrizada<T> consulta, final int iniciaNoRegistro,
+			final int maximoResultado) throws Exception { // * Executa a consulta parametrizada paginada.
+		return executaSomenteLeitura(new ConsultaLeitura<List<T>>() {
+			@Override
+			public List<T> executar(Session session) {
+				return criaQuery(session, consulta.getHql(), consulta.getParametros()).setFirstResult(iniciaNoRegistro)
+						.setMaxResults(maximoResultado).setReadOnly(true).list();
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T findUniqueByConsulta(ConsultaParametrizada<T> consulta) throws Exception { // * Retorna um único resultado da consulta parametrizada.
+		return (T) obterQuery(consulta.getHql(), consulta.getParametros()).uniqueResult();
+	}
+
+	@Override
+	public Long countByConsulta(final ConsultaParametrizada<?> consulta) throws Exception { // * Conta os registros da consulta parametrizada.
+		Number total = executaSomenteLeitura(new ConsultaLeitura<Number>() {
+			@Override
+			public Number executar(Session session) {
+				return (Number) criaQuery(session, consulta.getHqlContagem(), consulta.getParametros()).uniqueResult();
+			}
+		});
+
+		return total != null ? total.longValue() : 0L;
+	}
+
+	@Override
+	public String getNomeCampoId(Class<?> entidade) throws Exception { // * Retorna o nome do atributo @Id da entidade.
+		validaSessionFactory();
 
-		return list;
+		return sessionFactory.getClassMetadata(entidade).getIdentifierPropertyName();
 	}
 
 	private void validaTransaction() { // * Valida se a sessionFactory está ativa.
@@ -279,6 +586,14 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 		}
 
 		validaTransaction();
+
+		Session session = sessionFactory.getCurrentSession();
+
+		if (EstrategiaFlush.LOTE_EXPLICITO.equals(getEstrategiaFlush())) {
+			session.setFlushMode(FlushMode.COMMIT);
+		} else if (FlushMode.COMMIT.equals(session.getFlushMode())) {
+			session.setFlushMode(FlushMode.AUTO);
+		}
 	}
 
 	/*
@@ -292,6 +607,270 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 
 	}
 
+	/**
+	 * Só faz o flush após a operação quando a estratégia é IMEDIATO. Nas demais as
+	 * alterações ficam na sessão e são enviadas juntas (em lote JDBC) no final da
+	 * requisição ou no próximo flush explícito.
+	 */
+	private void flushConformeEstrategia() {
+		if (EstrategiaFlush.IMEDIATO.equals(getEstrategiaFlush())) {
+			executeFlushSession();
+		}
+	}
+
+	/**
+	 * @return estratégia da thread atual ou, se não definida, a padrão da aplicação.
+	 */
+	public static EstrategiaFlush getEstrategiaFlush() {
+		EstrategiaFlush estrategia = estrategiaFlushThread.get();
+		return estrategia != null ? estrategia : estrategiaFlushPadrao;
+	}
+
+	/**
+	 * Define a estratégia padrão da aplicação (lida do web.xml na inicialização).
+	 */
+	public static void setEstrategiaFlushPadrao(EstrategiaFlush estrategia) {
+		if (estrategia != null) {
+			estrategiaFlushPadrao = estrategia;
+		}
+	}
+
+	/**
+	 * Define a estratégia somente para a requisição atual. O FilterOpenSessionInView
+	 * descarta a escolha ao final da requisição.
+	 */
+	public static void usarEstrategiaFlush(EstrategiaFlush estrategia) {
+		estrategiaFlushThread.set(estrategia);
+	}
+
+	/**
+	 * @return true quando a requisição/thread atual já gravou pelo ImplementacaoCrud.
+	 */
+	public static boolean isGravacaoRequisicao() {
+		return Boolean.TRUE.equals(gravacaoThread.get());
+	}
+
+	/**
+	 * Descarta o estado da requisição guardado na thread (estratégia de flush e
+	 * marcação de gravação). Chamado pelo FilterOpenSessionInView ao final da requisição.
+	 */
+	public static void limparContextoRequisicao() {
+		estrategiaFlushThread.remove();
+		gravacaoThread.remove();
+	}
+
+	/**
+	 * Objetos carregados pelas consultas @SomenteLeitura ficam read-only na sessão e
+	 * suas alterações seriam ignoradas no flush: retira da sessão para que
+	 * update/saveOrUpdate/merge tratem o objeto como destacado e gravem o estado atual.
+	 */
+	private void liberaSomenteLeitura(T obj) {
+		Session session = sessionFactory.getCurrentSession();
+
+		if (obj != null && session.contains(obj) && session.isReadOnly(obj)) {
+			session.evict(obj);
+		}
+
+		// Lido na réplica: a Session dela continua aberta até o fim da requisição e
+		// uma coleção não pode estar associada a duas sessões abertas
+		Session sessionLeitura = HibernateUtil.getSessionLeituraRequisicaoAberta();
+
+		if (obj != null && sessionLeitura != null && sessionLeitura.contains(obj)) {
+			sessionLeitura.evict(obj);
+		}
+	}
+
+	/**
+	 * Consulta executada por {@link #executaSomenteLeitura(ConsultaLeitura)}.
+	 */
+	protected interface ConsultaLeitura<R> {
+		R executar(Session session) throws Exception;
+	}
+
+	/**
+	 * Executa os métodos marcados com @SomenteLeitura na InterfaceCrud.
+	 * 
+	 * Com réplica de leitura configurada (e sem gravações na requisição) a consulta
+	 * roda na Session da réplica da requisição: FlushMode.MANUAL, entidades read-only
+	 * e "SET TRANSACTION READ ONLY", aberta até o fim da requisição para o lazy
+	 * loading da renderização. Fora de uma requisição (threads de segundo plano)
+	 * não há quem feche essa Session, então usa o banco principal.
+	 * 
+	 * Sem réplica, usa a sessão da requisição (não abre uma segunda conexão), com
+	 * as entidades carregadas como read-only e, se a requisição ainda não gravou
+	 * nada, sem o auto-flush antes da consulta.
+	 */
+	protected <R> R executaSomenteLeitura(ConsultaLeitura<R> consulta) throws Exception {
+
+		boolean gravou = Boolean.TRUE.equals(gravacaoThread.get());
+
+		if (!gravou && HibernateUtil.isEscopoRequisicao() && HibernateUtil.isReplicaLeituraConfigurada()) {
+			return consulta.executar(HibernateUtil.getSessionLeituraRequisicao());
+		}
+
+		validaSessionFactory();
+
+		Session session = sessionFactory.getCurrentSession();
+
+		if (gravou) {
+			return consulta.executar(session);
+		}
+
+		FlushMode flushModeAnterior = session.getFlushMode();
+		session.setFlushMode(FlushMode.MANUAL);
+
+		try {
+			return consulta.executar(session);
+		} finally {
+			session.setFlushMode(flushModeAnterior);
+		}
+	}
+
+	/**
+	 * Descarta as contagens de registros e a lista de seleção em cache da entidade
+	 * alterada, para que a próxima pesquisa/tela não exiba dados desatualizados.
+	 */
+	private void evictContagem(Object obj) {
+		if (obj == null) {
+			return;
+		}
+		gravacaoThread.set(Boolean.TRUE);
+		invalidaContagem(Hibernate.getClass(obj));
+		invalidaListaSelecao(Hibernate.getClass(obj));
+		if (obj instanceof Entidade) {
+			invalidaUsuario((Entidade) obj);
+		}
+	}
+
+	/**
+	 * Updates em massa (HQL/SQL) podem alterar qualquer tabela: descarta todas as
+	 * contagens e listas de seleção.
+	 */
+	private void evictContagemTodas() {
+		gravacaoThread.set(Boolean.TRUE);
+		invalidaContagem(null);
+		invalidaListaSelecao(null);
+		invalidaUsuario(null);
+	}
+
+	/**
+	 * Descarta as contagens em cache da entidade (ou todas, quando classe é null)
+	 * agora e de novo após o commit: antes do commit outra requisição ainda conta
+	 * os registros antigos e guardaria esse total por todo o tempo de vida do cache.
+	 */
+	private void invalidaContagem(final Class<?> classe) {
+
+		final SrvContagemRegistro servico = srvContagemRegistro;
+
+		if (servico == null) {
+			return;
+		}
+
+		invalidaRegistroContagem(servico, classe);
+
+		Transaction transaction = sessionFactory.getCurrentSession().getTransaction();
+
+		if (transaction.isActive()) {
+			transaction.registerSynchronization(new Synchronization() {
+
+				@Override
+				public void beforeCompletion() {
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					invalidaRegistroContagem(servico, classe);
+				}
+			});
+		}
+	}
+
+	private static void invalidaRegistroContagem(SrvContagemRegistro servico, Class<?> classe) {
+		if (classe == null) {
+			servico.evictAll();
+		} else {
+			servico.evict(classe);
+		}
+	}
+
+	/**
+	 * Descarta do cache do Spring Security o usuário gravado (ou todos, quando
+	 * entidade é null) agora e de novo após o commit, como a lista de seleção:
+	 * senha, acessos e inativação valem a partir do próximo login.
+	 */
+	private void invalidaUsuario(final Entidade entidade) {
+
+		final ServicoDetalhesUsuario servico = servicoDetalhesUsuario;
+
+		if (servico == null) {
+			return;
+		}
+
+		invalidaRegistroUsuario(servico, entidade);
+
+		Transaction transaction = sessionFactory.getCurrentSession().getTransaction();
+
+		if (transaction.isActive()) {
+			transaction.registerSynchronization(new Synchronization() {
+
+				@Override
+				public void beforeCompletion() {
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					invalidaRegistroUsuario(servico, entidade);
+				}
+			});
+		}
+	}
+
+	private static void invalidaRegistroUsuario(ServicoDetalhesUsuario servico, Entidade entidade) {
+		if (entidade == null) {
+			servico.invalidarTodos();
+		} else {
+			servico.invalidar(entidade);
+		}
+	}
+
+	/**
+	 * Invalida a lista de seleção da entidade (ou todas, quando classe é null) agora
+	 * e de novo após o commit: com o flush adiado, uma lista montada por outra
+	 * requisição antes do commit ainda traria os dados antigos.
+	 */
+	private void invalidaListaSelecao(final Class<?> classe) {
+
+		if (classe != null && !RegistroListaSelecao.isRegistrada(classe)) {
+			return;
+		}
+
+		invalidaRegistroListaSelecao(classe);
+
+		Transaction transaction = sessionFactory.getCurrentSession().getTransaction();
+
+		if (transaction.isActive()) {
+			transaction.registerSynchronization(new Synchronization() {
+
+				@Override
+				public void beforeCompletion() {
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					invalidaRegistroListaSelecao(classe);
+				}
+			});
+		}
+	}
+
+	private static void invalidaRegistroListaSelecao(Class<?> classe) {
+		if (classe == null) {
+			RegistroListaSelecao.invalidarTodas();
+		} else {
+			RegistroListaSelecao.invalidar(classe);
+		}
+	}
+
 	/**
 	 * Executa uma query SQL retornando lista de arrays de objetos.
 	 * 
@@ -301,11 +880,13 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	 */
 
 	@SuppressWarnings("unchecked")
-	public List<Object[]> getListSQLDinamicaArray(String sql) throws Exception {
-		validaSessionFactory();
-		List<Object[]> list = (List<Object[]>) sessionFactory.getCurrentSession().createSQLQuery(sql).list();
-
-		return list;
+	public List<Object[]> getListSQLDinamicaArray(final String sql) throws Exception {
+		return executaSomenteLeitura(new ConsultaLeitura<List<Object[]>>() {
+			@Override
+			public List<Object[]> executar(Session session) {
+				return (List<Object[]>) session.createSQLQuery(sql).setReadOnly(true).list();
+			}
+		});
 	}
 	
 	
@@ -324,42 +905,25 @@ public class ImplementacaoCrud<T> implements InterfaceCrud<T> {
 	
 	/**
 	 * Realiza uma consulta única em uma entidade com base em um atributo, valor e uma condição adicional.
-	 * A consulta é construída dinamicamente utilizando a HQL (Hibernate Query Language) ou JPQL (Java Persistence Query Language).
+	 * O valor é enviado como parâmetro nomeado (bind), nunca concatenado na HQL.
 	 *
 	 * @param entidade A classe da entidade que será consultada, representando a tabela no banco de dados.
 	 *                 Exemplo: `Entidade.class`
 	 * @param valor O valor que será comparado com o atributo fornecido. Esse valor será utilizado na cláusula `WHERE`.
 	 * @param atributo O nome do atributo da entidade que será utilizado na comparação. Exemplo: "ent_login".
-	 * @param condicao Uma condição adicional para refinar a consulta, como um filtro extra no `WHERE`.
+	 * @param condicao Uma condição adicional fixa para refinar a consulta (sem valores do usuário).
 	 *                 Exemplo: `and entity.ent_inativo is false`.
 	 * @return O objeto da entidade que corresponde aos critérios fornecidos (se encontrado), ou `null` caso contrário.
 	 * @throws Exception Se ocorrer algum erro durante a construção da consulta ou execução da pesquisa.
 	 */
 	public T findUniqueByProperty(Class<T> entidade, Object valor, String atributo, String condicao) throws Exception {
-	    
-		
-		// Valida a sessão do Hibernate/JPA, garantindo que a fábrica de sessões está corretamente configurada		
-	    validaSessionFactory();
-
-	    
-	    
-	    // Construção dinâmica da consulta utilizando StringBuilder para maior eficiência
-	    StringBuilder query = new StringBuilder();
-	    query.append(" select entity from ")  // Inicia a consulta com a cláusula select
-	         .append(entidade.getSimpleName())  // Adiciona o nome simples da classe da entidade 
-	         .append(" entity where entity.")  // Adiciona o alias 'entity' para a entidade
-	         .append(atributo)  // ent_login
-	         .append(" = '")  // Adiciona o operador de comparação '=' e o valor a ser comparado
-	         .append(valor)  // O valor que será comparado com o atributo
-	         .append("' ")  // Fecha a comparação com as aspas simples para valores de string
-	         .append(condicao);  // Adiciona a condição adicional (como AND, OR, etc.)
-
-	    
-	    
-	    // Executa a consulta dinâmica e retorna o resultado único (objeto da entidade)
-	    T obj = (T) this.findUniqueByQueryDinamica(query.toString());
-
-	    return obj;  // Retorna o objeto encontrado, ou null se não encontrado
+
+	    // Monta a consulta com o valor como parâmetro: a HQL é a mesma para qualquer valor
+	    ConsultaParametrizada<T> consulta = new ConsultaParametrizada<T>(entidade)
+	    		.igual(atributo, valor)
+	    		.restricao(condicao);
+
+	    return findUniqueByConsulta(consulta);  // Retorna o objeto encontrado, ou null se não encontrado
 	}
 
 	@Override
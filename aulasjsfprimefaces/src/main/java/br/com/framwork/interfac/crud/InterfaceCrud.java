@@ -1,7 +1,9 @@
 package br.com.framwork.interfac.crud;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.Query;
 import org.hibernate.Session;
@@ -11,12 +13,18 @@ import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import br.com.framwork.implementacao.crud.ConsultaParametrizada;
+import br.com.project.annotation.SomenteLeitura;
+
 
 
 
 /**
  * Interface genérica para operações CRUD básicas e utilitárias em entidades persistentes.
  * 
+ * Métodos marcados com {@link SomenteLeitura} executam em modo somente leitura
+ * (e na réplica de leitura, quando configurada).
+ * 
  * @param <T> Tipo da entidade que será manipulada.
  */
 
@@ -45,21 +53,45 @@ public interface InterfaceCrud<T>  extends Serializable{
 	//salva e retorna a chave primaria do banco de dados
 	T merge(T obj) throws Exception;
 	
+	//operacoes em lote com batch JDBC (flush/clear a cada intervaloFlush registros)
+	void saveAll(Collection<T> objs) throws Exception;
+	
+	void saveAll(Collection<T> objs, int intervaloFlush) throws Exception;
+	
+	List<T> mergeAll(Collection<T> objs) throws Exception;
+	
+	List<T> mergeAll(Collection<T> objs, int intervaloFlush) throws Exception;
+	
+	void deleteAll(Collection<T> objs) throws Exception;
+	
+	void deleteAll(Collection<T> objs, int intervaloFlush) throws Exception;
+	
 	//Carrega a lista de dados de determinada classe
+	@SomenteLeitura
 	List<T> findList(Class<T> objs) throws Exception;
 		
 	Object findById(Class<T> entidade, Long id) throws Exception;
 	
 	T findPorId(Class<T> entidade, Long id) throws Exception;
 		
+	@SomenteLeitura
 	List<T> findListByQueryDinamic (String s) throws Exception;
 
+	//consulta HQL com resultado guardado no cache de consultas (dados de referencia)
+	List<T> findListByQueryCache(String s, String regiaoCache) throws Exception;
+
+	//descarta do cache de segundo nivel a entidade e as consultas em cache (alteracoes feitas fora do Hibernate)
+	void evictCache(Class<?> entidade) throws Exception;
+
 	//executar update com HQL
 	void executeUpdateQueryDinamic (String s) throws Exception;
 	
 	//executar update com SQL
 	void executeUpdateSQLDinamic(String s) throws Exception;
 	
+	//envia ao banco as alteracoes pendentes na sessao, independente da EstrategiaFlush
+	void flush() throws Exception;
+	
 	//limpa a sessao do hibernate
 	void clearSession() throws Exception;
 	
@@ -68,6 +100,7 @@ public interface InterfaceCrud<T>  extends Serializable{
 	
 	Session getSession() throws Exception;
 	
+	@SomenteLeitura
 	List<?> getListSqlDinamic(String sql) throws Exception;	
 	
 	
@@ -84,7 +117,30 @@ public interface InterfaceCrud<T>  extends Serializable{
 	Query obterQuery(String query) throws Exception;
 
 	//Carregamento Dinamico com JSF e primefaces
+	@SomenteLeitura
 	List<T> findListByQueryDinamic(String Query, int iniciaNoRegistro, int maximoResultado) throws Exception;
 	
+	//Carregamento paginado com parametros nomeados, retornando as colunas do select (paginacao por chave)
+	@SomenteLeitura
+	List<Object[]> findListArrayByQueryDinamic(String Query, Map<String, Object> parametros, int iniciaNoRegistro, int maximoResultado) throws Exception;
+	
+	//Nome do atributo identificador (@Id) da entidade
+	String getNomeCampoId(Class<?> entidade) throws Exception;
+	
+	//Consultas com parametros nomeados (sem concatenar valores na HQL)
+	@SomenteLeitura
+	List<T> findListByConsulta(ConsultaParametrizada<T> consulta) throws Exception;
+	
+	@SomenteLeitura
+	List<T> findListByConsulta(ConsultaParametrizada<T> consulta, int iniciaNoRegistro, int maximoResultado) throws Exception;
+	
+	T findUniqueByConsulta(ConsultaParametrizada<T> consulta) throws Exception;
+	
+	@SomenteLeitura
+	Long countByConsulta(ConsultaParametrizada<?> consulta) throws Exception;
+	
+	//Cria a Query HQL com os parametros ja informados
+	Query obterQuery(String query, Map<String, Object> parametros) throws Exception;
+	
 }
 
@@ -0,0 +1,271 @@
+package br.com.project.acessos;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Codificação das senhas dos usuários com BCrypt (hash adaptativo: o custo
+ * dobra a cada unidade de {@link #setCusto(int)}).
+ *
+ * <p>O BCrypt é lento de propósito. Para uma rajada de logins não ocupar todas
+ * as threads de requisição do servidor, os hashes rodam num pool próprio e
+ * limitado; quando a fila do pool enche, a autenticação falha com
+ * AuthenticationServiceException em vez de esperar.</p>
+ *
+ * <p>Senhas ainda gravadas em texto puro (anteriores à migração) continuam
+ * válidas: {@link #matches(CharSequence, String)} as compara diretamente, e o
+ * ProvedorAutenticacao grava o hash no primeiro login
+ * ({@link #precisaRecodificar(String)}).</p>
+ *
+ * <p>O login passa por duas verificações da mesma senha (LoginBeanView e Spring
+ * Security). Cada verificação bem-sucedida fica em memória por
+ * {@link #VALIDADE_VERIFICACAO_MS}, como HMAC da senha com uma chave aleatória
+ * desta JVM (a senha não fica guardada), e a segunda não refaz o BCrypt.</p>
+ */
+public class CodificadorSenha implements PasswordEncoder {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String ALGORITMO_HMAC = "HmacSHA256";
+
+	/** Prefixo dos hashes gerados (e aceitos pelo BCrypt do Spring Security 3.1). */
+	private static final String PREFIXO_BCRYPT = "$2a$";
+
+	// Tempo que uma verificação bem-sucedida é reaproveitada
+	private static final long VALIDADE_VERIFICACAO_MS = 10 * 60 * 1000L;
+
+	// Verificações guardadas ao mesmo tempo (acima disso o cache é esvaziado)
+	private static final int MAXIMO_VERIFICACOES = 5000;
+
+	// Tempo máximo de espera por um hash na fila
+	private static final long ESPERA_MAXIMA_SEGUNDOS = 30L;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private final byte[] chaveHmac = new byte[32];
+
+	// Hash gravado -> HMAC da senha que conferiu com ele
+	private final ConcurrentMap<String, VerificacaoEmCache> verificacoes = new ConcurrentHashMap<String, VerificacaoEmCache>();
+
+	private int custo = 10;
+
+	private int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	private int tamanhoFila = 100;
+
+	private ThreadPoolExecutor executor;
+
+	public CodificadorSenha() {
+		random.nextBytes(chaveHmac);
+	}
+
+	/**
+	 * Gera o hash BCrypt da senha, com o custo configurado.
+	 */
+	@Override
+	public String encode(final CharSequence rawPassword) {
+		return executar(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return BCrypt.hashpw(rawPassword.toString(), BCrypt.gensalt(custo, random));
+			}
+		});
+	}
+
+	/**
+	 * Confere a senha digitada com a gravada (hash BCrypt ou, antes da
+	 * migração, texto puro).
+	 */
+	@Override
+	public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+
+		if (rawPassword == null || encodedPassword == null || encodedPassword.isEmpty()) {
+			return false;
+		}
+
+		if (!isCodificada(encodedPassword)) {
+			// Comparação em tempo constante, para não revelar o tamanho do prefixo correto
+			return MessageDigest.isEqual(rawPassword.toString().getBytes(UTF8), encodedPassword.getBytes(UTF8));
+		}
+
+		byte[] hmac = hmac(rawPassword);
+
+		VerificacaoEmCache verificacao = verificacoes.get(encodedPassword);
+
+		if (verificacao != null && System.currentTimeMillis() - verificacao.verificadaEm < VALIDADE_VERIFICACAO_MS
+				&& MessageDigest.isEqual(verificacao.hmac, hmac)) {
+			return true;
+		}
+
+		boolean confere = executar(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return BCrypt.checkpw(rawPassword.toString(), comPrefixo2a(encodedPassword));
+			}
+		});
+
+		if (confere) {
+			if (verificacoes.size() >= MAXIMO_VERIFICACOES) {
+				verificacoes.clear();
+			}
+			verificacoes.put(encodedPassword, new VerificacaoEmCache(hmac));
+		}
+
+		return confere;
+	}
+
+	/**
+	 * @return true quando o valor gravado é um hash BCrypt ($2a$, ou $2b$/$2y$
+	 *         gerados por outras bibliotecas).
+	 */
+	public boolean isCodificada(String senhaGravada) {
+		return senhaGravada != null && senhaGravada.length() == 60
+				&& (senhaGravada.startsWith(PREFIXO_BCRYPT) || senhaGravada.startsWith("$2b$")
+						|| senhaGravada.startsWith("$2y$"));
+	}
+
+	/**
+	 * O BCrypt do Spring Security 3.1 só aceita o prefixo $2a$ (lança exceção
+	 * com $2b$/$2y$). Os três usam o mesmo algoritmo para senhas comuns, então
+	 * basta trocar o prefixo antes de verificar.
+	 */
+	private static String comPrefixo2a(String senhaGravada) {
+		return senhaGravada.startsWith(PREFIXO_BCRYPT) ? senhaGravada : PREFIXO_BCRYPT + senhaGravada.substring(4);
+	}
+
+	/**
+	 * @return true quando a senha gravada está em texto puro ou foi gerada com
+	 *         um custo diferente do configurado.
+	 */
+	public boolean precisaRecodificar(String senhaGravada) {
+
+		// $2b$/$2y$ são regravados como $2a$, o formato gerado pelo Spring Security
+		if (!isCodificada(senhaGravada) || !senhaGravada.startsWith(PREFIXO_BCRYPT)) {
+			return true;
+		}
+
+		try {
+			return Integer.parseInt(senhaGravada.substring(4, 6)) != custo;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+	private <V> V executar(Callable<V> tarefa) {
+
+		Future<V> resultado;
+
+		try {
+			resultado = getExecutor().submit(tarefa);
+		} catch (RejectedExecutionException e) {
+			throw new AuthenticationServiceException("Servidor ocupado. Tente novamente em instantes.", e);
+		}
+
+		try {
+			return resultado.get(ESPERA_MAXIMA_SEGUNDOS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			resultado.cancel(true);
+			throw new AuthenticationServiceException("Verificação de senha interrompida", e);
+		} catch (TimeoutException e) {
+			resultado.cancel(true);
+			throw new AuthenticationServiceException("Servidor ocupado. Tente novamente em instantes.", e);
+		} catch (ExecutionException e) {
+			throw new AuthenticationServiceException("Erro ao verificar a senha", e.getCause());
+		}
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(tamanhoFila), new ThreadFactory() {
+
+						private final AtomicInteger numero = new AtomicInteger();
+
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "senha-" + numero.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+
+		return executor;
+	}
+
+	private byte[] hmac(CharSequence senha) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITMO_HMAC);
+			mac.init(new SecretKeySpec(chaveHmac, ALGORITMO_HMAC));
+			return mac.doFinal(senha.toString().getBytes(UTF8));
+		} catch (Exception e) {
+			throw new IllegalStateException("HMAC indisponível", e);
+		}
+	}
+
+	@PreDestroy
+	public synchronized void finalizar() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		verificacoes.clear();
+	}
+
+	/** Custo (log2 das rodadas) do BCrypt, entre 4 e 31. Padrão: 10. */
+	public void setCusto(int custo) {
+		if (custo < 4 || custo > 31) {
+			throw new IllegalArgumentException("Custo do BCrypt deve estar entre 4 e 31");
+		}
+		this.custo = custo;
+	}
+
+	public int getCusto() {
+		return custo;
+	}
+
+	/** Threads que calculam hashes ao mesmo tempo. */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/** Hashes aguardando uma thread livre antes de recusar. */
+	public void setTamanhoFila(int tamanhoFila) {
+		this.tamanhoFila = tamanhoFila;
+	}
+
+	private static final class VerificacaoEmCache {
+
+		private final byte[] hmac;
+
+		private final long verificadaEm = System.currentTimeMillis();
+
+		VerificacaoEmCache(byte[] hmac) {
+			this.hmac = hmac;
+		}
+	}
+
+}
@@ -1,9 +1,14 @@
 package br.com.project.acessos;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Enum responsável por centralizar e representar todas as permissões de acesso do sistema.
@@ -99,20 +104,32 @@ public enum Permissao {
 	
 	/**
 	 * Método utilitário que retorna uma lista de permissões
-	 * ordenadas pela ordem em que foram declaradas no Enum.
+	 * ordenadas pela descrição (ordem alfabética).
+	 * 
+	 * A lista é montada e ordenada uma única vez e compartilhada (somente leitura).
 	 * 
 	 * @return Lista de permissões ordenadas
 	 */
 	public static List<Permissao> getListPermissao() {
+		return LISTA_PERMISSAO_ORDENADA;
+	}
+	
+	
+//--------------------------------------------------------------------------------------------------------------------------------------
 
-		// Cria lista vazia de permissões
-		List<Permissao> permissaos = new ArrayList<Permissao>();
+	// Valor técnico -> permissão, montado uma única vez
+	private static final Map<String, Permissao> PERMISSAO_POR_VALOR = new HashMap<String, Permissao>();
 
-		// Adiciona todos os itens do Enum na lista
-		for (Permissao permissao : Permissao.values()) {
-			permissaos.add(permissao);
+	// Permissões ordenadas pela descrição, montada uma única vez
+	private static final List<Permissao> LISTA_PERMISSAO_ORDENADA;
+
+	static {
+		for (Permissao permissao : values()) {
+			PERMISSAO_POR_VALOR.put(permissao.getValor(), permissao);
 		}
 
+		List<Permissao> permissaos = new ArrayList<Permissao>(Arrays.asList(values()));
+
 		// Ordena a lista com base na ordem alfabetica
 		Collections.sort(permissaos, new Comparator<Permissao>() {
 
@@ -122,9 +139,54 @@ public enum Permissao {
 			}
 		});
 
-		// Retorna a lista ordenada
-		return permissaos;
+		LISTA_PERMISSAO_ORDENADA = Collections.unmodifiableList(permissaos);
 	}
-	
-	
+
+	/**
+	 * Permissão pelo valor técnico gravado no banco (esa_codigo), sem percorrer
+	 * o enum.
+	 * 
+	 * @param valor Valor técnico da permissão (ex: "ADMIN")
+	 * @return a permissão, ou null quando o valor não existe no enum
+	 */
+	public static Permissao porValor(String valor) {
+		return valor == null ? null : PERMISSAO_POR_VALOR.get(valor);
+	}
+
+	/**
+	 * Converte os acessos gravados (esa_codigo) para as permissões do enum,
+	 * ignorando maiúsculas/minúsculas. Acessos sem permissão correspondente são
+	 * ignorados.
+	 * 
+	 * @param acessos Valores técnicos das permissões
+	 * @return EnumSet com as permissões encontradas
+	 */
+	public static EnumSet<Permissao> deAcessos(Collection<String> acessos) {
+
+		EnumSet<Permissao> permissoes = EnumSet.noneOf(Permissao.class);
+
+		if (acessos == null) {
+			return permissoes;
+		}
+
+		for (String acesso : acessos) {
+
+			if (acesso == null) {
+				continue;
+			}
+
+			Permissao permissao = porValor(acesso);
+
+			if (permissao == null) {
+				permissao = porValor(acesso.trim().toUpperCase());
+			}
+
+			if (permissao != null) {
+				permissoes.add(permissao);
+			}
+		}
+
+		return permissoes;
+	}
+
 }
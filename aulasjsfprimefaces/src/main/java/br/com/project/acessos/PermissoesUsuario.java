@@ -0,0 +1,88 @@
+package br.com.project.acessos;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Acessos de um usuário autenticado, montados uma única vez a partir das
+ * authorities do Spring Security.
+ *
+ * Os acessos que existem no enum {@link Permissao} ficam num EnumSet (teste de
+ * bit); os demais (ainda não declarados no enum), num HashSet. Objeto imutável:
+ * pode ser lido por várias requisições ao mesmo tempo.
+ */
+public final class PermissoesUsuario implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final EnumSet<Permissao> permissoes;
+
+	private final Set<String> outrosAcessos;
+
+	private PermissoesUsuario(EnumSet<Permissao> permissoes, Set<String> outrosAcessos) {
+		this.permissoes = permissoes;
+		this.outrosAcessos = outrosAcessos;
+	}
+
+	public static PermissoesUsuario de(Collection<? extends GrantedAuthority> authorities) {
+
+		EnumSet<Permissao> permissoes = EnumSet.noneOf(Permissao.class);
+		Set<String> outrosAcessos = new HashSet<String>();
+
+		if (authorities != null) {
+			for (GrantedAuthority authority : authorities) {
+
+				if (authority.getAuthority() == null) {
+					continue;
+				}
+
+				String acesso = authority.getAuthority().trim();
+				Permissao permissao = Permissao.porValor(acesso);
+
+				if (permissao != null) {
+					permissoes.add(permissao);
+				} else {
+					outrosAcessos.add(acesso);
+				}
+			}
+		}
+
+		return new PermissoesUsuario(permissoes, Collections.unmodifiableSet(outrosAcessos));
+	}
+
+	/**
+	 * @return true quando o usuário possui o acesso informado.
+	 */
+	public boolean possui(String acesso) {
+
+		if (acesso == null) {
+			return false;
+		}
+
+		Permissao permissao = Permissao.porValor(acesso.trim());
+
+		if (permissao != null) {
+			return permissoes.contains(permissao);
+		}
+
+		return outrosAcessos.contains(acesso.trim());
+	}
+
+	public boolean possui(Permissao permissao) {
+		return permissoes.contains(permissao);
+	}
+
+	/**
+	 * @return cópia das permissões do enum que o usuário possui.
+	 */
+	public EnumSet<Permissao> getPermissoes() {
+		return EnumSet.copyOf(permissoes);
+	}
+
+}
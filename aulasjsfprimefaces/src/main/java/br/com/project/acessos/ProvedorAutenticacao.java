@@ -0,0 +1,58 @@
+package br.com.project.acessos;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import br.com.repository.interfaces.RepositoryLogin;
+
+/**
+ * Autenticação por usuário e senha do Spring Security com migração das senhas
+ * para hash.
+ *
+ * <p>Depois de conferir a senha, se a gravada estiver em texto puro (ou com
+ * custo de BCrypt diferente do configurado), grava o novo hash. Assim as senhas
+ * antigas são convertidas no primeiro login de cada usuário, sem precisar
+ * conhecê-las antes.</p>
+ */
+public class ProvedorAutenticacao extends DaoAuthenticationProvider {
+
+	private CodificadorSenha codificadorSenha;
+
+	private RepositoryLogin repositoryLogin;
+
+	@Override
+	protected void additionalAuthenticationChecks(UserDetails userDetails,
+			UsernamePasswordAuthenticationToken authentication) throws AuthenticationException {
+
+		super.additionalAuthenticationChecks(userDetails, authentication);
+
+		if (!codificadorSenha.precisaRecodificar(userDetails.getPassword())) {
+			return;
+		}
+
+		try {
+			String senha = authentication.getCredentials().toString();
+			repositoryLogin.atualizarSenha(userDetails.getUsername(), codificadorSenha.encode(senha));
+
+			// O usuário em cache ainda tem a senha anterior
+			if (getUserDetailsService() instanceof ServicoDetalhesUsuario) {
+				((ServicoDetalhesUsuario) getUserDetailsService()).invalidar(userDetails.getUsername());
+			}
+		} catch (Exception e) {
+			// A senha conferiu: o login segue e a migração é tentada no próximo
+			e.printStackTrace();
+		}
+	}
+
+	public void setCodificadorSenha(CodificadorSenha codificadorSenha) {
+		this.codificadorSenha = codificadorSenha;
+		super.setPasswordEncoder(codificadorSenha);
+	}
+
+	public void setRepositoryLogin(RepositoryLogin repositoryLogin) {
+		this.repositoryLogin = repositoryLogin;
+	}
+
+}
@@ -0,0 +1,174 @@
+package br.com.project.acessos;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import br.com.project.model.classes.Entidade;
+
+/**
+ * UserDetailsService do Spring Security com cache dos usuários.
+ *
+ * <p>O usuário e os acessos vêm de uma única consulta (entidade com
+ * entidadeacesso), em vez das duas do jdbc-user-service, e ficam em memória
+ * por {@link #setValidadeSegundos(int)}. O ImplementacaoCrud descarta o usuário
+ * do cache ao gravar a Entidade (após o commit também), e o
+ * ProvedorAutenticacao ao regravar a senha.</p>
+ *
+ * <p>A cada chamada é devolvido um novo {@link User}: o Spring Security apaga
+ * a senha do objeto autenticado (eraseCredentials), o que não pode atingir a
+ * cópia guardada.</p>
+ */
+public class ServicoDetalhesUsuario extends JdbcDaoSupport implements UserDetailsService {
+
+	private static final String SQL_USUARIO = "select u.ent_codigo, u.ent_login, u.ent_senha, p.esa_codigo "
+			+ " from entidade u left join entidadeacesso p on p.ent_codigo = u.ent_codigo "
+			+ " where u.ent_inativo = false and upper(u.ent_login) = upper(?)";
+
+	// Login em maiúsculas -> usuário carregado
+	private final ConcurrentMap<String, UsuarioEmCache> cache = new ConcurrentHashMap<String, UsuarioEmCache>();
+
+	private long validadeMs = 5 * 60 * 1000L;
+
+	@Override
+	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+
+		if (username == null || username.trim().isEmpty()) {
+			throw new UsernameNotFoundException("Usuário não informado");
+		}
+
+		String chave = getChave(username);
+
+		UsuarioEmCache usuario = cache.get(chave);
+
+		if (usuario == null || System.currentTimeMillis() - usuario.carregadoEm > validadeMs) {
+
+			usuario = carregar(username.trim());
+
+			if (usuario == null) {
+				cache.remove(chave);
+				throw new UsernameNotFoundException("Usuário não encontrado: " + username);
+			}
+
+			cache.put(chave, usuario);
+		}
+
+		if (usuario.authorities.isEmpty()) {
+			throw new UsernameNotFoundException("Usuário sem acessos: " + username);
+		}
+
+		return new User(usuario.login, usuario.senha, usuario.authorities);
+	}
+
+	private UsuarioEmCache carregar(String login) {
+
+		final List<GrantedAuthority> authorities = new ArrayList<GrantedAuthority>();
+		final Object[] usuario = new Object[3];
+
+		getJdbcTemplate().query(SQL_USUARIO, new Object[] { login }, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				usuario[0] = rs.getLong("ent_codigo");
+				usuario[1] = rs.getString("ent_login");
+				usuario[2] = rs.getString("ent_senha");
+				String acesso = rs.getString("esa_codigo");
+				if (acesso != null) {
+					authorities.add(new SimpleGrantedAuthority(acesso));
+				}
+			}
+		});
+
+		if (usuario[1] == null) {
+			return null;
+		}
+
+		return new UsuarioEmCache((Long) usuario[0], (String) usuario[1], (String) usuario[2],
+				Collections.unmodifiableList(authorities));
+	}
+
+	/**
+	 * Descarta o usuário do login informado.
+	 */
+	public void invalidar(String login) {
+		if (login != null) {
+			cache.remove(getChave(login));
+		}
+	}
+
+	/**
+	 * Descarta o usuário da Entidade gravada, pelo login e pelo código (o login
+	 * pode ter sido alterado).
+	 */
+	public void invalidar(Entidade entidade) {
+
+		if (entidade == null) {
+			return;
+		}
+
+		invalidar(entidade.getEnt_login());
+
+		if (entidade.getEnt_codigo() == null) {
+			return;
+		}
+
+		Iterator<Map.Entry<String, UsuarioEmCache>> iterator = cache.entrySet().iterator();
+
+		while (iterator.hasNext()) {
+			if (entidade.getEnt_codigo().equals(iterator.next().getValue().codigo)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Descarta todos os usuários (ex: update em massa por HQL/SQL).
+	 */
+	public void invalidarTodos() {
+		cache.clear();
+	}
+
+	/** Tempo máximo de um usuário no cache. Padrão: 300 segundos. */
+	public void setValidadeSegundos(int validadeSegundos) {
+		this.validadeMs = validadeSegundos * 1000L;
+	}
+
+	private static String getChave(String login) {
+		return login.trim().toUpperCase();
+	}
+
+	private static final class UsuarioEmCache {
+
+		private final Long codigo;
+
+		private final String login;
+
+		private final String senha;
+
+		private final List<GrantedAuthority> authorities;
+
+		private final long carregadoEm = System.currentTimeMillis();
+
+		UsuarioEmCache(Long codigo, String login, String senha, List<GrantedAuthority> authorities) {
+			this.codigo = codigo;
+			this.login = login;
+			this.senha = senha;
+			this.authorities = authorities;
+		}
+	}
+
+}
@@ -64,6 +64,17 @@ public @interface IdentificaCampoPesquisa {
      */
     String campoConsulta();
 
+    /**
+     * Coluna sombra já normalizada (sem acento e em maiúscula) usada no filtro
+     * das pesquisas no lugar de retira_acentos(upper(campoConsulta)), o que
+     * permite ao banco usar índice. Mantida por trigger (migração
+     * v2_pesquisa_normalizada). Vazio = compara a coluna original.
+     * Exemplo: "cid_descricao_pesquisa", "estado.est_nome_pesquisa"
+     * 
+     * @return String com o nome do campo normalizado para consulta
+     */
+    String campoNormalizado() default "";
+
     /**
      * Prioridade para ordenação na exibição dos campos.
      * Quanto menor o valor, maior a prioridade (aparece primeiro).
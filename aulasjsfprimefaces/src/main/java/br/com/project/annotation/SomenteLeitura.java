@@ -0,0 +1,38 @@
+package br.com.project.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation para marcar os métodos de consulta do CRUD que executam em modo
+ * somente leitura.
+ *
+ * <p>
+ * Métodos marcados (ver InterfaceCrud) não alteram dados e podem ser atendidos
+ * por uma sessão Hibernate somente leitura: FlushMode.MANUAL, entidades
+ * carregadas como read-only (sem snapshot nem dirty checking) e transação com
+ * "SET TRANSACTION READ ONLY", numa réplica de leitura quando o recurso JNDI
+ * jdbc/datasourceLeitura estiver configurado no context.xml.
+ * </p>
+ *
+ * <p>
+ * Os objetos retornados não devem ser alterados esperando que o flush da
+ * requisição grave a alteração: para editar, use findPorId/merge.
+ * </p>
+ *
+ * <h3>Detalhes da Annotation:</h3>
+ * <ul>
+ *   <li><b>@Target(ElementType.METHOD)</b>: só pode ser usada em métodos</li>
+ *   <li><b>@Retention(RetentionPolicy.RUNTIME)</b>: estará disponível em tempo de execução para reflexão</li>
+ *   <li><b>@Documented</b>: será documentada no JavaDoc gerado</li>
+ * </ul>
+ */
+@Target(value = ElementType.METHOD) // Onde pode ser aplicada (método)
+@Retention(value = RetentionPolicy.RUNTIME) // Quando estará disponível (em tempo de execução)
+@Documented // Para documentar a annotation no JavaDoc
+public @interface SomenteLeitura {
+
+}
@@ -2,7 +2,6 @@ package br.com.project.bean.view;
 
 import javax.faces.bean.ManagedBean;
 
-import org.primefaces.model.StreamedContent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Controller;
@@ -12,6 +11,8 @@ import br.com.project.been.geral.BeanManagedViewAbstract;
 import br.com.project.carregamento.lazy.CarregamentoLazyListForObject;
 import br.com.project.geral.controller.CidadeController;
 import br.com.project.model.classes.Cidade;
+import br.com.project.report.util.DataSourceRelatorioHibernate;
+import net.sf.jasperreports.engine.JRDataSource;
 
 @Controller
 @Scope(value = "session")
@@ -28,6 +29,11 @@ public class CidadeBeanView extends BeanManagedViewAbstract {
 
 	private CarregamentoLazyListForObject<Cidade> list = new CarregamentoLazyListForObject<Cidade>();
 
+	public CidadeBeanView() {
+		super.setNomeRelatorioJasper("report_cidade");
+		super.setNomeRelatorioSaida("report_cidade");
+	}
+
 	
 //--------------------------------------------------------------------------------------------------------------------------------
 
@@ -60,6 +66,7 @@ public class CidadeBeanView extends BeanManagedViewAbstract {
 	public String save() throws Exception {
 
 		objetoSelecionado = cidadeController.merge(objetoSelecionado);
+		cidadeController.flush(); // erro de gravação (constraint) deve aparecer aqui, antes da mensagem de sucesso
 		novo();
 
 		return "";
@@ -88,6 +95,7 @@ public class CidadeBeanView extends BeanManagedViewAbstract {
 		objetoSelecionado = (Cidade) cidadeController.getSession().get(getClassImplement(),
 				objetoSelecionado.getCid_codigo());
 		cidadeController.delete(objetoSelecionado);
+		cidadeController.flush(); // violação de FK deve aparecer aqui, antes da mensagem de sucesso
 		novo();
 		list.remove(objetoSelecionado);
 		sucesso();
@@ -97,6 +105,7 @@ public class CidadeBeanView extends BeanManagedViewAbstract {
 	public void saveNotReturn() throws Exception {
 
 		objetoSelecionado = cidadeController.merge(objetoSelecionado);
+		cidadeController.flush(); // erro de gravação (constraint) deve aparecer aqui, antes da mensagem de sucesso
 		list.add(objetoSelecionado);
 		objetoSelecionado = new Cidade();
 		sucesso();
@@ -125,17 +134,12 @@ public class CidadeBeanView extends BeanManagedViewAbstract {
 	}
 
 	@Override
-	public StreamedContent getArquivoReport() {
-
-		super.setNomeRelatorioJasper("report_cidade");
-		super.setNomeRelatorioSaida("report_cidade");
-		try {
-			super.setListDataBeanCollectionReport(cidadeController.findList(getClassImplement()));
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		return super.getArquivoReport();
+	protected JRDataSource criarDataSourceRelatorio() throws Exception {
+		// Lê os registros por cursor em vez de carregar a tabela inteira com findList;
+		// a contagem alimenta o progresso do relatório em segundo plano
+		String entidade = getClassImplement().getSimpleName();
+		return DataSourceRelatorioHibernate.abrir(" from " + entidade + " entity order by entity.cid_descricao",
+				" select count(entity) from " + entidade + " entity");
 	}
 
 	public String navegarParaCidade() throws Exception {
@@ -150,7 +154,7 @@ public class CidadeBeanView extends BeanManagedViewAbstract {
 		
 		list.clean();
 		
-		list.setTotalRegistroConsulta(super.totalRegistroConsulta(), super.getSqlLazyQuery());
+		super.configurarConsultaPorChave(list);
 		
  	}
 
@@ -3,7 +3,9 @@ package br.com.project.bean.view;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.Map;
 
 import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
@@ -12,10 +14,11 @@ import javax.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+import br.com.project.acessos.PermissoesUsuario;
+import br.com.project.geral.controller.CacheEntidadeLogada;
 import br.com.project.geral.controller.EntidadeController;
 import br.com.project.geral.controller.SessionController;
 import br.com.project.model.classes.Entidade;
@@ -34,6 +37,7 @@ public class ContextoBean implements Serializable {
     private static final long serialVersionUID = 1L; // Identificador padrão para serialização de beans em Java
     
     private static final String USER_LOGADO_SESSAO = "userLogadoSessao"; // Nome da chave na sessão para armazenar o usuário logado
+    private static final String VERSAO_USER_LOGADO_SESSAO = "versaoUserLogadoSessao"; // Versão do cache de onde veio a cópia da sessão
 
     // Autowired: Injeção de dependências dos controladores responsáveis pela lógica de entidades e sessão
     @Autowired
@@ -41,6 +45,12 @@ public class ContextoBean implements Serializable {
     
     @Autowired
     private SessionController sessionController;
+
+    @Autowired
+    private CacheEntidadeLogada cacheEntidadeLogada;
+
+    // Permissões da autenticação atual, montadas uma vez por login
+    private transient volatile PermissoesAutenticacao permissoesAutenticacao;
     
     /**
      * Retorna o objeto de autenticação atual do Spring Security.
@@ -54,41 +64,73 @@ public class ContextoBean implements Serializable {
     }
 
     /**
-     * Retorna a entidade (usuário) logada na sessão, obtendo-a do contexto de segurança
-     * e validando se a sessão está ativa e atualizada.
+     * Retorna a entidade (usuário) logada na sessão.
+     * 
+     * A Entidade vem do {@link CacheEntidadeLogada} (compartilhado entre as sessões
+     * do usuário), então as chamadas repetidas durante a renderização não vão ao
+     * banco. Cada sessão guarda a sua própria cópia, trocada apenas quando a
+     * entrada do cache muda: nada do que a sessão altera na cópia chega às outras
+     * sessões nem ao cache. Só no primeiro acesso da sessão (ou troca de usuário) o último acesso
+     * é registrado, em segundo plano, e a sessão entra no controle de sessões.
+     * Se a Entidade foi gravada (senha, acessos, inativação), o cache foi
+     * invalidado e ela é recarregada aqui.
      * 
      * @return Entidade - A entidade (usuário) logada, ou null caso não exista
      * @throws Exception - Exceção lançada se houver algum erro ao acessar a entidade
      */
     public Entidade getEntidadeLogada() throws Exception {
         // Obtém a entidade da sessão usando a chave 'userLogadoSessao'
-        Entidade entidade = (Entidade) getExternalContext().getSessionMap().get(USER_LOGADO_SESSAO);
-        
-        // Verifica se a entidade não está na sessão ou se o login é diferente do principal
-        if (entidade == null || (entidade != null && !entidade.getEnt_login().equals(getUserPrincipal()))) {
-            // Se o usuário estiver autenticado
-            if (getAuthentication().isAuthenticated()) {
-                
-            	
-            	// Grava no banco de dados a hora atual que o usuário fez o login
-            	// Aqui, o método `updateUltimoAcessoUser` é chamado para atualizar o campo de "último acesso" do usuário no banco de dados.
-            	entidadeController.updateUltimoAcessoUser(getAuthentication().getName());  // Passa o nome do usuário logado (via `getAuthentication().getName()`)
-
-            	// Agora, o código busca as informações do usuário logado no banco de dados.
-            	// O método `findUserLogado` é chamado para encontrar a entidade (usuário) correspondente ao login atual,
-            	// e filtra para garantir que o usuário não esteja inativo (isso é feito pela condição "ent_inativo is false").
-            	entidade = entidadeController.findUserLogado(getAuthentication().getName());  // Retorna a entidade do usuário logado
-                
-                // Coloca a entidade na sessão
-                getExternalContext().getSessionMap().put(USER_LOGADO_SESSAO, entidade);
-                
-                // Adiciona a sessão no controle de sessão
-                sessionController.addSession(entidade.getEnt_login(), (HttpSession) getExternalContext().getSession(true));
+        Map<String, Object> sessionMap = getExternalContext().getSessionMap();
+        Entidade entidade = (Entidade) sessionMap.get(USER_LOGADO_SESSAO);
+
+        String login = getUserPrincipal();
+
+        // Primeiro acesso da sessão ou login diferente do principal
+        boolean novoAcesso = entidade == null || !entidade.getEnt_login().equalsIgnoreCase(login);
+
+        if (novoAcesso && !getAuthentication().isAuthenticated()) {
+            return entidade;
+        }
+
+        // A cópia da sessão ainda corresponde à entrada do cache
+        long versao = cacheEntidadeLogada.getVersao(login);
+
+        if (!novoAcesso && versao != 0L && Long.valueOf(versao).equals(sessionMap.get(VERSAO_USER_LOGADO_SESSAO))) {
+            return entidade;
+        }
+
+        // Versão atual do usuário: cache ou, se invalidada/expirada, banco
+        Entidade atual = versao == 0L ? null : cacheEntidadeLogada.get(login);
+
+        if (atual == null) {
+            // Busca o usuário logado, desde que não esteja inativo ("ent_inativo is false")
+            Entidade carregada = entidadeController.findUserLogado(login);
+
+            if (carregada == null) {
+                // Usuário inativado ou removido
+                sessionMap.remove(USER_LOGADO_SESSAO);
+                sessionMap.remove(VERSAO_USER_LOGADO_SESSAO);
+                return null;
             }
-        }   
-        
-        // Retorna a entidade (usuário logado) da sessão
-        return entidade;
+
+            versao = cacheEntidadeLogada.put(login, carregada);
+            atual = carregada.copia();
+        }
+
+        // Coloca na sessão a cópia própria da entidade
+        sessionMap.put(USER_LOGADO_SESSAO, atual);
+        sessionMap.put(VERSAO_USER_LOGADO_SESSAO, versao);
+
+        if (novoAcesso) {
+            // Grava no banco, fora desta requisição, a hora do acesso
+            entidadeController.registrarUltimoAcesso(atual.getEnt_login());
+            atual.setEnt_ultimoacesso(new Date());
+
+            // Adiciona a sessão no controle de sessão
+            sessionController.addSession(atual.getEnt_login(), (HttpSession) getExternalContext().getSession(true));
+        }
+
+        return atual;
     }
 
     /**
@@ -119,29 +161,61 @@ public class ContextoBean implements Serializable {
     /**
      * Verifica se o usuário autenticado possui pelo menos uma das permissões especificadas.
      *
+     * As permissões do usuário são montadas uma única vez por autenticação
+     * ({@link PermissoesUsuario}); cada verificação é um teste no EnumSet, sem
+     * percorrer as authorities.
+     *
      * @param acessos Lista variável de strings representando as permissões a serem verificadas.
      * @return true se o usuário possui alguma das permissões informadas, false caso contrário.
      */
     public boolean possuiAcesso(String... acessos) {
-        
+
+        PermissoesUsuario permissoes = getPermissoesUsuario();
+
         // Percorre cada permissão solicitada na lista de parâmetros 'acessos'
         for (String acesso : acessos) {
-            
-            // Obtém a lista de autoridades (permissões) do usuário autenticado e percorre uma a uma
-            for (GrantedAuthority authority : getAuthentication().getAuthorities()) {
-                
-                // Compara a permissão atual do usuário com a permissão que estamos verificando,
-                // usando trim() para evitar erros com espaços em branco
-                if (authority.getAuthority().trim().equals(acesso.trim())) {
-                    // Se encontrar a permissão, retorna true imediatamente, pois o usuário tem acesso
-                    return true;
-                }
+            if (permissoes.possui(acesso)) {
+                // Se encontrar a permissão, retorna true imediatamente, pois o usuário tem acesso
+                return true;
             }
         }
-        
+
         // Se nenhuma das permissões foi encontrada entre as autoridades do usuário, retorna false
         return false;
     }
 
-    
+    /**
+     * Permissões da autenticação atual, recalculadas só quando a autenticação muda
+     * (novo login na sessão).
+     */
+    public PermissoesUsuario getPermissoesUsuario() {
+
+        Authentication authentication = getAuthentication();
+        PermissoesAutenticacao atuais = permissoesAutenticacao;
+
+        if (atuais == null || atuais.authentication != authentication) {
+            atuais = new PermissoesAutenticacao(authentication,
+                    PermissoesUsuario.de(authentication == null ? null : authentication.getAuthorities()));
+            permissoesAutenticacao = atuais;
+        }
+
+        return atuais.permissoes;
+    }
+
+    /**
+     * Permissões montadas e a autenticação de onde vieram (trocadas juntas, pois
+     * requisições simultâneas da sessão leem o mesmo bean).
+     */
+    private static final class PermissoesAutenticacao {
+
+        private final Authentication authentication;
+
+        private final PermissoesUsuario permissoes;
+
+        PermissoesAutenticacao(Authentication authentication, PermissoesUsuario permissoes) {
+            this.authentication = authentication;
+            this.permissoes = permissoes;
+        }
+    }
+
 }
@@ -100,14 +100,17 @@ public class EntidadeBeanView extends BeanManagedViewAbstract {
 	}
 
 	public void updateSenha() throws Exception {
-		Entidade entidadeLogada = contextoBean.getEntidadeLogada();
+		// A entidade da sessão é uma cópia para leitura: a troca de senha é feita
+		// sobre o registro carregado do banco nesta requisição
+		Entidade entidadeLogada = entidadeController.findPorId(getClassImplement(),
+				contextoBean.getEntidadeLogada().getEnt_codigo());
 
 		String senhaAtual = entidadeAtualizaSenhaBean.getSenhaAtual();
 		String novaSenha = entidadeAtualizaSenhaBean.getNovaSenha();
 		String confirmaSenha = entidadeAtualizaSenhaBean.getConfirmaSenha();
 
-		// Verifica se a senha atual confere com a do usuário logado
-		if (!senhaAtual.equals(entidadeLogada.getEnt_senha())) {
+		// Verifica se a senha atual confere com a do usuário logado (hash gravado)
+		if (!entidadeController.senhaConfere(entidadeLogada, senhaAtual)) {
 			addMsg("Senha atual inválida.");
 			return;
 		}
@@ -124,14 +127,15 @@ public class EntidadeBeanView extends BeanManagedViewAbstract {
 			return;
 		}
 
-		// Atualiza e persiste a nova senha
+		// Atualiza e persiste a nova senha (o controller grava o hash)
 		entidadeLogada.setEnt_senha(novaSenha);
 		entidadeController.saveOrUpdate(entidadeLogada);
+		entidadeController.flush(); // a falha da gravação tem que chegar antes da confirmação abaixo
 
 		// Revalida se a senha foi realmente atualizada
 		Entidade entidadeAtualizada = entidadeController.findPorId(getClassImplement(), entidadeLogada.getEnt_codigo());
 
-		if (entidadeAtualizada.getEnt_senha().equals(novaSenha)) {
+		if (entidadeController.senhaConfere(entidadeAtualizada, novaSenha)) {
 			sucesso();
 		} else {
 			addMsg("Não foi possível atualizar a senha. Tente novamente ou contate o suporte.");
@@ -3,7 +3,6 @@ package br.com.project.bean.view;
 // Importações principais para o funcionamento do Bean JSF e Spring
 import javax.faces.bean.ManagedBean; // Para usar como Managed Bean no JSF
 
-import org.primefaces.model.StreamedContent;
 import org.springframework.beans.factory.annotation.Autowired; // Injeção automática de dependência Spring
 import org.springframework.context.annotation.Scope; // Para definir escopo do Bean
 import org.springframework.stereotype.Controller; // Para marcar como Controller Spring
@@ -14,6 +13,8 @@ import br.com.project.been.geral.BeanManagedViewAbstract;
 import br.com.project.carregamento.lazy.CarregamentoLazyListForObject;
 import br.com.project.geral.controller.EntidadeController;
 import br.com.project.model.classes.Entidade;
+import br.com.project.report.util.DataSourceRelatorioHibernate;
+import net.sf.jasperreports.engine.JRDataSource;
 
 /**
  * Classe FuncionarioBeanView - Bean de Visão para manipular dados de
@@ -48,6 +49,12 @@ public class FuncionarioBeanView extends BeanManagedViewAbstract {
 	private String url = "/cadastro/cad_funcionario.jsf?faces-redirect=true";
 	private String urlFind = "/cadastro/find_funcionario.jsf?faces-redirect=true";
 
+	// Modelo e nome do arquivo do relatório de funcionários
+	public FuncionarioBeanView() {
+		super.setNomeRelatorioJasper("report_funcionario");
+		super.setNomeRelatorioSaida("report_funcionario");
+	}
+
 	// Contexto da sessão do usuário, injetado automaticamente pelo Spring
 	@Autowired
 	private ContextoBean contextoBean;
@@ -116,9 +123,9 @@ public class FuncionarioBeanView extends BeanManagedViewAbstract {
 
 		list.clean(); // limpa lista para recarregar dados
 
-		// Atualiza total de registros para paginação, usando query montada na
-		// superclasse
-		list.setTotalRegistroConsulta(super.totalRegistroConsulta(), super.getSqlLazyQuery());
+		// Atualiza total de registros e configura a paginação por chave, usando
+		// query montada na superclasse
+		super.configurarConsultaPorChave(list);
 	}
 
 	/**
@@ -141,6 +148,7 @@ public class FuncionarioBeanView extends BeanManagedViewAbstract {
 
 		if (objetoSelecionado.getEnt_codigo() != null && objetoSelecionado.getEnt_codigo() > 0) {
 			entidadeController.delete(objetoSelecionado); // exclui no banco
+			entidadeController.flush(); // envia o delete já, para a violação de FK não passar como sucesso
 			list.remove(objetoSelecionado); // remove da lista da tela
 			objetoSelecionado = new Entidade(); // limpa seleção
 			sucesso(); // mensagem sucesso para usuário
@@ -157,6 +165,7 @@ public class FuncionarioBeanView extends BeanManagedViewAbstract {
 
 		if (objetoSelecionado.getEnt_codigo() != null && objetoSelecionado.getEnt_codigo() > 0) {
 			entidadeController.inativar(objetoSelecionado); // marca como inativo no banco
+			entidadeController.flush(); // envia já, para um erro não passar como sucesso
 			list.remove(objetoSelecionado); // remove da lista da tela
 			objetoSelecionado = new Entidade(); // limpa seleção
 			sucesso(); // mensagem sucesso para usuário
@@ -192,6 +201,7 @@ public class FuncionarioBeanView extends BeanManagedViewAbstract {
 		} else {
 
 			objetoSelecionado = entidadeController.merge(objetoSelecionado);
+			entidadeController.flush(); // envia já: erro de gravação vira mensagem de erro, não de sucesso
 
 			list.add(objetoSelecionado);
 
@@ -206,6 +216,7 @@ public class FuncionarioBeanView extends BeanManagedViewAbstract {
 	public void saveEdit() throws Exception {
 
 		objetoSelecionado = entidadeController.merge(objetoSelecionado);
+		entidadeController.flush(); // envia já: erro de gravação vira mensagem de erro, não de sucesso
 
 		list.add(objetoSelecionado);
 
@@ -222,17 +233,12 @@ public class FuncionarioBeanView extends BeanManagedViewAbstract {
 	}
 
 	@Override
-	public StreamedContent getArquivoReport() {
-
-		super.setNomeRelatorioJasper("report_funcionario");
-		super.setNomeRelatorioSaida("report_funcionario");
-		try {
-			super.setListDataBeanCollectionReport(entidadeController.findList(getClassImplement()));
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		return super.getArquivoReport();
+	protected JRDataSource criarDataSourceRelatorio() throws Exception {
+		// Lê os registros por cursor em vez de carregar a tabela inteira com findList;
+		// a contagem alimenta o progresso do relatório em segundo plano
+		String entidade = getClassImplement().getSimpleName();
+		return DataSourceRelatorioHibernate.abrir(" from " + entidade + " entity order by entity.ent_nomefantasia",
+				" select count(entity) from " + entidade + " entity");
 	}
 
 }
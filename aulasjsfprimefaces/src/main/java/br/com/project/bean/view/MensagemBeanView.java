@@ -91,6 +91,7 @@ public class MensagemBeanView extends BeanManagedViewAbstract {
 		}
 
 		mensagemController.merge(objetoSelecionado);
+		mensagemController.flush(); // envia já, para um erro não passar como "enviada com sucesso"
 		novo();
 		addMsg("Mensagem enviada com sucesso!");
 	}
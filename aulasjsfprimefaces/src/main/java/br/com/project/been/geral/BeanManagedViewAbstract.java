@@ -1,21 +1,21 @@
 package br.com.project.been.geral;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import javax.faces.model.SelectItem;
 
-import org.hibernate.Query;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import br.com.framwork.implementacao.crud.ConsultaParametrizada;
 import br.com.framwork.interfac.crud.InterfaceCrud;
-import br.com.project.annotation.IdentificaCampoPesquisa;
+import br.com.project.carregamento.lazy.CarregamentoLazyListForObject;
 import br.com.project.enums.CondicaoPesquisa;
 import br.com.project.report.util.BeanReportView;
 import br.com.project.util.all.UtilitariaRegex;
+import br.com.srv.interfaces.SrvContagemRegistro;
 
 /**
  * Classe abstrata base para Beans de visualização. Fornece funcionalidades
@@ -46,6 +46,10 @@ public abstract class BeanManagedViewAbstract extends BeanReportView {
      */
     protected abstract InterfaceCrud<?> getController();
 
+    // Contagem de registros das consultas em segundo plano e com cache
+    @Autowired
+    private SrvContagemRegistro srvContagemRegistro;
+
     // Valor digitado pelo usuário para consulta
     public String valorPesquisa;
 
@@ -53,8 +57,8 @@ public abstract class BeanManagedViewAbstract extends BeanReportView {
     // ATRIBUTOS E MÉTODOS RELACIONADOS À CONDIÇÃO DE PESQUISA
     // *******************************************************************************************************************************
 
-    // Lista das condições de pesquisa disponíveis (Ex: IGUAL_A, CONTEM, etc)
-    public List<SelectItem> listaCondicaoPesquisa;
+    // Lista das condições de pesquisa disponíveis (Ex: IGUAL_A, CONTEM, etc), igual para todas as telas
+    private static final List<SelectItem> listaCondicaoPesquisa = criarListaCondicaoPesquisa();
 
     // Condição de pesquisa selecionada pelo usuário
     public CondicaoPesquisa condicaoPesquisaSelecionado;
@@ -63,13 +67,17 @@ public abstract class BeanManagedViewAbstract extends BeanReportView {
      * Retorna a lista de condições de pesquisa disponíveis (ex: igual, contém, etc.)
      */
     public List<SelectItem> getListaCondicaoPesquisa() {
-        listaCondicaoPesquisa = new ArrayList<SelectItem>();
+        return listaCondicaoPesquisa;
+    }
+
+    private static List<SelectItem> criarListaCondicaoPesquisa() {
+        List<SelectItem> lista = new ArrayList<SelectItem>();
 
         for (CondicaoPesquisa condicaoPesquisa : CondicaoPesquisa.values()) {
-            listaCondicaoPesquisa.add(new SelectItem(condicaoPesquisa, condicaoPesquisa.toString()));
+            lista.add(new SelectItem(condicaoPesquisa, condicaoPesquisa.toString()));
         }
 
-        return listaCondicaoPesquisa;
+        return Collections.unmodifiableList(lista);
     }
 
     public CondicaoPesquisa getCondicaoPesquisaSelecionado() {
@@ -104,24 +112,16 @@ public abstract class BeanManagedViewAbstract extends BeanReportView {
 
     /**
      * Define o campo selecionado para pesquisa com base na anotação da entidade.
+     * Usa o descritor já montado pelo RegistroCampoPesquisa (sem reflexão).
      */
     public void setObjetoCampoConsultaSelecionado(ObjetoCampoConsulta objetoCampoConsultaSelecionado) {
 
         if (objetoCampoConsultaSelecionado != null) {
-            for (Field field : getClassImplement().getDeclaredFields()) {
-                if (field.isAnnotationPresent(IdentificaCampoPesquisa.class)) {
-                    if (objetoCampoConsultaSelecionado.getCampoBanco().equalsIgnoreCase(field.getName())) {
-
-                        // Define a descrição e tipo do campo consultado com base na anotação
-                        String descricaoCampo = field.getAnnotation(IdentificaCampoPesquisa.class).descricaoCampo();
+            ObjetoCampoConsulta descritor = RegistroCampoPesquisa.buscarCampo(getClassImplement(),
+                    objetoCampoConsultaSelecionado.getCampoBanco());
 
-                        objetoCampoConsultaSelecionado.setDescricao(descricaoCampo);
-                        objetoCampoConsultaSelecionado.setTipoClass(field.getType().getCanonicalName());
-                        objetoCampoConsultaSelecionado.setPrincipal(field.getAnnotation(IdentificaCampoPesquisa.class).principal());
-
-                        break;
-                    }
-                }
+            if (descritor != null) {
+                objetoCampoConsultaSelecionado = descritor;
             }
         }
 
@@ -132,57 +132,13 @@ public abstract class BeanManagedViewAbstract extends BeanReportView {
     // MÉTODO PARA GERAR DINAMICAMENTE OS CAMPOS DE PESQUISA A PARTIR DAS ANOTAÇÕES NAS ENTIDADES
     // *******************************************************************************************************************************
 
-    // Lista de campos de pesquisa disponíveis
-    List<SelectItem> listaCampoPesquisa;
-
     /**
-     * Gera dinamicamente os campos da entidade anotados com @IdentificaCampoPesquisa.
-     * Esses campos são usados como opções de pesquisa na interface.
+     * Retorna os campos da entidade anotados com @IdentificaCampoPesquisa, já
+     * ordenados pela prioridade (principal = 1 primeiro). A lista é montada uma
+     * única vez por entidade no RegistroCampoPesquisa e é somente leitura.
      */
     public List<SelectItem> getListaCampoPesquisa() {
-
-        listaCampoPesquisa = new ArrayList<SelectItem>();
-        List<ObjetoCampoConsulta> listaTemporaria = new ArrayList<ObjetoCampoConsulta>();
-
-        for (Field field : getClassImplement().getDeclaredFields()) {
-
-            if (field.isAnnotationPresent(IdentificaCampoPesquisa.class)) {
-
-                String descricao = field.getAnnotation(IdentificaCampoPesquisa.class).descricaoCampo();
-                String campoPesquisa = field.getAnnotation(IdentificaCampoPesquisa.class).campoConsulta();
-                int isPrincipal = field.getAnnotation(IdentificaCampoPesquisa.class).principal();
-
-                ObjetoCampoConsulta objetoCampoConsulta = new ObjetoCampoConsulta();
-                objetoCampoConsulta.setDescricao(descricao);
-                objetoCampoConsulta.setCampoBanco(campoPesquisa);
-                objetoCampoConsulta.setPrincipal(isPrincipal);
-                objetoCampoConsulta.setTipoClass(field.getType().getCanonicalName());
-
-                listaTemporaria.add(objetoCampoConsulta);
-            }
-        }
-
-        // Ordena os campos pela flag principal (prioridade)
-        orderReverse(listaTemporaria);
-
-        for (ObjetoCampoConsulta objetoCampoConsulta : listaTemporaria) {
-            listaCampoPesquisa.add(new SelectItem(objetoCampoConsulta));
-        }
-
-        return listaCampoPesquisa;
-    }
-
-    /**
-     * Ordena os campos de pesquisa por prioridade.
-     * Campos com principal = 1 aparecem primeiro.
-     */
-    private void orderReverse(List<ObjetoCampoConsulta> listaTemporaria) {
-        Collections.sort(listaTemporaria, new Comparator<ObjetoCampoConsulta>() {
-            @Override
-            public int compare(ObjetoCampoConsulta o1, ObjetoCampoConsulta o2) {
-                return o1.getPrincipal().compareTo(o2.getPrincipal());
-            }
-        });
+        return RegistroCampoPesquisa.getListaCampoPesquisa(getClassImplement());
     }
 
     // *******************************************************************************************************************************
@@ -190,67 +146,36 @@ public abstract class BeanManagedViewAbstract extends BeanReportView {
     // *******************************************************************************************************************************
 
     /**
-     * Gera o SQL usado para fazer a consulta paginada (LazyDataModel, por exemplo).
+     * Configura a lista lazy para paginação por chave (keyset): cláusula FROM +
+     * WHERE da pesquisa, ordenada pelo campo selecionado. O valor pesquisado vai
+     * como parâmetro nomeado, não concatenado na HQL. O id da entidade entra como desempate para a ordenação ser estável.
+     * A contagem total é feita em segundo plano pelo SrvContagemRegistro, então
+     * a primeira página aparece sem esperar o "select count".
      */
-    public String getSqlLazyQuery() throws Exception {
-        StringBuilder sql = new StringBuilder();
-        sql.append(" Select entity from  ");
-        sql.append(getQueryConsulta());
-        sql.append(" order by entity.");
-        sql.append(objetoCampoConsultaSelecionado.getCampoBanco());
-
-        return sql.toString();
+    public void configurarConsultaPorChave(CarregamentoLazyListForObject<?> list) throws Exception {
+        ConsultaParametrizada<?> consulta = getConsultaPesquisa();
+
+        list.setConsultaPorChave(
+                srvContagemRegistro.contar(getClassImplement(), consulta.getHqlContagem(), consulta.getParametros()),
+                consulta.getHqlFromWhere(), consulta.getParametros(), objetoCampoConsultaSelecionado.getCampoBanco(),
+                getController().getNomeCampoId(getClassImplement()));
     }
 
     /**
-     * Gera o SQL base da cláusula FROM + WHERE + filtro com retira_acentos().
+     * Gera a cláusula FROM + WHERE com o filtro retira_acentos() e a condição AND adicional.
+     * Quando o campo possui coluna normalizada, o filtro é feito direto nela (indexada).
      */
-    private Object getQueryConsulta() throws Exception {
+    private ConsultaParametrizada<?> getConsultaPesquisa() throws Exception {
 
         valorPesquisa = new UtilitariaRegex().retiraAcentos(valorPesquisa);
 
-        StringBuilder sql = new StringBuilder();
-        sql.append(getClassImplement().getSimpleName());
-        sql.append(" entity where ");
-        sql.append(" retira_acentos(upper(cast(entity.");
-        sql.append(objetoCampoConsultaSelecionado.getCampoBanco());
-        sql.append(" as text))) ");
-
-        // Aplica a condição de pesquisa selecionada
-        if (condicaoPesquisaSelecionado.name().equals(CondicaoPesquisa.IGUAL_A.name())) {
-            sql.append(" = retira_acentos(upper('");
-            sql.append(valorPesquisa);
-            sql.append("'))");
-
-        } else if (condicaoPesquisaSelecionado.name().equals(CondicaoPesquisa.CONTEM.name())) {
-            sql.append(" like retira_acentos(upper('%");
-            sql.append(valorPesquisa);
-            sql.append("%'))");
-
-        } else if (condicaoPesquisaSelecionado.name().equals(CondicaoPesquisa.TERMINA_COM.name())) {
-            sql.append(" like retira_acentos(upper('%");
-            sql.append(valorPesquisa);
-            sql.append("'))");
-
-        } else if (condicaoPesquisaSelecionado.name().equals(CondicaoPesquisa.INICIA.name())) {
-            sql.append(" like retira_acentos(upper('");
-            sql.append(valorPesquisa);
-            sql.append("%'))");
-        }
-
-        // Adiciona cláusula AND adicional
-        sql.append(" ");
-        sql.append(condicaoAndParaPesquisa());
-
-        return sql.toString();
+        return novaConsulta(getClassImplement())
+                .pesquisa(objetoCampoConsultaSelecionado.getCampoBanco(),
+                        objetoCampoConsultaSelecionado.getCampoNormalizado(), condicaoPesquisaSelecionado, valorPesquisa)
+                .restricao(condicaoAndParaPesquisa());
     }
 
-    /**
-     * Executa a contagem total de registros para a consulta atual.
-     */
-    public int totalRegistroConsulta() throws Exception {
-        Query query = getController().obterQuery(" select count(entity) from   " + getQueryConsulta());
-        Number resultado = (Number) query.uniqueResult();
-        return resultado.intValue();
+    private <E> ConsultaParametrizada<E> novaConsulta(Class<E> entidade) {
+        return new ConsultaParametrizada<E>(entidade);
     }
-} 
+}
@@ -27,12 +27,40 @@ public class ObjetoCampoConsulta implements Serializable, Comparator<ObjetoCampo
     // Nome do campo no banco de dados (exemplo: "cid_nome")
     private String campoBanco;
 
+    // Coluna sombra normalizada usada no filtro (vazio quando o campo não possui)
+    private String campoNormalizado;
+
     // Tipo do campo, pode ser uma Class (ex: String.class) ou nome do tipo (ex: "java.lang.String")
     private Object tipoClass;
 
     // Prioridade do campo para ordenação, menor valor = maior prioridade (ex: 1 = principal)
     private Integer principal;
 
+    // Descritores do RegistroCampoPesquisa são compartilhados entre sessões e não podem ser alterados
+    private final boolean imutavel;
+
+    //-------------------------------------------------------------------------------------------------------------------------//
+
+    /**
+     * Cria um objeto alterável (usado pelo conversor JSF).
+     */
+    public ObjetoCampoConsulta() {
+        this.imutavel = false;
+    }
+
+    /**
+     * Cria um descritor imutável, montado uma única vez pelo RegistroCampoPesquisa.
+     */
+    ObjetoCampoConsulta(String descricao, String campoBanco, String campoNormalizado, Object tipoClass,
+            Integer principal) {
+        this.descricao = descricao;
+        this.campoBanco = campoBanco;
+        this.campoNormalizado = campoNormalizado;
+        this.tipoClass = tipoClass;
+        this.principal = principal;
+        this.imutavel = true;
+    }
+
     //-------------------------------------------------------------------------------------------------------------------------//
 
     /**
@@ -67,6 +95,7 @@ public class ObjetoCampoConsulta implements Serializable, Comparator<ObjetoCampo
     }
 
     public void setDescricao(String descricao) {
+        verificarAlteracao();
         this.descricao = descricao;
     }
 
@@ -75,14 +104,25 @@ public class ObjetoCampoConsulta implements Serializable, Comparator<ObjetoCampo
     }
 
     public void setCampoBanco(String campoBanco) {
+        verificarAlteracao();
         this.campoBanco = campoBanco;
     }
 
+    public String getCampoNormalizado() {
+        return campoNormalizado;
+    }
+
+    public void setCampoNormalizado(String campoNormalizado) {
+        verificarAlteracao();
+        this.campoNormalizado = campoNormalizado;
+    }
+
     public Object getTipoClass() {
         return tipoClass;
     }
 
     public void setTipoClass(Object tipoClass) {
+        verificarAlteracao();
         this.tipoClass = tipoClass;
     }
 
@@ -91,9 +131,16 @@ public class ObjetoCampoConsulta implements Serializable, Comparator<ObjetoCampo
     }
 
     public void setPrincipal(Integer principal) {
+        verificarAlteracao();
         this.principal = principal;
     }
 
+    private void verificarAlteracao() {
+        if (imutavel) {
+            throw new UnsupportedOperationException("Descritor de campo de pesquisa compartilhado não pode ser alterado");
+        }
+    }
+
     //-------------------------------------------------------------------------------------------------------------------------//
 
     /**
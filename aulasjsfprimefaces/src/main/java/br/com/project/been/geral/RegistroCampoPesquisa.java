@@ -0,0 +1,136 @@
+package br.com.project.been.geral;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.model.SelectItem;
+
+import br.com.project.annotation.IdentificaCampoPesquisa;
+
+/**
+ * Registro dos campos de pesquisa (@IdentificaCampoPesquisa) de cada entidade.
+ *
+ * A reflexão sobre os campos é feita uma única vez por classe (na inicialização,
+ * por {@link #preCarregar(Class)}, ou no primeiro acesso). Depois disso as telas
+ * de pesquisa recebem sempre as mesmas listas, já ordenadas e somente leitura,
+ * em vez de percorrer getDeclaredFields() a cada chamada de getter do JSF.
+ */
+public final class RegistroCampoPesquisa {
+
+	// Entidade -> metadados dos campos de pesquisa
+	private static final ConcurrentMap<Class<?>, CamposPesquisa> registro = new ConcurrentHashMap<Class<?>, CamposPesquisa>();
+
+	private RegistroCampoPesquisa() {
+	}
+
+	/**
+	 * Lê as anotações da entidade e guarda o resultado. Chamado na inicialização
+	 * da aplicação para as entidades mapeadas.
+	 */
+	public static void preCarregar(Class<?> entidade) {
+		getCamposPesquisa(entidade);
+	}
+
+	/**
+	 * @return descritores dos campos de pesquisa, ordenados por prioridade (somente leitura).
+	 */
+	public static List<ObjetoCampoConsulta> getCampos(Class<?> entidade) {
+		return getCamposPesquisa(entidade).campos;
+	}
+
+	/**
+	 * @return opções do selectOneMenu de campos de pesquisa (somente leitura).
+	 */
+	public static List<SelectItem> getListaCampoPesquisa(Class<?> entidade) {
+		return getCamposPesquisa(entidade).itens;
+	}
+
+	/**
+	 * Busca o descritor pelo campo de consulta (ex: "estado.est_nome") ou pelo
+	 * nome do atributo (ex: "estado"), sem diferenciar maiúsculas.
+	 *
+	 * @return descritor compartilhado ou null quando o campo não é pesquisável.
+	 */
+	public static ObjetoCampoConsulta buscarCampo(Class<?> entidade, String campo) {
+		if (campo == null) {
+			return null;
+		}
+		return getCamposPesquisa(entidade).porCampo.get(campo.toLowerCase());
+	}
+
+	private static CamposPesquisa getCamposPesquisa(Class<?> entidade) {
+
+		CamposPesquisa camposPesquisa = registro.get(entidade);
+
+		if (camposPesquisa == null) {
+			CamposPesquisa novo = new CamposPesquisa(entidade);
+			camposPesquisa = registro.putIfAbsent(entidade, novo);
+			if (camposPesquisa == null) {
+				camposPesquisa = novo;
+			}
+		}
+
+		return camposPesquisa;
+	}
+
+	/**
+	 * Metadados montados uma única vez por entidade.
+	 */
+	private static final class CamposPesquisa {
+
+		private final List<ObjetoCampoConsulta> campos;
+
+		private final List<SelectItem> itens;
+
+		private final Map<String, ObjetoCampoConsulta> porCampo;
+
+		CamposPesquisa(Class<?> entidade) {
+
+			List<ObjetoCampoConsulta> listaTemporaria = new ArrayList<ObjetoCampoConsulta>();
+			Map<String, ObjetoCampoConsulta> mapa = new HashMap<String, ObjetoCampoConsulta>();
+
+			for (Field field : entidade.getDeclaredFields()) {
+
+				IdentificaCampoPesquisa anotacao = field.getAnnotation(IdentificaCampoPesquisa.class);
+
+				if (anotacao != null) {
+
+					ObjetoCampoConsulta objetoCampoConsulta = new ObjetoCampoConsulta(anotacao.descricaoCampo(),
+							anotacao.campoConsulta(), anotacao.campoNormalizado(), field.getType().getCanonicalName(),
+							anotacao.principal());
+
+					listaTemporaria.add(objetoCampoConsulta);
+
+					mapa.put(field.getName().toLowerCase(), objetoCampoConsulta);
+					mapa.put(anotacao.campoConsulta().toLowerCase(), objetoCampoConsulta);
+				}
+			}
+
+			// Campos com principal = 1 aparecem primeiro
+			Collections.sort(listaTemporaria, new Comparator<ObjetoCampoConsulta>() {
+				@Override
+				public int compare(ObjetoCampoConsulta o1, ObjetoCampoConsulta o2) {
+					return o1.getPrincipal().compareTo(o2.getPrincipal());
+				}
+			});
+
+			List<SelectItem> listaItens = new ArrayList<SelectItem>(listaTemporaria.size());
+
+			for (ObjetoCampoConsulta objetoCampoConsulta : listaTemporaria) {
+				listaItens.add(new SelectItem(objetoCampoConsulta));
+			}
+
+			this.campos = Collections.unmodifiableList(listaTemporaria);
+			this.itens = Collections.unmodifiableList(listaItens);
+			this.porCampo = Collections.unmodifiableMap(mapa);
+		}
+	}
+
+}
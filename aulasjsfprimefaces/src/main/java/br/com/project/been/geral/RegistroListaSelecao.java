@@ -0,0 +1,210 @@
+package br.com.project.been.geral;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.model.SelectItem;
+
+import org.hibernate.Session;
+
+import br.com.framwork.hibernate.session.HibernateUtil;
+
+/**
+ * Registro, compartilhado por toda a aplicação, das listas de seleção
+ * (selectOneMenu) das entidades de referência.
+ *
+ * Cada entidade registra uma única vez a consulta HQL, o rótulo e o valor dos
+ * itens ({@link #registrar(Class, String, Rotulo, Valor)}). A lista de SelectItem é montada
+ * no primeiro acesso e reaproveitada por todas as sessões e por todas as
+ * avaliações de EL da tela, até que o ImplementacaoCrud grave a entidade e
+ * chame {@link #invalidar(Class)}; o próximo acesso monta a lista de novo.
+ *
+ * Os objetos da consulta não vão para a lista: a sessão que os carregou é
+ * fechada logo em seguida, e uma coleção lazy acessada depois (em outra sessão
+ * ou thread) lançaria LazyInitializationException. O valor de cada item vem de
+ * {@link Valor}: o id ou uma cópia só com os campos simples, sem associações
+ * lazy.
+ *
+ * Exemplo de uso (no controller da entidade):
+ * <pre>
+ * RegistroListaSelecao.registrar(Estado.class, " from Estado order by est_nome",
+ *         new RegistroListaSelecao.Rotulo&lt;Estado&gt;() {
+ *             public String getRotulo(Estado estado) {
+ *                 return estado.getEst_nome();
+ *             }
+ *         }, new RegistroListaSelecao.Valor&lt;Estado&gt;() {
+ *             public Object getValor(Estado estado) {
+ *                 return copiaParaSelecao(estado);
+ *             }
+ *         });
+ * List&lt;SelectItem&gt; itens = RegistroListaSelecao.getItens(Estado.class);
+ * </pre>
+ */
+public final class RegistroListaSelecao {
+
+	// Entidade -> definição e itens montados
+	private static final ConcurrentMap<Class<?>, ListaSelecao<?>> registro = new ConcurrentHashMap<Class<?>, ListaSelecao<?>>();
+
+	private RegistroListaSelecao() {
+	}
+
+	/**
+	 * Texto exibido para cada objeto da lista.
+	 */
+	public interface Rotulo<E> {
+		String getRotulo(E objeto);
+	}
+
+	/**
+	 * Valor guardado no SelectItem, compartilhado por todas as sessões e
+	 * threads: o id ou uma cópia desvinculada de sessão, nunca o próprio
+	 * objeto carregado.
+	 */
+	public interface Valor<E> {
+		Object getValor(E objeto);
+	}
+
+	/**
+	 * Registra a lista de seleção da entidade. Chamadas repetidas para a mesma
+	 * entidade mantêm o primeiro registro.
+	 *
+	 * @param entidade classe mapeada no Hibernate
+	 * @param hql      consulta que retorna os objetos da lista, já ordenada
+	 * @param rotulo   texto exibido para cada objeto
+	 * @param valor    valor do item (id ou cópia sem associações lazy)
+	 */
+	public static <E> void registrar(Class<E> entidade, String hql, Rotulo<E> rotulo, Valor<E> valor) {
+		registro.putIfAbsent(entidade, new ListaSelecao<E>(hql, rotulo, valor));
+	}
+
+	/**
+	 * @return true quando a entidade já possui lista registrada.
+	 */
+	public static boolean isRegistrada(Class<?> entidade) {
+		return registro.containsKey(entidade);
+	}
+
+	/**
+	 * @return itens da lista de seleção da entidade (somente leitura, compartilhados).
+	 * @throws Exception quando a entidade não foi registrada ou a consulta falhar.
+	 */
+	public static List<SelectItem> getItens(Class<?> entidade) throws Exception {
+
+		ListaSelecao<?> listaSelecao = registro.get(entidade);
+
+		if (listaSelecao == null) {
+			throw new Exception("Lista de seleção não registrada para " + entidade.getSimpleName());
+		}
+
+		return listaSelecao.getItens();
+	}
+
+	/**
+	 * Descarta os itens montados da entidade; a próxima leitura consulta o banco
+	 * (ou o cache de segundo nível) de novo.
+	 */
+	public static void invalidar(Class<?> entidade) {
+
+		ListaSelecao<?> listaSelecao = registro.get(entidade);
+
+		if (listaSelecao != null) {
+			listaSelecao.invalidar();
+		}
+	}
+
+	/**
+	 * Descarta os itens de todas as entidades (updates em massa por HQL/SQL).
+	 */
+	public static void invalidarTodas() {
+		for (ListaSelecao<?> listaSelecao : registro.values()) {
+			listaSelecao.invalidar();
+		}
+	}
+
+	/**
+	 * Definição e itens da lista de uma entidade.
+	 */
+	private static final class ListaSelecao<E> {
+
+		private final String hql;
+
+		private final Rotulo<E> rotulo;
+
+		private final Valor<E> valor;
+
+		// null quando precisa ser montada de novo
+		private volatile List<SelectItem> itens;
+
+		// Incrementada a cada invalidação; uma montagem iniciada antes de uma
+		// invalidação não publica o resultado (já pode estar desatualizado)
+		private long versao;
+
+		ListaSelecao(String hql, Rotulo<E> rotulo, Valor<E> valor) {
+			this.hql = hql;
+			this.rotulo = rotulo;
+			this.valor = valor;
+		}
+
+		List<SelectItem> getItens() throws SQLException {
+
+			List<SelectItem> atual = itens;
+
+			if (atual != null) {
+				return atual;
+			}
+
+			long versaoInicial;
+			synchronized (this) {
+				versaoInicial = versao;
+			}
+
+			List<SelectItem> novos = montar();
+
+			synchronized (this) {
+				if (versao == versaoInicial) {
+					itens = novos;
+				}
+			}
+
+			return novos;
+		}
+
+		synchronized void invalidar() {
+			versao++;
+			itens = null;
+		}
+
+		/**
+		 * Executa a consulta numa Session própria somente leitura (com cache de
+		 * consulta), para não depender da transação nem do FlushMode da requisição.
+		 * Usa sempre o banco principal: a lista fica em cache e não pode guardar o
+		 * atraso de uma réplica.
+		 */
+		@SuppressWarnings("unchecked")
+		private List<SelectItem> montar() throws SQLException {
+
+			Session session = HibernateUtil.openSessionSomenteLeitura(false);
+
+			try {
+				List<E> objetos = session.createQuery(hql).setCacheable(true)
+						.setCacheRegion(HibernateUtil.REGIAO_CACHE_REFERENCIA).list();
+
+				List<SelectItem> lista = new ArrayList<SelectItem>(objetos.size());
+
+				for (E objeto : objetos) {
+					lista.add(new SelectItem(valor.getValor(objeto), rotulo.getRotulo(objeto)));
+				}
+
+				return Collections.unmodifiableList(lista);
+
+			} finally {
+				HibernateUtil.fecharSessionSomenteLeitura(session);
+			}
+		}
+	}
+
+}
@@ -1,8 +1,11 @@
 package br.com.project.carregamento.lazy;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 import org.primefaces.model.LazyDataModel;
 import org.primefaces.model.SortOrder;
@@ -14,6 +17,12 @@ import br.com.project.listener.ContextLoaderListenerECSRUtils;
  * Classe genérica que estende LazyDataModel do PrimeFaces para permitir
  * carregamento de dados de forma paginada (lazy loading) em componentes como p:dataTable.
  *
+ * A paginação é por chave (keyset/seek): guarda o valor da coluna de ordenação
+ * e o id da última linha de cada página e busca a próxima com
+ * "where campo > :ultimo", mantendo o custo constante em qualquer página.
+ * A consulta é configurada por setConsultaPorChave(). A ordenação escolhida no
+ * cabeçalho da tabela (sortBy) troca a coluna e o sentido da chave.
+ *
  * @param <T> Tipo de entidade a ser carregada na tabela.
  */
 public class CarregamentoLazyListForObject<T> extends LazyDataModel<T> {
@@ -26,8 +35,34 @@ public class CarregamentoLazyListForObject<T> extends LazyDataModel<T> {
 	// Total de registros disponíveis para a consulta
 	private int totalRegistroConsulta = 0;
 
-	// Query dinâmica (JPQL ou HQL) utilizada para buscar os dados no banco
-	private String query = null;
+	// Nome de atributo aceito como coluna de ordenação vinda da tabela (ex: "estado.est_nome")
+	private static final Pattern CAMPO_VALIDO = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+
+	// Paginação por chave: parte "from ... where ..." da consulta (sem select e sem order by)
+	private String queryFromWhere = null;
+
+	// Paginação por chave: parâmetros nomeados da parte "from ... where ..."
+	private Map<String, Object> parametrosConsulta = new HashMap<String, Object>();
+
+	// Paginação por chave: coluna de ordenação padrão da consulta (ex: "cid_descricao", "estado.est_nome")
+	private String campoOrdenacao = null;
+
+	// Ordenação das chaves guardadas (a padrão ou a escolhida na tabela)
+	private String campoOrdenacaoChaves = null;
+
+	private boolean descendenteChaves = false;
+
+	// Paginação por chave: atributo @Id da entidade, usado como desempate na ordenação
+	private String campoId = null;
+
+	// Paginação por chave: índice da página -> [valor da ordenação, id] da última linha da página anterior
+	private Map<Integer, Object[]> chavesPaginas = new HashMap<Integer, Object[]>();
+
+	// Tamanho de página usado para calcular as chaves guardadas
+	private int pageSizeChaves = 0;
+
+	// Contagem de registros ainda em andamento em segundo plano (SrvContagemRegistro)
+	private transient Future<Integer> contagemPendente = null;
 
 	// Controller responsável por executar a query. Recuperado do contexto de aplicação.
 	private Controller controller = (Controller) ContextLoaderListenerECSRUtils.getBean(Controller.class);
@@ -38,35 +73,34 @@ public class CarregamentoLazyListForObject<T> extends LazyDataModel<T> {
 	 *
 	 * @param first      índice do primeiro registro da página atual
 	 * @param pageSize   quantidade de registros por página
-	 * @param sortField  campo usado para ordenação (não utilizado nesta versão)
-	 * @param sortOrder  ordem (ascendente ou descendente) (não utilizado)
+	 * @param sortField  campo usado para ordenação (sem ele, o da consulta)
+	 * @param sortOrder  ordem (ascendente ou descendente)
 	 * @param filters    filtros aplicados pela tabela (não utilizado)
-	 * @return lista de objetos da página atual
+	 * @return lista de objetos da página atual (vazia em caso de erro)
 	 */
 	@Override
 	public List<T> load(int first, int pageSize, String sortField, SortOrder sortOrder, Map<String, String> filters) {
-		
+
+		// Define o tamanho da página no modelo
+		setPageSize(pageSize);
+
+		if (queryFromWhere == null || queryFromWhere.isEmpty()) {
+			return list;
+		}
+
 		try {
-			// Verifica se a query foi definida
-			if (query != null && !query.isEmpty()) {
-
-				// Busca a lista de objetos usando a query e parâmetros de paginação
-				list = (List<T>) controller.findListByQueryDinamic(query, first, pageSize);
-
-				// Define o número total de registros da consulta
-				if (totalRegistroConsulta == 0) {
-					setRowCount(0); // Não há registros
-				} else {
-					setRowCount(totalRegistroConsulta); // Total informado
-				}
-			}
+			String campo = sortField != null && CAMPO_VALIDO.matcher(sortField).matches() ? sortField
+					: campoOrdenacao;
 
-			// Define o tamanho da página no modelo
-			setPageSize(pageSize);
+			list = carregarPorChave(first, pageSize, campo, SortOrder.DESCENDING.equals(sortOrder));
+
+			setRowCount(resolverTotalRegistros(first, pageSize));
 
 		} catch (Exception e) {
-			// Em caso de erro, imprime o stack trace para debug
+			// Sem a página anterior na tela: um erro não pode mostrar linhas de outra consulta
 			e.printStackTrace();
+			list = new ArrayList<T>();
+			setRowCount(0);
 		}
 
 		// Retorna a lista carregada para a página atual
@@ -74,15 +108,138 @@ public class CarregamentoLazyListForObject<T> extends LazyDataModel<T> {
 	}
 
 	/**
-	 * Define o total de registros da consulta e a query JPQL/HQL a ser usada.
-	 * Deve ser chamado antes da primeira chamada ao método load().
+	 * Configura a consulta para paginação por chave (keyset). Em vez de
+	 * OFFSET/LIMIT, cada página é buscada a partir da chave da última linha da
+	 * página anterior, o que mantém o tempo de resposta constante.
+	 *
+	 * A contagem total pode ainda estar em andamento: enquanto não termina, a
+	 * tabela recebe um total provisório (registros já vistos + uma página).
+	 *
+	 * @param contagem       contagem total da consulta (pronta ou em andamento)
+	 * @param queryFromWhere parte "from Entidade entity where ..." da consulta
+	 * @param parametros     parâmetros nomeados usados em queryFromWhere
+	 * @param campoOrdenacao coluna de ordenação relativa a "entity"
+	 * @param campoId        atributo @Id da entidade, usado como desempate
+	 */
+	public void setConsultaPorChave(Future<Integer> contagem, String queryFromWhere, Map<String, Object> parametros,
+			String campoOrdenacao, String campoId) {
+		this.totalRegistroConsulta = 0;
+		this.contagemPendente = contagem;
+		this.queryFromWhere = queryFromWhere;
+		this.parametrosConsulta = new HashMap<String, Object>(parametros);
+		this.campoOrdenacao = campoOrdenacao;
+		this.campoId = campoId;
+		this.chavesPaginas.clear();
+		this.pageSizeChaves = 0;
+	}
+
+	/**
+	 * Busca uma página usando a chave da última linha da página anterior.
+	 * 
+	 * Quando o usuário salta direto para uma página cuja chave ainda não é
+	 * conhecida (ex: botão "última página"), faz a busca por OFFSET com a mesma
+	 * ordenação e guarda a chave, para que as páginas seguintes voltem a usar a
+	 * busca por chave.
 	 *
-	 * @param totalRegistroConsulta número total de registros da consulta
-	 * @param queryDeBuscaConsulta  string da query de consulta a ser utilizada
+	 * O Postgres ordena os nulos por último em ordem ascendente e primeiro em
+	 * ordem descendente; as condições da chave seguem essa posição.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<T> carregarPorChave(int first, int pageSize, String campo, boolean descendente) throws Exception {
+
+		// Mudou o tamanho da página ou a ordenação: as chaves guardadas não valem mais
+		if (pageSize != pageSizeChaves || !campo.equals(campoOrdenacaoChaves) || descendente != descendenteChaves) {
+			chavesPaginas.clear();
+			pageSizeChaves = pageSize;
+			campoOrdenacaoChaves = campo;
+			descendenteChaves = descendente;
+		}
+
+		String coluna = "entity." + campo;
+		String id = "entity." + campoId;
+		String maior = descendente ? " < " : " > ";
+		String sentido = descendente ? " desc" : " asc";
+
+		int pagina = pageSize > 0 ? first / pageSize : 0;
+
+		Object[] chave = chavesPaginas.get(pagina);
+
+		Map<String, Object> parametros = new HashMap<String, Object>(parametrosConsulta);
+
+		StringBuilder hql = new StringBuilder();
+		hql.append(" select entity, ").append(coluna).append(", ").append(id);
+		hql.append(" ").append(queryFromWhere);
+
+		int iniciaNoRegistro = 0;
+
+		if (pagina > 0 && chave != null) {
+
+			if (chave[0] == null) {
+				// Ascendente: só restam nulos; descendente: os demais nulos e todos os valores
+				hql.append(" and ((").append(coluna).append(" is null and ").append(id).append(maior)
+						.append(":ultimoId)");
+				hql.append(descendente ? " or " + coluna + " is not null) " : ") ");
+			} else {
+				hql.append(" and (").append(coluna).append(maior).append(":ultimoValor ");
+				hql.append(" or (").append(coluna).append(" = :ultimoValor and ").append(id).append(maior)
+						.append(":ultimoId) ");
+				hql.append(descendente ? ") " : " or " + coluna + " is null) ");
+				parametros.put("ultimoValor", chave[0]);
+			}
+
+			parametros.put("ultimoId", chave[1]);
+
+		} else if (pagina > 0) {
+			iniciaNoRegistro = first;
+		}
+
+		hql.append(" order by ").append(coluna).append(sentido).append(", ").append(id).append(sentido);
+
+		List<Object[]> linhas = controller.findListArrayByQueryDinamic(hql.toString(), parametros,
+				iniciaNoRegistro, pageSize);
+
+		List<T> registros = new ArrayList<T>(linhas.size());
+
+		for (Object[] linha : linhas) {
+			registros.add((T) linha[0]);
+		}
+
+		// Guarda a chave da última linha para a próxima página
+		if (!linhas.isEmpty()) {
+			Object[] ultima = linhas.get(linhas.size() - 1);
+			chavesPaginas.put(pagina + 1, new Object[] { ultima[1], ultima[2] });
+		}
+
+		return registros;
+	}
+
+	/**
+	 * Retorna o total de registros da consulta. Se a contagem em segundo plano
+	 * ainda não terminou, devolve um total provisório que garante a navegação
+	 * para a próxima página quando a página atual veio cheia.
 	 */
-	public void setTotalRegistroConsulta(int totalRegistroConsulta, String queryDeBuscaConsulta) {
-		this.query = queryDeBuscaConsulta;
-		this.totalRegistroConsulta = totalRegistroConsulta;
+	private int resolverTotalRegistros(int first, int pageSize) {
+
+		if (contagemPendente != null && contagemPendente.isDone()) {
+			try {
+				totalRegistroConsulta = contagemPendente.get();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			contagemPendente = null;
+		}
+
+		if (contagemPendente == null) {
+			return totalRegistroConsulta;
+		}
+
+		int provisorio = first + list.size();
+
+		if (list.size() == pageSize) {
+			provisorio += pageSize;
+		}
+
+		return provisorio;
 	}
 
 	public int getTotalRegistroConsulta() {
@@ -103,7 +260,14 @@ public class CarregamentoLazyListForObject<T> extends LazyDataModel<T> {
 	 * e limpando a lista.
 	 */
 	public void clean() {
-		this.query = null;
+		this.queryFromWhere = null;
+		this.parametrosConsulta.clear();
+		this.campoOrdenacao = null;
+		this.campoOrdenacaoChaves = null;
+		this.campoId = null;
+		this.chavesPaginas.clear();
+		this.pageSizeChaves = 0;
+		this.contagemPendente = null;
 		this.totalRegistroConsulta = 0;
 		this.list.clear();
 	}
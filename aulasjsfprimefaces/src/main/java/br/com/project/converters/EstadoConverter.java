@@ -26,7 +26,8 @@ public class EstadoConverter implements Converter, Serializable {
 			// ✅ Converte a String 'codigo' para Long e busca a entidade Estado no banco
 			// usando o Hibernate.
 			// Utiliza a sessão atual aberta pelo Hibernate, que é gerenciada via
-			// OpenSessionInView.
+			// OpenSessionInView. Como Estado está no cache de segundo nível, o get normalmente
+			// é resolvido pelo cache, sem ir ao banco.
 			return (Estado) HibernateUtil.getCurrentSession().get(Estado.class, Long.parseLong(codigo));
 
 		}
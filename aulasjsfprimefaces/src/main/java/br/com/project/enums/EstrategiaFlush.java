@@ -0,0 +1,38 @@
+package br.com.project.enums;
+
+/**
+ * Define quando as alterações feitas pelo ImplementacaoCrud são enviadas ao banco.
+ */
+public enum EstrategiaFlush {
+
+	/** Flush logo após cada save/update/delete/merge (comportamento antigo). */
+	IMEDIATO("Imediato"),
+
+	/**
+	 * Sem flush por operação: o Hibernate envia tudo de uma vez no flush/commit feito
+	 * pelo FilterOpenSessionInView ao final da requisição (ou antes de uma consulta
+	 * que dependa das alterações pendentes, pelo FlushMode.AUTO).
+	 */
+	FIM_REQUISICAO("Fim da requisição"),
+
+	/**
+	 * Sessão em FlushMode.COMMIT: nada é enviado antes do commit ou de uma chamada
+	 * explícita a flush(). Indicado para rotinas que gravam muitos registros.
+	 */
+	LOTE_EXPLICITO("Lote explícito");
+
+	private String descricao;
+
+	private EstrategiaFlush(String descricao) {
+		this.descricao = descricao;
+	}
+
+	public String getDescricao() {
+		return descricao;
+	}
+
+	@Override
+	public String toString() {
+		return this.descricao;
+	}
+}
@@ -0,0 +1,44 @@
+package br.com.project.enums;
+
+/**
+ * Situação de um relatório gerado em segundo plano pelo SrvFilaRelatorio.
+ */
+public enum SituacaoRelatorio {
+
+	/** Na fila, esperando uma thread livre. */
+	AGUARDANDO("Aguardando na fila"),
+
+	/** Lendo os registros e preenchendo as páginas. */
+	PREENCHENDO("Gerando relatório"),
+
+	/** Páginas prontas, gravando o arquivo no formato escolhido. */
+	EXPORTANDO("Exportando arquivo"),
+
+	/** Arquivo pronto para download. */
+	CONCLUIDO("Relatório pronto"),
+
+	/** A geração falhou; ver a mensagem de erro da tarefa. */
+	ERRO("Erro ao gerar relatório");
+
+	private String descricao;
+
+	private SituacaoRelatorio(String descricao) {
+		this.descricao = descricao;
+	}
+
+	public String getDescricao() {
+		return descricao;
+	}
+
+	/**
+	 * @return true enquanto a tarefa ainda não terminou (com sucesso ou erro).
+	 */
+	public boolean isEmAndamento() {
+		return this == AGUARDANDO || this == PREENCHENDO || this == EXPORTANDO;
+	}
+
+	@Override
+	public String toString() {
+		return this.descricao;
+	}
+}
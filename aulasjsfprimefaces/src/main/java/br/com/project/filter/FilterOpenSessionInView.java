@@ -9,26 +9,33 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import org.apache.tomcat.dbcp.dbcp.BasicDataSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.springframework.jdbc.datasource.DataSourceTransactionManager;
-import org.springframework.transaction.PlatformTransactionManager;
-import org.springframework.transaction.TransactionStatus;
-import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.hibernate.context.ThreadLocalSessionContext;
 import org.springframework.web.filter.DelegatingFilterProxy;
 
 import br.com.frameworks.utils.utilFramework;
 import br.com.framwork.hibernate.session.HibernateUtil;
-import br.com.project.listener.ContextLoaderListenerECSRUtils;
+import br.com.framwork.implementacao.crud.ImplementacaoCrud;
 import br.com.project.model.classes.Entidade;
 
 /**
- * Filtro responsável por abrir e fechar sessões Hibernate e transações Spring.
+ * Filtro responsável por abrir e fechar sessões Hibernate e transações.
  * Também garante que o usuário logado esteja disponível em ThreadLocal para auditoria.
  * 
- * Utiliza o padrão Open Session in View, integrando Spring Transaction Manager + Hibernate.
+ * Utiliza o padrão Open Session in View com uma única transação por requisição: a
+ * transação Hibernate da thread. Os beans JDBC (JdbcTemplate, SimpleJdbcTemplate,
+ * SimpleJdbcInsert) usam o DataSourceSessaoHibernate, que entrega a mesma conexão,
+ * então gravações Hibernate e JDBC são confirmadas ou desfeitas juntas.
+ * 
+ * A conexão com o banco só é obtida quando a requisição realmente acessa o banco:
+ * a transação é iniciada pelo ImplementacaoCrud/HibernateUtil/DataSourceSessaoHibernate
+ * no primeiro uso. Recursos estáticos (imagens, css, js) não passam pelo controle de transação.
  */
 @WebFilter(filterName = "conexaoFilter")
 public class FilterOpenSessionInView extends DelegatingFilterProxy implements Serializable {
@@ -37,9 +44,25 @@ public class FilterOpenSessionInView extends DelegatingFilterProxy implements Se
 //----------------------------------------------------------------------------------------------------------------------------------------------
 	private static final long serialVersionUID = 1L;
 
+	private static final Log LOG = LogFactory.getLog(FilterOpenSessionInView.class);
+
 	// Instância da SessionFactory do Hibernate
 	private static SessionFactory sf;
 
+	// Caminhos servidos sem sessão Hibernate nem transação
+	private static final String[] CAMINHOS_ESTATICOS = { "/resources/", "/javax.faces.resource/" };
+
+	// Buffer da resposta: a página fica no servidor até o commit, e um erro no
+	// commit ainda pode virar página de erro (response.isCommitted() == false)
+	private static final int TAMANHO_BUFFER_RESPOSTA = 128 * 1024;
+
+	// Página exibida quando o commit do final da requisição falha
+	private static final String PAGINA_ERRO = "/error/error.jsf?expired=true";
+
+	// Extensões de arquivos estáticos
+	private static final String[] EXTENSOES_ESTATICAS = { ".css", ".js", ".png", ".jpg", ".jpeg", ".gif", ".ico",
+			".svg", ".woff", ".woff2", ".ttf", ".eot", ".map" };
+
 	
 //----------------------------------------------------------------------------------------------------------------------------------------------
 
@@ -59,27 +82,26 @@ public class FilterOpenSessionInView extends DelegatingFilterProxy implements Se
 
 	/**
 	 * Método principal do filtro, intercepta todas as requisições.
-	 * Abre a sessão, inicia a transação e garante commit ou rollback.
+	 * Ao final faz commit ou rollback da transação que a requisição tiver aberto.
 	 */
 	@Override
 	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
 			throws ServletException, IOException {
 
-		
-		
-		
-		// Obtém o datasource gerenciado pelo Spring
-		BasicDataSource springBasicDataSource = (BasicDataSource) ContextLoaderListenerECSRUtils
-				.getBean("springDataSource");
+		HttpServletRequest request2 = (HttpServletRequest) request;
 
-		// Define as configurações da transação
-		DefaultTransactionDefinition def = new DefaultTransactionDefinition();
+		// Recursos estáticos não acessam o banco: segue direto
+		if (isRecursoEstatico(request2)) {
+			chain.doFilter(request, response);
+			return;
+		}
 
-		// Cria o gerenciador de transações usando o datasource do Spring
-		PlatformTransactionManager transactionManager = new DataSourceTransactionManager(springBasicDataSource);
+		// Os beans JDBC passam a usar a conexão da transação Hibernate desta thread
+		HibernateUtil.iniciarEscopoRequisicao();
 
-		// Inicia a transação Spring
-		TransactionStatus status = transactionManager.getTransaction(def);
+		if (!response.isCommitted() && response.getBufferSize() < TAMANHO_BUFFER_RESPOSTA) {
+			response.setBufferSize(TAMANHO_BUFFER_RESPOSTA);
+		}
 
 		
 		
@@ -93,10 +115,9 @@ public class FilterOpenSessionInView extends DelegatingFilterProxy implements Se
 			// Define codificação de caracteres da requisição
 			request.setCharacterEncoding("UTF-8");
 
-			// Recupera o usuário logado da sessão HTTP
-			HttpServletRequest request2 = (HttpServletRequest) request;
-			HttpSession session = request2.getSession();
-			Entidade userLogadoSessao = (Entidade) session.getAttribute("userLogadoSessao");
+			// Recupera o usuário logado da sessão HTTP, sem criar sessão para quem não tem
+			HttpSession session = request2.getSession(false);
+			Entidade userLogadoSessao = session != null ? (Entidade) session.getAttribute("userLogadoSessao") : null;
 
 			
 //----------------------------------------------------------------------------------------------------------------------------------------------
@@ -107,63 +128,54 @@ public class FilterOpenSessionInView extends DelegatingFilterProxy implements Se
 				utilFramework.getThreadLocal().set(userLogadoSessao.getEnt_codigo());
 			}
 
-			// Inicia transação Hibernate
-			sf.getCurrentSession().beginTransaction();
-
 			// Executa o processamento da requisição no servidor (JSF, Controller, etc.)
+			// A transação Hibernate é iniciada no primeiro acesso ao banco.
 			chain.doFilter(request, response);
 
-			// Realiza commit da transação Spring
-			transactionManager.commit(status);
-
-			// Se a transação Hibernate ainda estiver ativa, faz commit também
+			// Com EstrategiaFlush FIM_REQUISICAO/LOTE_EXPLICITO as gravações da requisição
+			// ficaram pendentes na sessão e são enviadas ao banco no flush/commit abaixo
 			
 			
 //----------------------------------------------------------------------------------------------------------------------------------------------
 
 			
-			if (sf.getCurrentSession().getTransaction().isActive()) {
-				sf.getCurrentSession().flush(); // Persiste alterações pendentes
-				sf.getCurrentSession().getTransaction().commit(); // Finaliza transação Hibernate
-			}
-
-			
-//----------------------------------------------------------------------------------------------------------------------------------------------
+			// Se a requisição abriu sessão Hibernate com transação ativa, faz commit
+			// (inclui os comandos dos beans JDBC, que usaram a mesma conexão)
+			Session sessionHibernate = ThreadLocalSessionContext.unbind(sf);
+
+			if (sessionHibernate != null && sessionHibernate.isOpen()) {
+
+				if (sessionHibernate.getTransaction().isActive()) {
+					try {
+						sessionHibernate.flush(); // Persiste alterações pendentes
+						sessionHibernate.getTransaction().commit(); // Finaliza transação Hibernate
+					} catch (RuntimeException e) {
+						// A página já foi montada como se tivesse gravado: desfaz e troca a
+						// resposta pela página de erro (as gravações comuns já passaram pelo
+						// flush do FlushAntesRenderPhaseListener; aqui sobram falhas do commit)
+						if (sessionHibernate.isOpen() && sessionHibernate.getTransaction().isActive()) {
+							sessionHibernate.getTransaction().rollback();
+						}
+						enviarErroGravacao(request2, (HttpServletResponse) response, e);
+					}
+				}
 
-			
-			// Fecha a sessão Hibernate
-			if (sf.getCurrentSession().isOpen()) {
-				sf.getCurrentSession().close();
+				// Fecha a sessão Hibernate (com auto_close_session o commit já fechou)
+				if (sessionHibernate.isOpen()) {
+					sessionHibernate.close();
+				}
 			}
 
 //----------------------------------------------------------------------------------------------------------------------------------------------
 
 			
-			// Define codificação da resposta HTTP
-			response.setCharacterEncoding("UTF-8");
-			response.setContentType("text/html; charset=UTF-8");
-
-			
-//----------------------------------------------------------------------------------------------------------------------------------------------
-
-			
 			
 		} catch (Exception e) {
-			// Em caso de erro, realiza rollback da transação Spring
-			transactionManager.rollback(status);
-
 			// Imprime erro no console (substituir por log profissional em produção)
 			e.printStackTrace();
 
 			// Rollback da transação Hibernate se ainda estiver ativa
-			if (sf.getCurrentSession().getTransaction().isActive()) {
-				sf.getCurrentSession().getTransaction().rollback();
-			}
-
-			// Fecha a sessão Hibernate, se ainda aberta
-			if (sf.getCurrentSession().isOpen()) {
-				sf.getCurrentSession().close();
-			}
+			encerraSessionHibernate();
 
 			
 //----------------------------------------------------------------------------------------------------------------------------------------------
@@ -171,20 +183,99 @@ public class FilterOpenSessionInView extends DelegatingFilterProxy implements Se
 			
 			
 		} finally {
-			// Garantia final: limpa e fecha a sessão Hibernate se ainda estiver aberta
-			if (sf.getCurrentSession().isOpen()) {
+			// A estratégia de flush e a marcação de gravação desta requisição não passam para a próxima
+			ImplementacaoCrud.limparContextoRequisicao();
 
-				// Se ainda houver transação ativa 
-				if (sf.getCurrentSession().beginTransaction().isActive()) {
-					sf.getCurrentSession().flush(); // Persiste alterações
-					sf.getCurrentSession().clear(); // Limpa o cache da sessão
-				}
+			HibernateUtil.encerrarEscopoRequisicao();
 
-				// Fecha a sessão Hibernate
-				if (sf.getCurrentSession().isOpen()) {
-					sf.getCurrentSession().close();
-				}
+			// O usuário desta requisição não pode ficar na thread do pool para a próxima
+			utilFramework.getThreadLocal().remove();
+
+			// Garantia final: se sobrou sessão Hibernate presa à thread, descarta sem
+			// abrir nova transação
+			encerraSessionHibernate();
+		}
+	}
+
+	
+	
+//----------------------------------------------------------------------------------------------------------------------------------------------
+
+	
+	/**
+	 * Desvincula a sessão Hibernate da thread, fazendo rollback da transação
+	 * pendente (quando houver) e fechando a sessão.
+	 */
+	private static void encerraSessionHibernate() {
+
+		Session sessionHibernate = ThreadLocalSessionContext.unbind(sf);
+
+		if (sessionHibernate == null || !sessionHibernate.isOpen()) {
+			return;
+		}
+
+		try {
+			if (sessionHibernate.getTransaction().isActive()) {
+				sessionHibernate.getTransaction().rollback();
+			}
+		} finally {
+			if (sessionHibernate.isOpen()) {
+				sessionHibernate.close();
+			}
+		}
+	}
+
+	/**
+	 * Substitui a resposta ainda não enviada por um redirecionamento para a
+	 * página de erro (em requisição ajax, pela resposta parcial do JSF). Se a
+	 * resposta já saiu (maior que o buffer), resta o registro no log.
+	 */
+	private static void enviarErroGravacao(HttpServletRequest request, HttpServletResponse response,
+			RuntimeException erro) throws IOException {
+
+		if (response.isCommitted()) {
+			LOG.error("Falha no commit após o envio da resposta: " + request.getRequestURI(), erro);
+			return;
+		}
+
+		LOG.error("Falha no commit da requisição " + request.getRequestURI() + "; enviando página de erro", erro);
+
+		response.reset();
+
+		String url = request.getContextPath() + PAGINA_ERRO;
+
+		if ("partial/ajax".equals(request.getHeader("Faces-Request"))) {
+			response.setContentType("text/xml");
+			response.setCharacterEncoding("UTF-8");
+			response.getWriter().write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><partial-response><redirect url=\""
+					+ url.replace("&", "&amp;") + "\"></redirect></partial-response>");
+			response.flushBuffer();
+		} else {
+			response.sendRedirect(url);
+		}
+	}
+
+	/**
+	 * @return true para imagens, css, js e recursos do JSF/PrimeFaces, que não precisam de banco.
+	 */
+	private static boolean isRecursoEstatico(HttpServletRequest request) {
+
+		String caminho = request.getRequestURI().substring(request.getContextPath().length());
+
+		for (String prefixo : CAMINHOS_ESTATICOS) {
+			if (caminho.startsWith(prefixo)) {
+				return true;
 			}
 		}
+
+		String caminhoMinusculo = caminho.toLowerCase();
+
+		for (String extensao : EXTENSOES_ESTATICAS) {
+			if (caminhoMinusculo.endsWith(extensao)) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 }
@@ -0,0 +1,240 @@
+package br.com.project.filter;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Serve os arquivos das bibliotecas css, javascript e img direto da memória
+ * (RegistroRecursosEstaticos), sem passar pelos demais filtros (encoding,
+ * FilterOpenSessionInView, Spring Security) nem pelo FacesServlet.
+ *
+ * <p>Atende as URLs do JSF (/javax.faces.resource/estilo.css.jsf?ln=css) e as
+ * diretas (/resources/css/estilo.css). Quando a URL traz a versão atual do
+ * arquivo (v=..., acrescentada pelo ResourceHandlerVersionado), a resposta vai
+ * com cache de um ano e immutable: o navegador não pede o arquivo de novo até
+ * a versão mudar. Sem a versão (ou com uma antiga), o cache é curto e o
+ * navegador revalida pelo ETag (304). Cada codificação (identidade, gzip, br)
+ * tem o seu ETag.</p>
+ *
+ * <p>Deve ser o primeiro filtro mapeado no web.xml. Outras bibliotecas (ex:
+ * primefaces) e arquivos não encontrados seguem a cadeia normalmente; as
+ * servidas pelo JSF com a versão na URL (v=...) também recebem o cache de um
+ * ano, as demais (ex: jsf.js) ficam com o padrão do JSF.</p>
+ */
+public class FilterRecursosEstaticos implements Filter {
+
+	private static final String PREFIXO_RESOURCES = "/resources/";
+
+	// Um ano, em segundos
+	private static final long CACHE_VERSIONADO_SEGUNDOS = 365L * 24 * 60 * 60;
+
+	// URL sem versão: cache curto, depois revalida pelo ETag
+	private static final long CACHE_SEM_VERSAO_SEGUNDOS = 5 * 60;
+
+	private ServletContext contexto;
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		contexto = filterConfig.getServletContext();
+		RegistroRecursosEstaticos.registrarPacotes(contexto);
+	}
+
+	@Override
+	public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+			throws IOException, ServletException {
+
+		HttpServletRequest request = (HttpServletRequest) servletRequest;
+		HttpServletResponse response = (HttpServletResponse) servletResponse;
+
+		String metodo = request.getMethod();
+
+		if (!"GET".equals(metodo) && !"HEAD".equals(metodo)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		String caminho = request.getRequestURI().substring(request.getContextPath().length());
+
+		String biblioteca = null;
+		String nome = null;
+
+		if (caminho.startsWith(RegistroRecursosEstaticos.PREFIXO_FACES)) {
+
+			nome = caminho.substring(RegistroRecursosEstaticos.PREFIXO_FACES.length());
+
+			if (nome.endsWith(RegistroRecursosEstaticos.SUFIXO_FACES)) {
+				nome = nome.substring(0, nome.length() - RegistroRecursosEstaticos.SUFIXO_FACES.length());
+			}
+
+			biblioteca = request.getParameter("ln");
+
+			// #{resource['img/zoom.png']}: biblioteca no início do nome
+			if (biblioteca == null && nome.indexOf('/') > 0) {
+				biblioteca = nome.substring(0, nome.indexOf('/'));
+				nome = nome.substring(nome.indexOf('/') + 1);
+			}
+
+		} else if (caminho.startsWith(PREFIXO_RESOURCES)) {
+
+			String resto = caminho.substring(PREFIXO_RESOURCES.length());
+
+			if (resto.indexOf('/') > 0) {
+				biblioteca = resto.substring(0, resto.indexOf('/'));
+				nome = resto.substring(resto.indexOf('/') + 1);
+			}
+		}
+
+		RecursoEstatico recurso = RegistroRecursosEstaticos.getRecurso(contexto, biblioteca, nome);
+
+		if (recurso == null) {
+
+			// Biblioteca servida pelo JSF (ex: primefaces) com a versão na URL
+			if (biblioteca != null && request.getParameter("v") != null
+					&& caminho.startsWith(RegistroRecursosEstaticos.PREFIXO_FACES)) {
+				chain.doFilter(request, new RespostaCacheVersionado(response));
+				return;
+			}
+
+			chain.doFilter(request, response);
+			return;
+		}
+
+		enviar(request, response, recurso, "HEAD".equals(metodo));
+	}
+
+	private void enviar(HttpServletRequest request, HttpServletResponse response, RecursoEstatico recurso,
+			boolean somenteCabecalhos) throws IOException {
+
+		byte[] conteudo = recurso.getConteudo();
+		String codificacao = null;
+		String aceita = request.getHeader("Accept-Encoding");
+
+		if (aceita != null) {
+			if (recurso.getConteudoBrotli() != null && aceita.contains("br")) {
+				conteudo = recurso.getConteudoBrotli();
+				codificacao = "br";
+			} else if (recurso.getConteudoGzip() != null && aceita.contains("gzip")) {
+				conteudo = recurso.getConteudoGzip();
+				codificacao = "gzip";
+			}
+		}
+
+		String etag = getEtag(recurso, codificacao);
+
+		if (recurso.getVersao().equals(request.getParameter("v"))) {
+			response.setHeader("Cache-Control", "public, max-age=" + CACHE_VERSIONADO_SEGUNDOS + ", immutable");
+			response.setDateHeader("Expires", System.currentTimeMillis() + CACHE_VERSIONADO_SEGUNDOS * 1000L);
+		} else {
+			response.setHeader("Cache-Control", "public, max-age=" + CACHE_SEM_VERSAO_SEGUNDOS);
+		}
+
+		response.setHeader("ETag", etag);
+		response.setHeader("Vary", "Accept-Encoding");
+
+		if (recurso.getModificacao() > 0) {
+			response.setDateHeader("Last-Modified", recurso.getModificacao());
+		}
+
+		String ifNoneMatch = request.getHeader("If-None-Match");
+
+		if (ifNoneMatch != null) {
+
+			if ("*".equals(ifNoneMatch.trim())) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+
+			// Qualquer variante da versão atual ainda vale (ex: cache com o gzip que
+			// agora pediria br): 304 com o ETag da variante que o cliente tem
+			for (String variante : new String[] { null, "gzip", "br" }) {
+				String etagVariante = getEtag(recurso, variante);
+				if (ifNoneMatch.contains(etagVariante)) {
+					response.setHeader("ETag", etagVariante);
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+					return;
+				}
+			}
+		}
+
+		if (codificacao != null) {
+			response.setHeader("Content-Encoding", codificacao);
+		}
+
+		response.setContentType(recurso.getContentType());
+		response.setContentLength(conteudo.length);
+
+		if (!somenteCabecalhos) {
+			response.getOutputStream().write(conteudo);
+		}
+	}
+
+	/**
+	 * ETag forte da variante: "versao" (identidade), "versao-gz" ou "versao-br".
+	 */
+	private static String getEtag(RecursoEstatico recurso, String codificacao) {
+		if (codificacao == null) {
+			return "\"" + recurso.getVersao() + "\"";
+		}
+		return "\"" + recurso.getVersao() + ("gzip".equals(codificacao) ? "-gz" : "-br") + "\"";
+	}
+
+	@Override
+	public void destroy() {
+		RegistroRecursosEstaticos.limpar();
+	}
+
+	/**
+	 * Troca a expiração que o JSF coloca nos recursos servidos (padrão de uma
+	 * semana) pelo cache de um ano. Só age quando o recurso é enviado: respostas
+	 * de erro, sem o cabeçalho Expires, não ficam em cache.
+	 */
+	private static final class RespostaCacheVersionado extends HttpServletResponseWrapper {
+
+		RespostaCacheVersionado(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public void setHeader(String nome, String valor) {
+			if ("Expires".equalsIgnoreCase(nome)) {
+				definirCache();
+			} else {
+				super.setHeader(nome, valor);
+			}
+		}
+
+		@Override
+		public void addHeader(String nome, String valor) {
+			if ("Expires".equalsIgnoreCase(nome)) {
+				definirCache();
+			} else {
+				super.addHeader(nome, valor);
+			}
+		}
+
+		@Override
+		public void setDateHeader(String nome, long data) {
+			if ("Expires".equalsIgnoreCase(nome)) {
+				definirCache();
+			} else {
+				super.setDateHeader(nome, data);
+			}
+		}
+
+		private void definirCache() {
+			super.setHeader("Cache-Control", "public, max-age=" + CACHE_VERSIONADO_SEGUNDOS);
+			super.setDateHeader("Expires", System.currentTimeMillis() + CACHE_VERSIONADO_SEGUNDOS * 1000L);
+		}
+	}
+
+}
@@ -0,0 +1,273 @@
+package br.com.project.filter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Minificação conservadora de javascript e css para os pacotes do
+ * RegistroRecursosEstaticos.
+ *
+ * <p>Remove comentários (menos os de licença, /*! ... *&#47;), indentação e
+ * espaços desnecessários. Strings e expressões regulares são copiadas sem
+ * alteração, e as quebras de linha do javascript são mantidas, para não
+ * depender da inserção automática de ponto e vírgula. Não renomeia variáveis.</p>
+ *
+ * <p>O texto é tratado como ISO-8859-1 (um char por byte), então arquivos em
+ * UTF-8 passam sem alteração nos caracteres acentuados.</p>
+ */
+public final class MinificadorRecursos {
+
+	// Caracteres depois dos quais uma barra inicia expressão regular, e não divisão
+	private static final String ANTES_DE_REGEX = "(,=:[!&|?{};+-*%<>~^";
+
+	private static final Set<String> PALAVRAS_ANTES_DE_REGEX = new HashSet<String>(Arrays.asList("return",
+			"typeof", "case", "do", "else", "in", "instanceof", "new", "delete", "void", "throw"));
+
+	private MinificadorRecursos() {
+	}
+
+	public static String minificarJs(String js) {
+
+		StringBuilder saida = new StringBuilder(js.length());
+		int tamanho = js.length();
+		int i = 0;
+
+		while (i < tamanho) {
+
+			char c = js.charAt(i);
+
+			if (c == '\'' || c == '"' || c == '`') {
+				i = copiarString(js, i, saida);
+
+			} else if (c == '/' && i + 1 < tamanho && js.charAt(i + 1) == '/') {
+				while (i < tamanho && js.charAt(i) != '\n' && js.charAt(i) != '\r') {
+					i++;
+				}
+
+			} else if (c == '/' && i + 1 < tamanho && js.charAt(i + 1) == '*') {
+				i = pularComentario(js, i, saida);
+
+			} else if (c == '/' && isInicioRegex(saida)) {
+				i = copiarRegex(js, i, saida);
+
+			} else if (Character.isWhitespace(c)) {
+
+				boolean quebra = false;
+
+				while (i < tamanho && Character.isWhitespace(js.charAt(i))) {
+					quebra |= js.charAt(i) == '\n' || js.charAt(i) == '\r';
+					i++;
+				}
+
+				if (saida.length() == 0 || i >= tamanho) {
+					continue;
+				}
+
+				char anterior = saida.charAt(saida.length() - 1);
+
+				if (quebra) {
+					if (anterior == ' ') {
+						// Separador deixado por um comentário: a quebra já separa
+						saida.setCharAt(saida.length() - 1, '\n');
+					} else if (anterior != '\n') {
+						saida.append('\n');
+					}
+				} else if (precisaEspaco(anterior, js.charAt(i))) {
+					saida.append(' ');
+				}
+
+			} else {
+				saida.append(c);
+				i++;
+			}
+		}
+
+		return saida.toString().trim();
+	}
+
+	public static String minificarCss(String css) {
+
+		StringBuilder saida = new StringBuilder(css.length());
+		int tamanho = css.length();
+		int i = 0;
+
+		while (i < tamanho) {
+
+			char c = css.charAt(i);
+
+			if (c == '\'' || c == '"') {
+				i = copiarString(css, i, saida);
+
+			} else if (c == '/' && i + 1 < tamanho && css.charAt(i + 1) == '*') {
+				i = pularComentario(css, i, saida);
+
+			} else if (Character.isWhitespace(c)) {
+
+				while (i < tamanho && Character.isWhitespace(css.charAt(i))) {
+					i++;
+				}
+
+				if (saida.length() == 0 || i >= tamanho) {
+					continue;
+				}
+
+				char anterior = saida.charAt(saida.length() - 1);
+				char proximo = css.charAt(i);
+
+				// Espaço antes de ':' fica ("div :hover" é diferente de "div:hover")
+				if ("{};,>\n".indexOf(anterior) < 0 && anterior != ':' && "{};,>".indexOf(proximo) < 0) {
+					saida.append(' ');
+				}
+
+			} else if (c == '}' && saida.length() > 0 && saida.charAt(saida.length() - 1) == ';') {
+				saida.setCharAt(saida.length() - 1, '}');
+				i++;
+
+			} else {
+				if ((c == '{' || c == ';' || c == ',' || c == '>') && saida.length() > 0
+						&& saida.charAt(saida.length() - 1) == ' ') {
+					saida.setLength(saida.length() - 1);
+				}
+				saida.append(c);
+				i++;
+			}
+		}
+
+		return saida.toString().trim();
+	}
+
+	private static int copiarString(String texto, int inicio, StringBuilder saida) {
+
+		char aspas = texto.charAt(inicio);
+		int i = inicio + 1;
+
+		while (i < texto.length()) {
+			char c = texto.charAt(i);
+
+			if (c == '\\') {
+				i += 2;
+				continue;
+			}
+
+			i++;
+
+			if (c == aspas) {
+				break;
+			}
+		}
+
+		i = Math.min(i, texto.length());
+		saida.append(texto, inicio, i);
+
+		return i;
+	}
+
+	private static int copiarRegex(String js, int inicio, StringBuilder saida) {
+
+		int i = inicio + 1;
+		boolean classe = false;
+
+		while (i < js.length()) {
+			char c = js.charAt(i);
+
+			if (c == '\\') {
+				i += 2;
+				continue;
+			}
+
+			if (c == '\n' || c == '\r') {
+				break;
+			}
+
+			i++;
+
+			if (c == '[') {
+				classe = true;
+			} else if (c == ']') {
+				classe = false;
+			} else if (c == '/' && !classe) {
+				break;
+			}
+		}
+
+		i = Math.min(i, js.length());
+		saida.append(js, inicio, i);
+
+		return i;
+	}
+
+	/**
+	 * Comentários de licença (/*!) são mantidos; os demais viram um separador.
+	 */
+	private static int pularComentario(String texto, int inicio, StringBuilder saida) {
+
+		int fim = texto.indexOf("*/", inicio + 2);
+		fim = fim < 0 ? texto.length() : fim + 2;
+
+		String comentario = texto.substring(inicio, fim);
+
+		if (comentario.startsWith("/*!")) {
+			if (saida.length() > 0 && saida.charAt(saida.length() - 1) != '\n') {
+				saida.append('\n');
+			}
+			saida.append(comentario).append('\n');
+		} else if (saida.length() == 0 || Character.isWhitespace(saida.charAt(saida.length() - 1))) {
+			// Já separado do que vem antes (início, espaço ou quebra de linha)
+		} else if (comentario.indexOf('\n') >= 0 || comentario.indexOf('\r') >= 0) {
+			// Mantém a quebra de linha para a inserção automática de ';'
+			saida.append('\n');
+		} else {
+			saida.append(' ');
+		}
+
+		return fim;
+	}
+
+	private static boolean isInicioRegex(StringBuilder saida) {
+
+		int i = saida.length() - 1;
+
+		while (i >= 0 && Character.isWhitespace(saida.charAt(i))) {
+			i--;
+		}
+
+		if (i < 0) {
+			return true;
+		}
+
+		char anterior = saida.charAt(i);
+
+		if (ANTES_DE_REGEX.indexOf(anterior) >= 0) {
+			return true;
+		}
+
+		if (!isIdentificador(anterior)) {
+			return false;
+		}
+
+		int fim = i + 1;
+
+		while (i >= 0 && isIdentificador(saida.charAt(i))) {
+			i--;
+		}
+
+		return PALAVRAS_ANTES_DE_REGEX.contains(saida.substring(i + 1, fim));
+	}
+
+	private static boolean precisaEspaco(char anterior, char proximo) {
+
+		if (isIdentificador(anterior) && isIdentificador(proximo)) {
+			return true;
+		}
+
+		// "a + +b", "a - -b" e "a / /re/" mudariam de sentido sem o espaço
+		return anterior == proximo && (anterior == '+' || anterior == '-' || anterior == '/')
+				|| anterior == '/' && proximo == '*';
+	}
+
+	private static boolean isIdentificador(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '\\' || c > 126;
+	}
+
+}
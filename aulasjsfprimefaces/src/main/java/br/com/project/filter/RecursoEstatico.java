@@ -0,0 +1,67 @@
+package br.com.project.filter;
+
+/**
+ * Arquivo estático (css, js, imagem) carregado em memória, com a versão
+ * (impressão digital do conteúdo) e as variantes comprimidas.
+ *
+ * Objeto imutável: é compartilhado por todas as requisições.
+ */
+public final class RecursoEstatico {
+
+	private final String caminho;
+
+	private final String contentType;
+
+	private final String versao;
+
+	private final long modificacao;
+
+	private final byte[] conteudo;
+
+	// null quando a compressão não compensa (imagens, arquivos pequenos)
+	private final byte[] conteudoGzip;
+
+	// Só existe quando há um arquivo .br gerado previamente ao lado do original
+	private final byte[] conteudoBrotli;
+
+	public RecursoEstatico(String caminho, String contentType, String versao, long modificacao, byte[] conteudo,
+			byte[] conteudoGzip, byte[] conteudoBrotli) {
+		this.caminho = caminho;
+		this.contentType = contentType;
+		this.versao = versao;
+		this.modificacao = modificacao;
+		this.conteudo = conteudo;
+		this.conteudoGzip = conteudoGzip;
+		this.conteudoBrotli = conteudoBrotli;
+	}
+
+	public String getCaminho() {
+		return caminho;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getVersao() {
+		return versao;
+	}
+
+	/** Data de modificação do arquivo (ms), usada no Last-Modified. */
+	public long getModificacao() {
+		return modificacao;
+	}
+
+	public byte[] getConteudo() {
+		return conteudo;
+	}
+
+	public byte[] getConteudoGzip() {
+		return conteudoGzip;
+	}
+
+	public byte[] getConteudoBrotli() {
+		return conteudoBrotli;
+	}
+
+}
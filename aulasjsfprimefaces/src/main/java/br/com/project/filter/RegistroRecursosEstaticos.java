@@ -0,0 +1,455 @@
+package br.com.project.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Arquivos estáticos da aplicação (bibliotecas css, javascript e img de
+ * /resources), carregados em memória no primeiro uso.
+ *
+ * <p>Cada arquivo recebe uma versão calculada pelo conteúdo (SHA-256). O
+ * ResourceHandlerVersionado acrescenta essa versão na URL gerada pelo JSF
+ * (&amp;v=...), e o FilterRecursosEstaticos serve a URL versionada com cache de
+ * um ano: quando o arquivo muda, muda a URL. O projeto não tem etapa de build,
+ * então a versão é calculada aqui, e recalculada quando a data do arquivo muda
+ * (deploy exploded).</p>
+ *
+ * <p>A variante gzip é gerada em memória na carga (ou lida de um arquivo .gz ao
+ * lado do original, se existir). Brotli só é servido quando há um arquivo .br
+ * gerado previamente (ex: brotli -k estilo.css), pois não há compressor brotli
+ * nas bibliotecas do projeto.</p>
+ *
+ * <p>A biblioteca "pacote" reúne vários arquivos numa única requisição. Cada
+ * pacote é declarado no web.xml (context-param pacoteRecursos.&lt;nome&gt;, com
+ * os arquivos separados por vírgula, na ordem de carga), montado na
+ * inicialização do FilterRecursosEstaticos e minificado pelo
+ * MinificadorRecursos. Ex: &lt;h:outputScript library="pacote"
+ * name="sistema.js"/&gt;. Quando um dos arquivos muda, o pacote é remontado e
+ * ganha nova versão.</p>
+ */
+public final class RegistroRecursosEstaticos {
+
+	// Bibliotecas servidas pelo filtro (resources/components tem xhtml e não entra)
+	private static final Set<String> BIBLIOTECAS = Collections
+			.unmodifiableSet(new HashSet<String>(Arrays.asList("css", "javascript", "img")));
+
+	// Arquivos maiores que isso não ficam em memória (seguem pelo container)
+	private static final int TAMANHO_MAXIMO = 2 * 1024 * 1024;
+
+	// Abaixo disso o gzip não compensa
+	private static final int TAMANHO_MINIMO_GZIP = 512;
+
+	// Intervalo entre verificações da data de modificação de um arquivo
+	private static final long INTERVALO_VERIFICACAO_MS = 2000L;
+
+	/** Prefixo das URLs de recursos do JSF. */
+	static final String PREFIXO_FACES = "/javax.faces.resource/";
+
+	/** Mapeamento do FacesServlet (web.xml). */
+	static final String SUFIXO_FACES = ".jsf";
+
+	private static final Pattern EXPRESSAO_RESOURCE = Pattern.compile("#\\{resource\\['([^']+)'\\]\\}");
+
+	/** Biblioteca dos pacotes (arquivos concatenados e minificados). */
+	public static final String BIBLIOTECA_PACOTE = "pacote";
+
+	// Prefixo dos context-params que declaram os pacotes
+	private static final String PARAMETRO_PACOTE = "pacoteRecursos.";
+
+	private static final String CAMINHO_PACOTE = "/resources/" + BIBLIOTECA_PACOTE + "/";
+
+	// Nome do pacote (sistema.js) -> arquivos (javascript/scripty.js), na ordem
+	private static final ConcurrentMap<String, List<String>> pacotes = new ConcurrentHashMap<String, List<String>>();
+
+	// Caminho (/resources/css/estilo.css) -> arquivo carregado
+	private static final ConcurrentMap<String, Entrada> recursos = new ConcurrentHashMap<String, Entrada>();
+
+	private RegistroRecursosEstaticos() {
+	}
+
+	/**
+	 * @return true quando a biblioteca é servida pelo FilterRecursosEstaticos.
+	 */
+	public static boolean isBibliotecaEstatica(String biblioteca) {
+		return biblioteca != null && (BIBLIOTECAS.contains(biblioteca) || BIBLIOTECA_PACOTE.equals(biblioteca));
+	}
+
+	/**
+	 * @return true quando existe um pacote declarado com o nome informado.
+	 */
+	public static boolean isPacote(String nome) {
+		return nome != null && pacotes.containsKey(nome);
+	}
+
+	/**
+	 * Lê os pacotes declarados no web.xml e já os monta, para a primeira página
+	 * não esperar pela minificação.
+	 */
+	public static void registrarPacotes(ServletContext contexto) {
+
+		Enumeration<?> parametros = contexto.getInitParameterNames();
+
+		while (parametros.hasMoreElements()) {
+
+			String parametro = (String) parametros.nextElement();
+
+			if (!parametro.startsWith(PARAMETRO_PACOTE)) {
+				continue;
+			}
+
+			String nome = parametro.substring(PARAMETRO_PACOTE.length());
+			List<String> partes = new ArrayList<String>();
+
+			for (String parte : contexto.getInitParameter(parametro).split(",")) {
+				if (!parte.trim().isEmpty()) {
+					partes.add(parte.trim());
+				}
+			}
+
+			pacotes.put(nome, Collections.unmodifiableList(partes));
+		}
+
+		for (String nome : pacotes.keySet()) {
+			try {
+				getRecurso(contexto, BIBLIOTECA_PACOTE, nome);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return o arquivo da biblioteca, ou null quando a biblioteca não é
+	 *         estática, o nome é inválido ou o arquivo não existe.
+	 */
+	public static RecursoEstatico getRecurso(ServletContext contexto, String biblioteca, String nome)
+			throws IOException {
+
+		if (!isBibliotecaEstatica(biblioteca) || !isNomeValido(nome)) {
+			return null;
+		}
+
+		if (BIBLIOTECA_PACOTE.equals(biblioteca) && !isPacote(nome)) {
+			return null;
+		}
+
+		String caminho = "/resources/" + biblioteca + "/" + nome;
+
+		Entrada entrada = recursos.get(caminho);
+		long agora = System.currentTimeMillis();
+
+		if (entrada != null) {
+
+			if (agora - entrada.verificadoEm < INTERVALO_VERIFICACAO_MS) {
+				return entrada.recurso;
+			}
+
+			if (getModificacao(contexto, caminho) == entrada.recurso.getModificacao()) {
+				entrada.verificadoEm = agora;
+				return entrada.recurso;
+			}
+		}
+
+		RecursoEstatico recurso = carregar(contexto, caminho);
+
+		if (recurso == null) {
+			recursos.remove(caminho);
+			return null;
+		}
+
+		recursos.put(caminho, new Entrada(recurso));
+
+		return recurso;
+	}
+
+	/**
+	 * @return a versão atual do arquivo, ou null quando ele não é servido pelo
+	 *         filtro.
+	 */
+	public static String getVersao(ServletContext contexto, String biblioteca, String nome) {
+		try {
+			RecursoEstatico recurso = getRecurso(contexto, biblioteca, nome);
+			return recurso != null ? recurso.getVersao() : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Descarta todos os arquivos carregados.
+	 */
+	public static void limpar() {
+		recursos.clear();
+	}
+
+	private static boolean isNomeValido(String nome) {
+		return nome != null && !nome.isEmpty() && !nome.startsWith("/") && !nome.contains("..")
+				&& !nome.contains("\\") && !nome.contains("\0");
+	}
+
+	private static RecursoEstatico carregar(ServletContext contexto, String caminho) throws IOException {
+
+		if (caminho.startsWith(CAMINHO_PACOTE)) {
+			return carregarPacote(contexto, caminho);
+		}
+
+		long modificacao = getModificacao(contexto, caminho);
+
+		byte[] conteudo = ler(contexto, caminho);
+
+		if (conteudo == null) {
+			return null;
+		}
+
+		String contentType = getContentType(contexto, caminho);
+
+		byte[] original = conteudo;
+
+		if (contentType.startsWith("text/css")) {
+			conteudo = resolverExpressoes(contexto, conteudo);
+		}
+
+		// Os arquivos .gz/.br foram gerados do original: não servem se o css foi resolvido
+		boolean usaComprimidos = conteudo == original;
+
+		byte[] gzip = usaComprimidos ? ler(contexto, caminho + ".gz") : null;
+
+		if (gzip == null && isCompressivel(contentType) && conteudo.length >= TAMANHO_MINIMO_GZIP) {
+			gzip = gzip(conteudo);
+		}
+
+		if (gzip != null && gzip.length >= conteudo.length) {
+			gzip = null;
+		}
+
+		byte[] brotli = usaComprimidos ? ler(contexto, caminho + ".br") : null;
+
+		return new RecursoEstatico(caminho, contentType, getVersao(conteudo), modificacao, conteudo, gzip, brotli);
+	}
+
+	private static RecursoEstatico carregarPacote(ServletContext contexto, String caminho) throws IOException {
+
+		String nome = caminho.substring(CAMINHO_PACOTE.length());
+		String contentType = getContentType(contexto, caminho);
+		boolean css = contentType.startsWith("text/css");
+
+		long modificacao = getModificacao(contexto, caminho);
+
+		StringBuilder pacote = new StringBuilder();
+
+		for (String parte : pacotes.get(nome)) {
+
+			byte[] conteudo = ler(contexto, "/resources/" + parte);
+
+			if (conteudo == null) {
+				throw new IOException("Arquivo do pacote " + nome + " não encontrado: " + parte);
+			}
+
+			if (css) {
+				conteudo = resolverExpressoes(contexto, conteudo);
+			}
+
+			String texto = new String(conteudo, "ISO-8859-1");
+
+			if (css) {
+				pacote.append(MinificadorRecursos.minificarCss(texto)).append('\n');
+			} else {
+				// ';' entre os arquivos: um script sem ';' no fim não emenda no próximo
+				pacote.append(MinificadorRecursos.minificarJs(texto)).append("\n;\n");
+			}
+		}
+
+		byte[] conteudo = pacote.toString().getBytes("ISO-8859-1");
+
+		byte[] gzip = gzip(conteudo);
+
+		if (gzip.length >= conteudo.length) {
+			gzip = null;
+		}
+
+		return new RecursoEstatico(caminho, contentType, getVersao(conteudo), modificacao, conteudo, gzip, null);
+	}
+
+	/**
+	 * Troca as expressões #{resource['img/zoom.png']} do css pela URL
+	 * versionada do arquivo, como o JSF faria ao servir o css.
+	 */
+	private static byte[] resolverExpressoes(ServletContext contexto, byte[] conteudo) throws IOException {
+
+		// ISO-8859-1 preserva os bytes do arquivo, seja qual for a codificação
+		String css = new String(conteudo, "ISO-8859-1");
+
+		if (!css.contains("#{")) {
+			return conteudo;
+		}
+
+		Matcher matcher = EXPRESSAO_RESOURCE.matcher(css);
+		StringBuffer resolvido = new StringBuffer();
+
+		while (matcher.find()) {
+
+			String referencia = matcher.group(1);
+			int separador = referencia.indexOf(':') >= 0 ? referencia.indexOf(':') : referencia.indexOf('/');
+
+			String url = null;
+
+			if (separador > 0) {
+				String biblioteca = referencia.substring(0, separador);
+				String nome = referencia.substring(separador + 1);
+				RecursoEstatico recurso = getRecurso(contexto, biblioteca, nome);
+
+				if (recurso != null) {
+					url = contexto.getContextPath() + PREFIXO_FACES + nome + SUFIXO_FACES + "?ln=" + biblioteca
+							+ "&v=" + recurso.getVersao();
+				}
+			}
+
+			// Referência fora das bibliotecas estáticas: mantém a expressão
+			matcher.appendReplacement(resolvido, Matcher.quoteReplacement(url != null ? url : matcher.group()));
+		}
+
+		matcher.appendTail(resolvido);
+
+		return resolvido.toString().getBytes("ISO-8859-1");
+	}
+
+	private static byte[] ler(ServletContext contexto, String caminho) throws IOException {
+
+		InputStream entrada = contexto.getResourceAsStream(caminho);
+
+		if (entrada == null) {
+			return null;
+		}
+
+		try {
+			ByteArrayOutputStream saida = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int lidos;
+
+			while ((lidos = entrada.read(buffer)) != -1) {
+				saida.write(buffer, 0, lidos);
+
+				if (saida.size() > TAMANHO_MAXIMO) {
+					return null;
+				}
+			}
+
+			return saida.toByteArray();
+		} finally {
+			entrada.close();
+		}
+	}
+
+	private static byte[] gzip(byte[] conteudo) throws IOException {
+
+		ByteArrayOutputStream saida = new ByteArrayOutputStream(conteudo.length / 3);
+
+		GZIPOutputStream gzip = new GZIPOutputStream(saida) {
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		};
+
+		try {
+			gzip.write(conteudo);
+		} finally {
+			gzip.close();
+		}
+
+		return saida.toByteArray();
+	}
+
+	private static long getModificacao(ServletContext contexto, String caminho) {
+
+		if (caminho.startsWith(CAMINHO_PACOTE)) {
+
+			// Pacote: data do arquivo mais recente
+			long modificacao = 0L;
+
+			for (String parte : pacotes.get(caminho.substring(CAMINHO_PACOTE.length()))) {
+				modificacao = Math.max(modificacao, getModificacao(contexto, "/resources/" + parte));
+			}
+
+			return modificacao;
+		}
+
+		String real = contexto.getRealPath(caminho);
+
+		if (real == null) {
+			// Aplicação dentro do .war: o arquivo só muda com novo deploy
+			return 0L;
+		}
+
+		return new File(real).lastModified();
+	}
+
+	private static String getVersao(byte[] conteudo) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(conteudo);
+
+			StringBuilder versao = new StringBuilder();
+
+			for (int i = 0; i < 8; i++) {
+				versao.append(String.format("%02x", hash[i] & 0xff));
+			}
+
+			return versao.toString();
+		} catch (Exception e) {
+			throw new IllegalStateException("SHA-256 indisponível", e);
+		}
+	}
+
+	private static String getContentType(ServletContext contexto, String caminho) {
+
+		String contentType = contexto.getMimeType(caminho);
+
+		if (contentType == null) {
+			String minusculo = caminho.toLowerCase();
+
+			if (minusculo.endsWith(".css")) {
+				contentType = "text/css";
+			} else if (minusculo.endsWith(".js")) {
+				contentType = "application/javascript";
+			} else {
+				contentType = "application/octet-stream";
+			}
+		}
+
+		return contentType;
+	}
+
+	private static boolean isCompressivel(String contentType) {
+		return contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")
+				|| contentType.contains("xml") || contentType.contains("svg");
+	}
+
+	private static final class Entrada {
+
+		private final RecursoEstatico recurso;
+
+		private volatile long verificadoEm = System.currentTimeMillis();
+
+		Entrada(RecursoEstatico recurso) {
+			this.recurso = recurso;
+		}
+	}
+
+}
@@ -0,0 +1,183 @@
+package br.com.project.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.application.ResourceHandlerWrapper;
+import javax.faces.application.ResourceWrapper;
+import javax.faces.context.FacesContext;
+import javax.servlet.ServletContext;
+
+/**
+ * ResourceHandler do JSF que acrescenta a versão do arquivo (v=...) nas URLs
+ * das bibliotecas css, javascript e img, para o FilterRecursosEstaticos servir
+ * com cache de um ano. Registrado no faces-config.xml.
+ *
+ * Também cria os recursos da biblioteca "pacote" (arquivos concatenados pelo
+ * RegistroRecursosEstaticos), que não existem em /resources.
+ */
+public class ResourceHandlerVersionado extends ResourceHandlerWrapper {
+
+	private final ResourceHandler wrapped;
+
+	public ResourceHandlerVersionado(ResourceHandler wrapped) {
+		this.wrapped = wrapped;
+	}
+
+	@Override
+	public ResourceHandler getWrapped() {
+		return wrapped;
+	}
+
+	@Override
+	public Resource createResource(String resourceName) {
+		return versionar(super.createResource(resourceName));
+	}
+
+	@Override
+	public Resource createResource(String resourceName, String libraryName) {
+
+		if (isPacote(resourceName, libraryName)) {
+			return new ResourcePacote(resourceName);
+		}
+
+		return versionar(super.createResource(resourceName, libraryName));
+	}
+
+	@Override
+	public Resource createResource(String resourceName, String libraryName, String contentType) {
+
+		if (isPacote(resourceName, libraryName)) {
+			return new ResourcePacote(resourceName);
+		}
+
+		return versionar(super.createResource(resourceName, libraryName, contentType));
+	}
+
+	@Override
+	public boolean libraryExists(String libraryName) {
+		return RegistroRecursosEstaticos.BIBLIOTECA_PACOTE.equals(libraryName) || super.libraryExists(libraryName);
+	}
+
+	private static boolean isPacote(String resourceName, String libraryName) {
+		return RegistroRecursosEstaticos.BIBLIOTECA_PACOTE.equals(libraryName)
+				&& RegistroRecursosEstaticos.isPacote(resourceName);
+	}
+
+	private static ServletContext getServletContext() {
+		return (ServletContext) FacesContext.getCurrentInstance().getExternalContext().getContext();
+	}
+
+	private Resource versionar(Resource resource) {
+
+		if (resource == null) {
+			return null;
+		}
+
+		String biblioteca = resource.getLibraryName();
+		String nome = resource.getResourceName();
+
+		// #{resource['img/zoom.png']}: biblioteca no início do nome
+		if (biblioteca == null && nome != null && nome.indexOf('/') > 0) {
+			biblioteca = nome.substring(0, nome.indexOf('/'));
+			nome = nome.substring(nome.indexOf('/') + 1);
+		}
+
+		if (!RegistroRecursosEstaticos.isBibliotecaEstatica(biblioteca)) {
+			return resource;
+		}
+
+		return new ResourceVersionado(resource, biblioteca, nome);
+	}
+
+	private static final class ResourceVersionado extends ResourceWrapper {
+
+		private final Resource wrapped;
+
+		private final String biblioteca;
+
+		private final String nome;
+
+		ResourceVersionado(Resource wrapped, String biblioteca, String nome) {
+			this.wrapped = wrapped;
+			this.biblioteca = biblioteca;
+			this.nome = nome;
+		}
+
+		@Override
+		public Resource getWrapped() {
+			return wrapped;
+		}
+
+		@Override
+		public String getRequestPath() {
+
+			String caminho = super.getRequestPath();
+
+			String versao = RegistroRecursosEstaticos.getVersao(getServletContext(), biblioteca, nome);
+
+			if (versao == null) {
+				return caminho;
+			}
+
+			return caminho + (caminho.indexOf('?') >= 0 ? "&v=" : "?v=") + versao;
+		}
+	}
+
+	/**
+	 * Pacote do RegistroRecursosEstaticos. A URL aponta para o
+	 * FilterRecursosEstaticos, que serve o conteúdo.
+	 */
+	private static final class ResourcePacote extends Resource {
+
+		ResourcePacote(String nome) {
+			setResourceName(nome);
+			setLibraryName(RegistroRecursosEstaticos.BIBLIOTECA_PACOTE);
+			setContentType(getServletContext().getMimeType(nome));
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+
+			RecursoEstatico recurso = RegistroRecursosEstaticos.getRecurso(getServletContext(), getLibraryName(),
+					getResourceName());
+
+			return recurso != null ? new ByteArrayInputStream(recurso.getConteudo()) : null;
+		}
+
+		@Override
+		public Map<String, String> getResponseHeaders() {
+			return new HashMap<String, String>();
+		}
+
+		@Override
+		public String getRequestPath() {
+
+			ServletContext contexto = getServletContext();
+
+			String caminho = contexto.getContextPath() + RegistroRecursosEstaticos.PREFIXO_FACES + getResourceName()
+					+ RegistroRecursosEstaticos.SUFIXO_FACES + "?ln=" + getLibraryName();
+
+			String versao = RegistroRecursosEstaticos.getVersao(contexto, getLibraryName(), getResourceName());
+
+			return versao != null ? caminho + "&v=" + versao : caminho;
+		}
+
+		@Override
+		public URL getURL() {
+			return null;
+		}
+
+		@Override
+		public boolean userAgentNeedsUpdate(FacesContext context) {
+			return true;
+		}
+	}
+
+}
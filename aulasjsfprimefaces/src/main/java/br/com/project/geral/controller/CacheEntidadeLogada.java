@@ -0,0 +1,157 @@
+package br.com.project.geral.controller;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import br.com.project.model.classes.Entidade;
+
+/**
+ * Cache, compartilhado por toda a aplicação, da Entidade de cada usuário
+ * logado, pelo login (principal do Spring Security).
+ *
+ * <p>O ContextoBean consulta o cache a cada chamada de getEntidadeLogada() em
+ * vez de ir ao banco. O cache guarda uma cópia própria da Entidade, que nunca
+ * é entregue: {@link #get(String)} devolve uma cópia nova, que a sessão pode
+ * alterar sem afetar as demais sessões do usuário, e {@link #getVersao(String)}
+ * diz se a cópia da sessão ainda corresponde à entrada do cache. A entrada é
+ * descartada:</p>
+ * <ul>
+ *   <li>quando a Entidade é gravada pelo EntidadeController (troca de senha,
+ *   permissões, inativação ou exclusão);</li>
+ *   <li>após {@link #VALIDADE_MS}, limite para alterações feitas fora da
+ *   aplicação ou em outro nó do cluster.</li>
+ * </ul>
+ */
+@Component
+public class CacheEntidadeLogada implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Tempo máximo de uma Entidade no cache. */
+	private static final long VALIDADE_MS = 5 * 60 * 1000L;
+
+	// Login em maiúsculas (a autenticação compara com upper) -> Entidade carregada
+	private final transient ConcurrentMap<String, EntidadeCarregada> cache = new ConcurrentHashMap<String, EntidadeCarregada>();
+
+	// Versão de cada entrada incluída (nunca 0)
+	private final AtomicLong sequenciaVersao = new AtomicLong();
+
+	/**
+	 * @return cópia nova da Entidade do login, ou null quando não está no cache
+	 *         ou expirou.
+	 */
+	public Entidade get(String login) {
+		EntidadeCarregada carregada = getCarregada(login);
+		return carregada == null ? null : carregada.entidade.copia();
+	}
+
+	/**
+	 * @return versão da entrada do login, ou 0 quando não está no cache ou expirou.
+	 */
+	public long getVersao(String login) {
+		EntidadeCarregada carregada = getCarregada(login);
+		return carregada == null ? 0L : carregada.versao;
+	}
+
+	/**
+	 * Guarda uma cópia da Entidade: alterações posteriores no objeto informado
+	 * não chegam ao cache.
+	 *
+	 * @return versão da entrada incluída, ou 0 quando nada foi incluído.
+	 */
+	public long put(String login, Entidade entidade) {
+
+		if (login == null || entidade == null) {
+			return 0L;
+		}
+
+		EntidadeCarregada carregada = new EntidadeCarregada(entidade.copia(), sequenciaVersao.incrementAndGet());
+		cache.put(getChave(login), carregada);
+
+		return carregada.versao;
+	}
+
+	/**
+	 * Descarta a Entidade do login informado.
+	 */
+	public void invalidar(String login) {
+		if (login != null) {
+			cache.remove(getChave(login));
+		}
+	}
+
+	/**
+	 * Descarta a Entidade gravada, pelo login e pelo código (o login pode ter
+	 * sido alterado).
+	 */
+	public void invalidar(Entidade entidade) {
+
+		if (entidade == null) {
+			return;
+		}
+
+		invalidar(entidade.getEnt_login());
+
+		if (entidade.getEnt_codigo() == null) {
+			return;
+		}
+
+		Iterator<Map.Entry<String, EntidadeCarregada>> iterator = cache.entrySet().iterator();
+
+		while (iterator.hasNext()) {
+			if (entidade.getEnt_codigo().equals(iterator.next().getValue().entidade.getEnt_codigo())) {
+				iterator.remove();
+			}
+		}
+	}
+
+	public void limpar() {
+		cache.clear();
+	}
+
+	private EntidadeCarregada getCarregada(String login) {
+
+		if (login == null) {
+			return null;
+		}
+
+		String chave = getChave(login);
+		EntidadeCarregada carregada = cache.get(chave);
+
+		if (carregada == null) {
+			return null;
+		}
+
+		if (System.currentTimeMillis() - carregada.carregadaEm > VALIDADE_MS) {
+			cache.remove(chave, carregada);
+			return null;
+		}
+
+		return carregada;
+	}
+
+	private static String getChave(String login) {
+		return login.trim().toUpperCase();
+	}
+
+	private static final class EntidadeCarregada {
+
+		private final Entidade entidade;
+
+		private final long versao;
+
+		private final long carregadaEm = System.currentTimeMillis();
+
+		EntidadeCarregada(Entidade entidade, long versao) {
+			this.entidade = entidade;
+			this.versao = versao;
+		}
+	}
+
+}
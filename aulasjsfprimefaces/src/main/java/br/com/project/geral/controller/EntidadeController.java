@@ -5,8 +5,10 @@ import java.util.Date;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import br.com.framwork.implementacao.crud.ConsultaParametrizada;
 import br.com.framwork.implementacao.crud.ImplementacaoCrud;
 import br.com.framwork.interfac.crud.InterfaceCrud;
+import br.com.project.acessos.CodificadorSenha;
 import br.com.project.model.classes.Entidade;
 import br.com.srv.interfaces.SrvEntidade;
 
@@ -17,6 +19,12 @@ public class EntidadeController extends ImplementacaoCrud <Entidade> implements
 
 	@Autowired
 	private SrvEntidade srvEntidade;
+
+	@Autowired
+	private CacheEntidadeLogada cacheEntidadeLogada;
+
+	@Autowired
+	private CodificadorSenha codificadorSenha;
 	
 	public Date getUltimoAcessoEntidadeLogada (String login) {
 		
@@ -30,6 +38,15 @@ public class EntidadeController extends ImplementacaoCrud <Entidade> implements
 		srvEntidade.updateUltimoAcessoUser(name);
 			
 	}
+
+	/**
+	 * Grava o último acesso do usuário em segundo plano (ver SrvEntidade).
+	 */
+	public void registrarUltimoAcesso(String name) {
+
+		srvEntidade.registrarUltimoAcesso(name);
+
+	}
 	
 	public Entidade findUserLogado(String userLogado)  throws Exception{
 		
@@ -41,8 +58,75 @@ public class EntidadeController extends ImplementacaoCrud <Entidade> implements
 	public boolean existeCpf(String cpf) throws Exception {
 
 		
-		return super.findListByQueryDinamic("from Entidade where cpf = '" + cpf + "'").size() > 0;
+		return super.countByConsulta(new ConsultaParametrizada<Entidade>(Entidade.class).igual("cpf", cpf)) > 0;
 		
 	}
 
+	// Gravações da Entidade: a senha digitada é gravada como hash, e o usuário
+	// sai do cache de logados (senha, acessos, inativação)
+
+	@Override
+	public void save(Entidade obj) throws Exception {
+		codificaSenha(obj);
+		super.save(obj);
+	}
+
+	@Override
+	public void persist(Entidade obj) throws Exception {
+		codificaSenha(obj);
+		super.persist(obj);
+	}
+
+	@Override
+	public void saveOrUpdate(Entidade obj) throws Exception {
+		codificaSenha(obj);
+		super.saveOrUpdate(obj);
+		cacheEntidadeLogada.invalidar(obj);
+	}
+
+	@Override
+	public void update(Entidade obj) throws Exception {
+		codificaSenha(obj);
+		super.update(obj);
+		cacheEntidadeLogada.invalidar(obj);
+	}
+
+	@Override
+	public Entidade merge(Entidade obj) throws Exception {
+		codificaSenha(obj);
+		Entidade entidade = super.merge(obj);
+		cacheEntidadeLogada.invalidar(entidade);
+		return entidade;
+	}
+
+	@Override
+	public void delete(Entidade obj) throws Exception {
+		super.delete(obj);
+		cacheEntidadeLogada.invalidar(obj);
+	}
+
+	@Override
+	public void inativar(Entidade obj) throws Exception {
+		super.inativar(obj);
+		cacheEntidadeLogada.invalidar(obj);
+	}
+
+	/**
+	 * Troca a senha em texto puro (digitada na tela) pelo hash. Senha já
+	 * codificada (registro carregado do banco) não é alterada.
+	 */
+	private void codificaSenha(Entidade obj) {
+		String senha = obj.getEnt_senha();
+		if (senha != null && !senha.isEmpty() && !codificadorSenha.isCodificada(senha)) {
+			obj.setEnt_senha(codificadorSenha.encode(senha));
+		}
+	}
+
+	/**
+	 * @return true quando a senha digitada confere com a gravada na Entidade.
+	 */
+	public boolean senhaConfere(Entidade entidade, String senhaDigitada) {
+		return codificadorSenha.matches(senhaDigitada, entidade.getEnt_senha());
+	}
+
 }
@@ -1,14 +1,15 @@
 package br.com.project.geral.controller;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
 import javax.faces.model.SelectItem;
 
 import org.springframework.stereotype.Controller;
 
 import br.com.framwork.implementacao.crud.ImplementacaoCrud;
 import br.com.framwork.interfac.crud.InterfaceCrud;
+import br.com.project.been.geral.RegistroListaSelecao;
 import br.com.project.model.classes.Estado;
 
 
@@ -21,41 +22,49 @@ public class EstadoController extends ImplementacaoCrud<Estado> implements Inter
 
 	
 	
-	  /**
-     * ✅ Método responsável por retornar uma lista de objetos SelectItem, utilizados em componentes
-     * JSF como <p:selectOneMenu> para listar os estados dinamicamente do banco de dados.     */
-	public List<SelectItem> getListEstado() throws Exception {
-
-		
-		// ✅ Criação de uma lista de SelectItem. Cada item dessa lista representará um estado
-        // com um valor (o objeto Estado) e o texto exibido na tela (nome do estado).
-		List<SelectItem> selectItems = new ArrayList<SelectItem>();
-
-		// ✅ Busca todos os estados no banco de dados utilizando uma consulta HQL (Hibernate Query Language).
-        // O método 'findListByQueryDinamic' está definido na classe ImplementacaoCrud, herdada por essa classe.
-		List<Estado> estados = super.findListByQueryDinamic(" from Estado order by est_nome");
-
-		// ✅ Percorre todos os estados retornados e adiciona à lista de SelectItem
-        // Cada item terá como valor o próprio objeto Estado, e como label o nome do estado.
-		for (Estado estado : estados) {
-
-			
-			// ✅ Cria um novo item de seleção (SelectItem) para ser usado em componentes JSF (ex: <p:selectOneMenu>).
-			// O primeiro parâmetro (estado) será o valor real enviado ao bean ao submeter o formulário.
-			// O segundo parâmetro (estado.getEst_nome()) será o texto visível na interface para o usuário final.
-			//
-			// Exemplo prático: Suponha que temos um estado com ID = 5 e nome = "Paraná".
-			// Neste caso, será criado um SelectItem equivalente a:
-			// <option value="5">Paraná</option> (JSF trata isso internamente com objetos).
-			//
-			// Isso permite que, ao selecionar um estado na interface, o JSF saiba qual objeto Estado foi escolhido.
-			selectItems.add(new SelectItem(estado, estado.getEst_nome()));
-
-		}
+	/**
+	 * ✅ Registra, uma única vez para toda a aplicação, a lista de seleção de estados.
+	 * Os itens são montados no primeiro acesso e reaproveitados por todas as sessões
+	 * até que um estado seja gravado (o ImplementacaoCrud invalida a lista).
+	 */
+	@PostConstruct
+	public void registrarListaSelecao() {
+		RegistroListaSelecao.registrar(Estado.class, " from Estado order by est_nome",
+				new RegistroListaSelecao.Rotulo<Estado>() {
+					@Override
+					public String getRotulo(Estado estado) {
+						// ✅ O texto visível na interface é o nome do estado; o valor do SelectItem
+						// é uma cópia do Estado (convertida pelo EstadoConverter).
+						return estado.getEst_nome();
+					}
+				}, new RegistroListaSelecao.Valor<Estado>() {
+					@Override
+					public Object getValor(Estado estado) {
+						return copiaParaSelecao(estado);
+					}
+				});
+	}
 
-		 // ✅ Retorna a lista de SelectItem para ser usada na view JSF (por exemplo, em um menu dropdown).
-		return selectItems;
+	/**
+	 * ✅ Cópia do estado só com id, UF e nome, para a lista compartilhada. O objeto
+	 * carregado não pode ser guardado: a coleção lazy "cidade" dele pertence a uma
+	 * sessão já fechada. O EstadoConverter usa só o id e, no submit, busca o estado
+	 * na sessão da requisição; o equals (por id) valida a opção escolhida.
+	 */
+	private static Estado copiaParaSelecao(Estado estado) {
+		Estado copia = new Estado();
+		copia.setEst_id(estado.getEst_id());
+		copia.setEst_uf(estado.getEst_uf());
+		copia.setEst_nome(estado.getEst_nome());
+		return copia;
+	}
 
+	/**
+	 * ✅ Retorna a lista de SelectItem, utilizada em componentes JSF como <p:selectOneMenu>,
+	 * com os estados cadastrados. A lista é compartilhada e somente leitura.
+	 */
+	public List<SelectItem> getListEstado() throws Exception {
+		return RegistroListaSelecao.getItens(Estado.class);
 	}
 
 }
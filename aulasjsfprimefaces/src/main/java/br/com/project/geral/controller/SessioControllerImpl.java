@@ -1,75 +1,356 @@
 package br.com.project.geral.controller;
 
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.faces.bean.ApplicationScoped;
 import javax.servlet.http.HttpSession;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.web.session.HttpSessionDestroyedEvent;
+
+import br.com.repository.interfaces.RepositorySessao;
+
 /**
  * Implementação da interface {@link SessionController}, responsável
  * por controlar sessões HTTP ativas na aplicação.
- * 
+ *
  * <p>Este bean é anotado com {@code @ApplicationScoped}, ou seja,
  * terá uma única instância compartilhada em toda a aplicação web.</p>
- * 
- * <p>Utiliza um {@code HashMap<String, HttpSession>} interno
- * para associar uma chave identificadora do usuário (login ou ID)
- * à sessão HTTP correspondente.</p>
- * 
- * <p><b>Importante:</b> O uso de {@code ApplicationScoped} com sessões
- * exige cuidado com concorrência, pois múltiplos usuários poderão acessar
- * este bean simultaneamente. Em aplicações críticas, considere utilizar
- * estruturas concorrentes como {@code ConcurrentHashMap}.</p>
- * 
+ *
+ * <p>Os registros ficam em mapas concorrentes, pois o bean é acessado por
+ * várias requisições ao mesmo tempo:</p>
+ * <ul>
+ *   <li><b>sessoesPorUsuario:</b> login -> (id da sessão -> sessão), permitindo
+ *   várias sessões por usuário;</li>
+ *   <li><b>usuarioPorSessao:</b> id da sessão -> login, para remover a sessão
+ *   quando ela é destruída.</li>
+ * </ul>
+ *
+ * <p>As sessões são guardadas por {@link WeakReference}: o controle não impede
+ * que o container libere uma sessão. A remoção é feita pelo evento
+ * {@link HttpSessionDestroyedEvent}, publicado pelo HttpSessionEventPublisher
+ * (HttpSessionListener registrado no web.xml) em timeout, logout ou invalidação.
+ * Como nem toda sessão gera o evento (ex: sessão migrada para outro nó, evento
+ * perdido), uma varredura periódica descarta também as referências já
+ * liberadas e as sessões expiradas, e os mapas não crescem sem limite.</p>
+ *
+ * <p>O controle só conhece as sessões deste nó. Em cluster, invalidateSession
+ * também marca as sessões do usuário no {@link RepositorySessao}; cada nó
+ * encerra as suas pelo SessionRegistryCompartilhado, que chama
+ * {@link #invalidarSessaoLocal(String)}.</p>
+ *
  * @author SeuNome
  */
 @ApplicationScoped
-public class SessioControllerImpl implements SessionController {
+public class SessioControllerImpl implements SessionController, ApplicationListener<HttpSessionDestroyedEvent> {
 
     private static final long serialVersionUID = 1L;
 
     /**
-     * Mapa que armazena sessões ativas, associadas à chave do usuário.
-     * 
+     * Sessões ativas por usuário.
+     *
      * <p><b>Chave:</b> Login ou identificador único do usuário<br>
-     * <b>Valor:</b> Objeto {@link HttpSession} correspondente</p>
+     * <b>Valor:</b> id da sessão -> referência fraca à {@link HttpSession}</p>
      */
-    private HashMap<String, HttpSession> hashMap = new HashMap<>();
+    private final transient ConcurrentMap<String, ConcurrentMap<String, WeakReference<HttpSession>>> sessoesPorUsuario = new ConcurrentHashMap<String, ConcurrentMap<String, WeakReference<HttpSession>>>();
 
     /**
-     * Adiciona uma nova sessão HTTP ao mapa de sessões ativas.
-     * 
+     * Dono de cada sessão registrada (id da sessão -> login).
+     */
+    private final transient ConcurrentMap<String, String> usuarioPorSessao = new ConcurrentHashMap<String, String>();
+
+    /** Maior quantidade de sessões ativas ao mesmo tempo. */
+    private final AtomicInteger picoSessoesAtivas = new AtomicInteger();
+
+    /** Intervalo entre as varreduras de sessões liberadas ou expiradas. */
+    private static final long INTERVALO_VARREDURA_MINUTOS = 5L;
+
+    private transient ScheduledExecutorService agendadorVarredura;
+
+    @Autowired
+    private transient RepositorySessao repositorySessao;
+
+    @PostConstruct
+    public void iniciar() {
+
+        agendadorVarredura = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "controle-sessao");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        agendadorVarredura.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    removerSessoesEncerradas();
+                } catch (Exception e) {
+                    // A próxima varredura tenta de novo
+                    e.printStackTrace();
+                }
+            }
+        }, INTERVALO_VARREDURA_MINUTOS, INTERVALO_VARREDURA_MINUTOS, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void finalizar() {
+        if (agendadorVarredura != null) {
+            agendadorVarredura.shutdownNow();
+        }
+    }
+
+    /**
+     * Adiciona uma sessão HTTP às sessões ativas do usuário.
+     *
      * @param KeyLoginUser identificador do usuário (login ou ID)
      * @param httpSession sessão HTTP atual do usuário
      */
     @Override
     public void addSession(String KeyLoginUser, HttpSession httpSession) {
-        hashMap.put(KeyLoginUser, httpSession);
+
+        String idSessao = httpSession.getId();
+
+        // A mesma sessão pode ter trocado de usuário (novo login sem logout)
+        String usuarioAnterior = usuarioPorSessao.put(idSessao, KeyLoginUser);
+
+        if (usuarioAnterior != null && !usuarioAnterior.equals(KeyLoginUser)) {
+            removeDoUsuario(usuarioAnterior, idSessao);
+        }
+
+        WeakReference<HttpSession> referencia = new WeakReference<HttpSession>(httpSession);
+
+        while (true) {
+
+            ConcurrentMap<String, WeakReference<HttpSession>> sessoes = sessoesPorUsuario.get(KeyLoginUser);
+
+            if (sessoes == null) {
+                ConcurrentMap<String, WeakReference<HttpSession>> novas = new ConcurrentHashMap<String, WeakReference<HttpSession>>();
+                sessoes = sessoesPorUsuario.putIfAbsent(KeyLoginUser, novas);
+                if (sessoes == null) {
+                    sessoes = novas;
+                }
+            }
+
+            removeReferenciasLiberadas(KeyLoginUser, sessoes);
+            sessoes.put(idSessao, referencia);
+
+            // O mapa do usuário pode ter sido descartado (ficou vazio) enquanto a sessão era incluída
+            if (sessoesPorUsuario.get(KeyLoginUser) == sessoes) {
+                break;
+            }
+        }
+
+        atualizaPico();
     }
 
     /**
-     * Encerra (invalida) a sessão do usuário identificado pela chave informada.
-     * Se a sessão ainda estiver ativa, ela será encerrada.
-     * 
-     * <p>Após a invalidação, a entrada é removida do {@code hashMap}.</p>
-     * 
+     * Encerra (invalida) todas as sessões do usuário identificado pela chave
+     * informada e as remove do controle.
+     *
      * @param KeyLoginUser identificador do usuário (login ou ID)
      */
     @Override
     public void invalidateSession(String KeyLoginUser) {
-        HttpSession session = hashMap.get(KeyLoginUser);
+
+        if (KeyLoginUser == null) {
+            return;
+        }
+
+        try {
+            // Sessões do usuário em outros nós: encerradas pelo nó dono
+            repositorySessao.marcarInvalidacaoUsuario(KeyLoginUser);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        ConcurrentMap<String, WeakReference<HttpSession>> sessoes = sessoesPorUsuario.remove(KeyLoginUser);
+
+        if (sessoes == null) {
+            return;
+        }
+
+        for (Map.Entry<String, WeakReference<HttpSession>> entrada : sessoes.entrySet()) {
+
+            usuarioPorSessao.remove(entrada.getKey(), KeyLoginUser);
+
+            HttpSession session = entrada.getValue().get();
+
+            if (session != null) {
+                try {
+                    // Encerra a sessão do usuário
+                    session.invalidate();
+                } catch (IllegalStateException e) {
+                    // Sessão já invalidada pelo container
+                } catch (Exception e) {
+                    // Registra o erro, mas não impede a remoção das demais
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeSession(HttpSession httpSession) {
+
+        String idSessao = httpSession.getId();
+
+        String usuario = usuarioPorSessao.remove(idSessao);
+
+        if (usuario != null) {
+            removeDoUsuario(usuario, idSessao);
+        }
+    }
+
+    @Override
+    public void invalidarSessaoLocal(String idSessao) {
+
+        String usuario = usuarioPorSessao.remove(idSessao);
+
+        if (usuario == null) {
+            return;
+        }
+
+        ConcurrentMap<String, WeakReference<HttpSession>> sessoes = sessoesPorUsuario.get(usuario);
+        WeakReference<HttpSession> referencia = sessoes == null ? null : sessoes.get(idSessao);
+
+        removeDoUsuario(usuario, idSessao);
+
+        HttpSession session = referencia == null ? null : referencia.get();
 
         if (session != null) {
             try {
-                // Encerra a sessão do usuário
                 session.invalidate();
-            } catch (Exception e) {
-                // Registra o erro, mas não impede a remoção do mapa
-                e.printStackTrace();
+            } catch (IllegalStateException e) {
+                // Sessão já invalidada pelo container
+            }
+        }
+    }
+
+    /**
+     * Sessão destruída (timeout, logout ou invalidate): sai do controle.
+     */
+    @Override
+    public void onApplicationEvent(HttpSessionDestroyedEvent event) {
+        removeSession(event.getSession());
+    }
+
+    @Override
+    public int getTotalSessoesAtivas() {
+        return usuarioPorSessao.size();
+    }
+
+    @Override
+    public int getTotalUsuariosAtivos() {
+        return sessoesPorUsuario.size();
+    }
+
+    @Override
+    public int getPicoSessoesAtivas() {
+        return picoSessoesAtivas.get();
+    }
+
+    @Override
+    public int getTotalSessoesUsuario(String KeyLoginUser) {
+        ConcurrentMap<String, WeakReference<HttpSession>> sessoes = KeyLoginUser == null ? null
+                : sessoesPorUsuario.get(KeyLoginUser);
+        return sessoes == null ? 0 : sessoes.size();
+    }
+
+    @Override
+    public Map<String, Integer> getSessoesPorUsuario() {
+        Map<String, Integer> resultado = new HashMap<String, Integer>();
+        for (Map.Entry<String, ConcurrentMap<String, WeakReference<HttpSession>>> entrada : sessoesPorUsuario.entrySet()) {
+            resultado.put(entrada.getKey(), entrada.getValue().size());
+        }
+        return resultado;
+    }
+
+    /**
+     * Remove a sessão do mapa do usuário e descarta o mapa quando ficar vazio.
+     */
+    private void removeDoUsuario(String usuario, String idSessao) {
+
+        ConcurrentMap<String, WeakReference<HttpSession>> sessoes = sessoesPorUsuario.get(usuario);
+
+        if (sessoes != null) {
+            sessoes.remove(idSessao);
+            if (sessoes.isEmpty()) {
+                sessoesPorUsuario.remove(usuario, sessoes);
+            }
+        }
+    }
+
+    /**
+     * Descarta sessões já liberadas pelo container sem evento de destruição
+     * (ex: sessão serializada e restaurada em outro nó).
+     */
+    private void removeReferenciasLiberadas(String usuario, ConcurrentMap<String, WeakReference<HttpSession>> sessoes) {
+        Iterator<Map.Entry<String, WeakReference<HttpSession>>> iterator = sessoes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, WeakReference<HttpSession>> entrada = iterator.next();
+            if (entrada.getValue().get() == null) {
+                usuarioPorSessao.remove(entrada.getKey(), usuario);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove do controle as sessões liberadas pelo container, invalidadas ou
+     * inativas além do tempo limite, mesmo sem HttpSessionDestroyedEvent.
+     */
+    void removerSessoesEncerradas() {
+
+        long agora = System.currentTimeMillis();
+
+        for (Map.Entry<String, ConcurrentMap<String, WeakReference<HttpSession>>> usuario : sessoesPorUsuario.entrySet()) {
+
+            for (Map.Entry<String, WeakReference<HttpSession>> entrada : usuario.getValue().entrySet()) {
+
+                if (isEncerrada(entrada.getValue().get(), agora)) {
+                    usuarioPorSessao.remove(entrada.getKey(), usuario.getKey());
+                    removeDoUsuario(usuario.getKey(), entrada.getKey());
+                }
             }
         }
+    }
+
+    private static boolean isEncerrada(HttpSession session, long agora) {
+
+        if (session == null) {
+            return true;
+        }
+
+        try {
+            int maximoInativo = session.getMaxInactiveInterval();
+            return maximoInativo > 0 && agora - session.getLastAccessedTime() > maximoInativo * 1000L;
+        } catch (IllegalStateException e) {
+            // Sessão já invalidada
+            return true;
+        }
+    }
 
-        // Remove a referência da sessão do mapa, mesmo se já inválida
-        hashMap.remove(KeyLoginUser);
+    private void atualizaPico() {
+        int ativas = usuarioPorSessao.size();
+        int pico;
+        do {
+            pico = picoSessoesAtivas.get();
+        } while (ativas > pico && !picoSessoesAtivas.compareAndSet(pico, ativas));
     }
 }
@@ -1,6 +1,7 @@
 package br.com.project.geral.controller;
 
 import java.io.Serializable;
+import java.util.Map;
 
 import javax.faces.bean.ApplicationScoped;
 import javax.servlet.http.HttpSession;
@@ -15,7 +16,9 @@ import javax.servlet.http.HttpSession;
  * <p>Essa interface define métodos para:</p>
  * <ul>
  *   <li>Adicionar uma sessão ao controle (addSession)</li>
- *   <li>Invalidar uma sessão específica (invalidateSession)</li>
+ *   <li>Invalidar as sessões de um usuário (invalidateSession)</li>
+ *   <li>Remover do controle uma sessão encerrada (removeSession)</li>
+ *   <li>Consultar contadores de sessões ativas (planejamento de capacidade)</li>
  * </ul>
  * 
  * <p>Ela estende Serializable para permitir que possa ser armazenada
@@ -35,10 +38,55 @@ public interface SessionController extends Serializable {
     void addSession(String KeyLoginUser, HttpSession httpSession);
 
     /**
-     * Invalida (encerra) a sessão associada à chave do usuário.
-     * Caso a sessão exista, ela será encerrada e removida do controle.
+     * Invalida (encerra) as sessões associadas à chave do usuário.
+     * Um mesmo usuário pode ter várias sessões (navegadores diferentes); todas
+     * são encerradas e removidas do controle. As sessões do usuário em outros
+     * nós do cluster são marcadas no repositório de sessões e encerradas pelo
+     * nó dono.
      *
      * @param KeyLoginUser chave identificadora do usuário (por exemplo, login ou ID)
      */
     void invalidateSession(String KeyLoginUser);
+
+    /**
+     * Remove do controle uma sessão encerrada (timeout, logout ou invalidação),
+     * sem invalidá-la.
+     *
+     * @param httpSession sessão HTTP que está sendo destruída
+     */
+    void removeSession(HttpSession httpSession);
+
+    /**
+     * Invalida a sessão deste nó com o id informado, se estiver no controle.
+     * Usado para encerrar sessões marcadas por outro nó do cluster.
+     *
+     * @param idSessao id da sessão HTTP
+     */
+    void invalidarSessaoLocal(String idSessao);
+
+    /**
+     * @return quantidade de sessões com usuário logado no momento.
+     */
+    int getTotalSessoesAtivas();
+
+    /**
+     * @return quantidade de usuários distintos com ao menos uma sessão ativa.
+     */
+    int getTotalUsuariosAtivos();
+
+    /**
+     * @return maior quantidade de sessões ativas ao mesmo tempo desde a inicialização.
+     */
+    int getPicoSessoesAtivas();
+
+    /**
+     * @param KeyLoginUser chave identificadora do usuário
+     * @return quantidade de sessões ativas do usuário.
+     */
+    int getTotalSessoesUsuario(String KeyLoginUser);
+
+    /**
+     * @return cópia do mapa login -> quantidade de sessões ativas.
+     */
+    Map<String, Integer> getSessoesPorUsuario();
 }
@@ -0,0 +1,278 @@
+package br.com.project.geral.controller;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistryImpl;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import br.com.repository.interfaces.RepositorySessao;
+
+/**
+ * SessionRegistry do Spring Security que enxerga as sessões de todos os nós.
+ *
+ * <p>As sessões da JVM local continuam no SessionRegistryImpl (consultado a cada
+ * requisição pelo ConcurrentSessionFilter, sem acesso ao banco). Além disso, cada
+ * sessão é gravada no {@link RepositorySessao}, e a contagem de sessões do
+ * usuário no login (concurrency-control max-sessions) considera os registros
+ * de todos os nós.</p>
+ *
+ * <p>Sessões de outros nós não podem ser encerradas daqui: expirá-las apenas as
+ * marca no repositório. Uma tarefa periódica de cada nó busca as sessões locais
+ * marcadas (logout forçado ou limite de sessões), expira o SessionInformation e
+ * invalida a HttpSession pelo {@link SessionController}.</p>
+ */
+public class SessionRegistryCompartilhado extends SessionRegistryImpl {
+
+	// Intervalo mínimo entre duas gravações do último acesso de uma sessão
+	private static final long INTERVALO_GRAVACAO_ACESSO_MS = 60 * 1000L;
+
+	// Intervalo da busca de sessões locais marcadas para encerramento
+	private static final long INTERVALO_VERIFICACAO_SEGUNDOS = 10L;
+
+	// Intervalo da limpeza de registros de nós que pararam
+	private static final long INTERVALO_LIMPEZA_MINUTOS = 5L;
+
+	@Autowired
+	private RepositorySessao repositorySessao;
+
+	@Autowired
+	private SessionController sessionController;
+
+	/** Minutos sem acesso para um registro ser considerado abandonado (maior que o session-timeout). */
+	private int minutosInativos = 30;
+
+	// Id da sessão -> momento da última gravação do acesso no repositório
+	private final ConcurrentMap<String, Long> ultimaGravacaoAcesso = new ConcurrentHashMap<String, Long>();
+
+	private ScheduledExecutorService agendador;
+
+	@PostConstruct
+	public void iniciar() {
+
+		// Registros deste nó deixados pela execução anterior (parada sem logout):
+		// as HttpSession não existem mais e ainda contariam no max-sessions
+		try {
+			repositorySessao.removerDoNo(RepositorySessao.NO_LOCAL);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		agendador = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "registro-sessao");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		agendador.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				encerrarSessoesMarcadas();
+			}
+		}, INTERVALO_VERIFICACAO_SEGUNDOS, INTERVALO_VERIFICACAO_SEGUNDOS, TimeUnit.SECONDS);
+
+		agendador.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					repositorySessao.removerInativas(minutosInativos);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}, INTERVALO_LIMPEZA_MINUTOS, INTERVALO_LIMPEZA_MINUTOS, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	public void finalizar() {
+		if (agendador != null) {
+			agendador.shutdownNow();
+		}
+	}
+
+	@Override
+	public void registerNewSession(String sessionId, Object principal) {
+
+		super.registerNewSession(sessionId, principal);
+
+		try {
+			repositorySessao.registrar(sessionId, getLogin(principal), RepositorySessao.NO_LOCAL);
+			ultimaGravacaoAcesso.put(sessionId, System.currentTimeMillis());
+		} catch (Exception e) {
+			// Sem o registro compartilhado a sessão continua valendo neste nó
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void removeSessionInformation(String sessionId) {
+
+		super.removeSessionInformation(sessionId);
+
+		ultimaGravacaoAcesso.remove(sessionId);
+
+		try {
+			repositorySessao.remover(sessionId);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Chamado a cada requisição: grava o último acesso no repositório no máximo
+	 * uma vez por INTERVALO_GRAVACAO_ACESSO_MS por sessão.
+	 */
+	@Override
+	public void refreshLastRequest(String sessionId) {
+
+		super.refreshLastRequest(sessionId);
+
+		long agora = System.currentTimeMillis();
+		Long ultimaGravacao = ultimaGravacaoAcesso.get(sessionId);
+
+		if (ultimaGravacao != null && agora - ultimaGravacao < INTERVALO_GRAVACAO_ACESSO_MS) {
+			return;
+		}
+
+		if (getSessionInformation(sessionId) == null) {
+			return;
+		}
+
+		ultimaGravacaoAcesso.put(sessionId, agora);
+
+		try {
+			repositorySessao.atualizarAcesso(sessionId);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Sessões do usuário em todos os nós. As sessões locais vêm do registro em
+	 * memória; as dos outros nós, do repositório.
+	 */
+	@Override
+	public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+
+		List<SessionInformation> locais = super.getAllSessions(principal, includeExpiredSessions);
+
+		List<SessionInformation> registradas;
+
+		try {
+			registradas = repositorySessao.sessoesDoUsuario(getLogin(principal));
+		} catch (Exception e) {
+			// Sem o repositório, vale o controle deste nó
+			e.printStackTrace();
+			return locais;
+		}
+
+		List<SessionInformation> todas = new ArrayList<SessionInformation>(locais);
+
+		Set<String> ids = new HashSet<String>();
+
+		for (SessionInformation local : locais) {
+			ids.add(local.getSessionId());
+		}
+
+		for (SessionInformation registrada : registradas) {
+
+			// Sessão deste nó: o registro em memória já está na lista (ou foi filtrado por estar expirado)
+			if (ids.contains(registrada.getSessionId()) || getSessionInformation(registrada.getSessionId()) != null) {
+				continue;
+			}
+
+			SessionInformation remota = new SessionInformationRemota(principal, registrada.getSessionId(),
+					registrada.getLastRequest(), registrada.isExpired(), repositorySessao);
+
+			if (includeExpiredSessions || !remota.isExpired()) {
+				todas.add(remota);
+			}
+		}
+
+		return todas;
+	}
+
+	/**
+	 * Encerra as sessões deste nó marcadas no repositório por qualquer nó.
+	 */
+	void encerrarSessoesMarcadas() {
+
+		try {
+			for (String idSessao : repositorySessao.sessoesMarcadas(RepositorySessao.NO_LOCAL)) {
+
+				SessionInformation sessao = getSessionInformation(idSessao);
+
+				// O ConcurrentSessionFilter desloga a sessão expirada na próxima requisição
+				if (sessao != null) {
+					sessao.expireNow();
+				}
+
+				// Se a HttpSession estiver no controle de sessões, encerra agora
+				sessionController.invalidarSessaoLocal(idSessao);
+
+				repositorySessao.remover(idSessao);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	public void setMinutosInativos(int minutosInativos) {
+		this.minutosInativos = minutosInativos;
+	}
+
+	private static String getLogin(Object principal) {
+		if (principal instanceof UserDetails) {
+			return ((UserDetails) principal).getUsername();
+		}
+		return String.valueOf(principal);
+	}
+
+	/**
+	 * Sessão de outro nó: expirar marca a sessão no repositório, para o nó dono
+	 * encerrá-la.
+	 */
+	private static final class SessionInformationRemota extends SessionInformation {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient RepositorySessao repositorySessao;
+
+		SessionInformationRemota(Object principal, String sessionId, Date lastRequest, boolean expirada,
+				RepositorySessao repositorySessao) {
+			super(principal, sessionId, lastRequest);
+			this.repositorySessao = repositorySessao;
+			if (expirada) {
+				super.expireNow();
+			}
+		}
+
+		@Override
+		public void expireNow() {
+			super.expireNow();
+			try {
+				repositorySessao.marcarInvalidacaoSessao(getSessionId());
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+}
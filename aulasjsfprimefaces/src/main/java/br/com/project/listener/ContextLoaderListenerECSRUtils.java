@@ -3,11 +3,19 @@ package br.com.project.listener;
 import java.io.Serializable;
 
 import javax.faces.bean.ApplicationScoped;
+import javax.servlet.ServletContextEvent;
 
+import org.hibernate.EntityMode;
+import org.hibernate.metadata.ClassMetadata;
 import org.springframework.web.context.ContextLoaderListener;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
+import br.com.framwork.hibernate.session.HibernateUtil;
+import br.com.framwork.implementacao.crud.ImplementacaoCrud;
+import br.com.project.been.geral.RegistroCampoPesquisa;
+import br.com.project.enums.EstrategiaFlush;
+
 /**
  * Esta classe é uma extensão do {@link ContextLoaderListener} do Spring, e serve como um utilitário
  * para acessar o contexto do Spring em uma aplicação JSF, permitindo o acesso aos beans do Spring
@@ -31,6 +39,26 @@ public class ContextLoaderListenerECSRUtils extends ContextLoaderListener implem
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Sobe o contexto do Spring (Flyway incluso) e, em seguida, o SessionFactory
+     * do Hibernate, já lendo uma única vez os campos de pesquisa das entidades
+     * mapeadas para o RegistroCampoPesquisa. Também aplica a estratégia de flush
+     * configurada no context-param "estrategiaFlush".
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        super.contextInitialized(event);
+
+        String estrategiaFlush = event.getServletContext().getInitParameter("estrategiaFlush");
+        if (estrategiaFlush != null && !estrategiaFlush.trim().isEmpty()) {
+            ImplementacaoCrud.setEstrategiaFlushPadrao(EstrategiaFlush.valueOf(estrategiaFlush.trim()));
+        }
+
+        for (ClassMetadata metadata : HibernateUtil.getSessionFactory().getAllClassMetadata().values()) {
+            RegistroCampoPesquisa.preCarregar(metadata.getMappedClass(EntityMode.POJO));
+        }
+    }
+
     /**
      * Retorna o contexto da aplicação Spring.
      * 
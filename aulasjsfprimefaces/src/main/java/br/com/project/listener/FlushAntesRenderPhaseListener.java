@@ -0,0 +1,96 @@
+package br.com.project.listener;
+
+import java.util.Iterator;
+
+import javax.faces.application.FacesMessage;
+import javax.faces.context.FacesContext;
+import javax.faces.event.ExceptionQueuedEvent;
+import javax.faces.event.ExceptionQueuedEventContext;
+import javax.faces.event.PhaseEvent;
+import javax.faces.event.PhaseId;
+import javax.faces.event.PhaseListener;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.ThreadLocalSessionContext;
+
+import br.com.framwork.hibernate.session.HibernateUtil;
+import br.com.framwork.implementacao.crud.ImplementacaoCrud;
+
+/**
+ * Envia ao banco as gravações pendentes da requisição antes de renderizar a
+ * página (registrado no faces-config.xml).
+ *
+ * Com EstrategiaFlush FIM_REQUISICAO/LOTE_EXPLICITO o FilterOpenSessionInView
+ * só faz o flush/commit depois da página pronta, quando o usuário já recebeu a
+ * mensagem de sucesso. Aqui o flush acontece antes da renderização: uma
+ * violação de constraint ou de versão cai no CustomExceptionHandler, as
+ * mensagens de sucesso da ação são retiradas e a página mostra o erro.
+ *
+ * O commit continua no filtro (a sessão fica aberta para o lazy loading da
+ * renderização); o que ainda pode falhar nele são erros do próprio commit, que
+ * o filtro transforma em resposta de erro.
+ */
+public class FlushAntesRenderPhaseListener implements PhaseListener {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public PhaseId getPhaseId() {
+		return PhaseId.RENDER_RESPONSE;
+	}
+
+	@Override
+	public void beforePhase(PhaseEvent event) {
+
+		if (!ImplementacaoCrud.isGravacaoRequisicao()) {
+			return;
+		}
+
+		SessionFactory sf = HibernateUtil.getSessionFactory();
+
+		// Só usa a sessão já vinculada à thread (não abre uma nova para flush)
+		Session session = ThreadLocalSessionContext.unbind(sf);
+
+		if (session == null) {
+			return;
+		}
+
+		ThreadLocalSessionContext.bind(session);
+
+		if (!session.isOpen() || !session.getTransaction().isActive()) {
+			return;
+		}
+
+		try {
+			session.flush();
+		} catch (RuntimeException e) {
+			tratarErro(event.getFacesContext(), e);
+		}
+	}
+
+	@Override
+	public void afterPhase(PhaseEvent event) {
+	}
+
+	/**
+	 * Retira as mensagens de sucesso da ação e entrega o erro ao ExceptionHandler
+	 * da aplicação (mensagem, rollback e, se for o caso, página de erro).
+	 */
+	private void tratarErro(FacesContext contexto, RuntimeException e) {
+
+		Iterator<FacesMessage> mensagens = contexto.getMessages();
+
+		while (mensagens.hasNext()) {
+			if (FacesMessage.SEVERITY_INFO.equals(mensagens.next().getSeverity())) {
+				mensagens.remove();
+			}
+		}
+
+		contexto.getApplication().publishEvent(contexto, ExceptionQueuedEvent.class,
+				new ExceptionQueuedEventContext(contexto, e));
+
+		contexto.getExceptionHandler().handle();
+	}
+
+}
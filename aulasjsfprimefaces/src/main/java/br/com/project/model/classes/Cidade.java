@@ -15,14 +15,18 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.ForeignKey;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 
 import br.com.project.annotation.IdentificaCampoPesquisa;
 
 @Audited
 @Entity // Define que essa classe é uma entidade JPA.
 @Table(name = "cidade") // Define o nome da tabela no banco.
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // Dado de referência: mantido no cache de segundo nível (ehcache.xml).
 @SequenceGenerator(name = "cidade_seq", sequenceName = "cidade_seq", initialValue = 1, allocationSize = 1)
 // Define o gerador de sequência para o ID.
 public class Cidade implements Serializable {
@@ -37,12 +41,18 @@ public class Cidade implements Serializable {
 
 	
 	
-	@IdentificaCampoPesquisa(descricaoCampo = "Descrição", campoConsulta = "cid_descricao", principal = 1)
+	@IdentificaCampoPesquisa(descricaoCampo = "Descrição", campoConsulta = "cid_descricao", campoNormalizado = "cid_descricao_pesquisa", principal = 1)
 	@Column(length = 100,nullable = false)
 	private String cid_descricao;// Campo obrigatório no banco com no máximo 100 caracteres.
 
+	// Coluna sombra normalizada (sem acento e em maiúscula) usada nas pesquisas,
+	// mantida por trigger no banco (migração v2_pesquisa_normalizada)
+	@NotAudited
+	@Column(name = "cid_descricao_pesquisa", columnDefinition = "text", insertable = false, updatable = false)
+	private String cid_descricao_pesquisa;
+
 	
-	@IdentificaCampoPesquisa(descricaoCampo = "Estado",campoConsulta = "estado.est_nome")
+	@IdentificaCampoPesquisa(descricaoCampo = "Estado",campoConsulta = "estado.est_nome", campoNormalizado = "estado.est_nome_pesquisa")
 	@Basic
 	@ManyToOne
 	@JoinColumn(name = "estado", nullable = false)
@@ -68,6 +78,10 @@ public class Cidade implements Serializable {
 	public void setCid_descricao(String cid_descricao) {
 		this.cid_descricao = cid_descricao;
 	}
+
+	public String getCid_descricao_pesquisa() {
+		return cid_descricao_pesquisa;
+	}
 	public Estado getEstado() {
 		return estado;
 	}
@@ -1,7 +1,9 @@
 package br.com.project.model.classes;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -20,10 +22,12 @@ import javax.persistence.JoinTable;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 
 import org.hibernate.annotations.CollectionOfElements;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.primefaces.json.JSONObject;
 
 import br.com.project.acessos.Permissao;
@@ -79,9 +83,15 @@ public class Entidade implements Serializable {
      * A anotação personalizada @IdentificaCampoPesquisa indica que esse campo
      * pode ser usado em filtros de busca.
      */
-    @IdentificaCampoPesquisa(descricaoCampo = "Nome", campoConsulta = "ent_nomefantasia", principal = 1)
+    @IdentificaCampoPesquisa(descricaoCampo = "Nome", campoConsulta = "ent_nomefantasia", campoNormalizado = "ent_nomefantasia_pesquisa", principal = 1)
     private String ent_nomefantasia;
 
+    // Coluna sombra normalizada (sem acento e em maiúscula) usada nas pesquisas,
+    // mantida por trigger no banco (migração v2_pesquisa_normalizada)
+    @NotAudited
+    @Column(name = "ent_nomefantasia_pesquisa", columnDefinition = "text", insertable = false, updatable = false)
+    private String ent_nomefantasia_pesquisa;
+
     /**
      * Indica se o usuário está inativo (soft delete).
      */
@@ -116,6 +126,13 @@ public class Entidade implements Serializable {
     @Column(name = "esa_codigo", length = 20)
     private Set<String> acessos = new HashSet<String>();
 
+    /**
+     * Acessos convertidos para o enum Permissao (não persistido), ver
+     * getAcessosPermissao().
+     */
+    @Transient
+    private transient volatile AcessosConvertidos acessosConvertidos;
+
 
     // --------------------------- GETTERS E SETTERS --------------------------- //
 
@@ -167,6 +184,10 @@ public class Entidade implements Serializable {
         this.ent_nomefantasia = ent_nomefantasia;
     }
 
+    public String getEnt_nomefantasia_pesquisa() {
+        return ent_nomefantasia_pesquisa;
+    }
+
     public boolean getEnt_inativo() {
         return ent_inativo;
     }
@@ -254,22 +275,74 @@ public class Entidade implements Serializable {
     }
     
     
+    /**
+     * Cópia desanexada da entidade (fora de qualquer sessão Hibernate), com o
+     * próprio conjunto de acessos. Alterações na cópia não chegam ao original.
+     */
+    public Entidade copia() {
+
+        Entidade copia = new Entidade();
+
+        copia.ent_codigo = ent_codigo;
+        copia.ent_login = ent_login;
+        copia.tipoEntidade = tipoEntidade;
+        copia.email = email;
+        copia.ent_senha = ent_senha;
+        copia.ent_nomefantasia = ent_nomefantasia;
+        copia.ent_nomefantasia_pesquisa = ent_nomefantasia_pesquisa;
+        copia.ent_inativo = ent_inativo;
+        copia.cpf = cpf;
+        copia.ent_ultimoacesso = ent_ultimoacesso == null ? null : new Date(ent_ultimoacesso.getTime());
+        copia.acessos = acessos == null ? null : new HashSet<String>(acessos);
+
+        return copia;
+    }
+
+    /**
+     * Acessos da entidade convertidos para o enum {@link Permissao} (EnumSet,
+     * somente leitura). A conversão é feita uma vez e reaproveitada enquanto o
+     * conjunto de acessos não mudar; acessos sem permissão correspondente no enum
+     * são ignorados.
+     */
     public Set<Permissao> getAcessosPermissao(){
-    	
-    	Set<Permissao> permissoes = new HashSet<Permissao>();
-    	
-    	for(String acesso:acessos) {
-    		
-    		for(Permissao acess:Permissao.values()) {
-    			
-    			if(acesso.equalsIgnoreCase(acess.name())) {
-    				permissoes.add(acess);
-    			}
-    			
-    		}
+
+    	Set<String> atuais = acessos;
+    	int assinatura = atuais == null ? 0 : atuais.hashCode();
+
+    	AcessosConvertidos convertidos = acessosConvertidos;
+
+    	if (convertidos == null || convertidos.origem != atuais || convertidos.assinatura != assinatura) {
+    		convertidos = new AcessosConvertidos(atuais, assinatura, Permissao.deAcessos(atuais));
+    		acessosConvertidos = convertidos;
+    	}
+
+    	return convertidos.permissoes;
+    }
+
+    /**
+     * @return true quando a entidade possui a permissão (teste no EnumSet).
+     */
+    public boolean possuiPermissao(Permissao permissao) {
+    	return getAcessosPermissao().contains(permissao);
+    }
+
+    /**
+     * Resultado da conversão e o conjunto de acessos de onde veio (trocados
+     * juntos: a mesma Entidade pode ser lida por várias requisições).
+     */
+    private static final class AcessosConvertidos {
+
+    	private final Set<String> origem;
+
+    	private final int assinatura;
+
+    	private final Set<Permissao> permissoes;
+
+    	AcessosConvertidos(Set<String> origem, int assinatura, EnumSet<Permissao> permissoes) {
+    		this.origem = origem;
+    		this.assinatura = assinatura;
+    		this.permissoes = Collections.unmodifiableSet(permissoes);
     	}
-    	
-    	return permissoes;
     }
 
 }
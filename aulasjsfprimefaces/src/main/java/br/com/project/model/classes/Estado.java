@@ -19,6 +19,8 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
 import org.hibernate.annotations.ForeignKey;
@@ -30,6 +32,7 @@ import br.com.project.annotation.IdentificaCampoPesquisa;
 @Audited
 @Entity
 @Table(name = "estado")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SequenceGenerator(name = "estado_seq", sequenceName = "estado_seq", initialValue = 1, allocationSize = 1 )
 public class Estado implements Serializable{
 
@@ -44,9 +47,15 @@ public class Estado implements Serializable{
 	private String est_uf;
 	
 	
-	@IdentificaCampoPesquisa(descricaoCampo = "Descrição", campoConsulta = "est_nome", principal = 1)
+	@IdentificaCampoPesquisa(descricaoCampo = "Descrição", campoConsulta = "est_nome", campoNormalizado = "est_nome_pesquisa", principal = 1)
 	@Column(length = 100,nullable = false)
 	private String est_nome;
+
+	// Coluna sombra normalizada (sem acento e em maiúscula) usada nas pesquisas,
+	// mantida por trigger no banco (migração v2_pesquisa_normalizada)
+	@NotAudited
+	@Column(name = "est_nome_pesquisa", columnDefinition = "text", insertable = false, updatable = false)
+	private String est_nome_pesquisa;
 	
 	@NotAudited
 	@OneToMany(mappedBy = "estado",orphanRemoval = false)
@@ -88,6 +97,10 @@ public class Estado implements Serializable{
 		this.est_nome = est_nome;
 	}
 
+	public String getEst_nome_pesquisa() {
+		return est_nome_pesquisa;
+	}
+
 	public List<Cidade> getCidade() {
 		return cidade;
 	}
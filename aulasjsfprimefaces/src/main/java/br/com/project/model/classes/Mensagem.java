@@ -22,6 +22,7 @@ import javax.persistence.Version;
 
 import org.hibernate.annotations.ForeignKey;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.primefaces.json.JSONObject;
 
 import br.com.project.annotation.IdentificaCampoPesquisa;
@@ -39,13 +40,13 @@ public class Mensagem implements Serializable {
 	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mensagem_sql")
 	private Long men_codigo;
 
-	@IdentificaCampoPesquisa(descricaoCampo = "Origem", campoConsulta = "usr_origem.ent_nomefantasia", principal = 2)
+	@IdentificaCampoPesquisa(descricaoCampo = "Origem", campoConsulta = "usr_origem.ent_nomefantasia", campoNormalizado = "usr_origem.ent_nomefantasia_pesquisa", principal = 2)
 	@ManyToOne(fetch = FetchType.EAGER)
 	@ForeignKey(name = "usr_origem_fk")
 	@JoinColumn(name = "usr_origem")
 	private Entidade usr_origem = new Entidade();
 
-	@IdentificaCampoPesquisa(descricaoCampo = "Destino", campoConsulta = "usr_destino.ent_nomefantasia", principal = 3)
+	@IdentificaCampoPesquisa(descricaoCampo = "Destino", campoConsulta = "usr_destino.ent_nomefantasia", campoNormalizado = "usr_destino.ent_nomefantasia_pesquisa", principal = 3)
 	@ManyToOne(fetch = FetchType.EAGER)
 	@ForeignKey(name = "usr_destino_fk")
 	@JoinColumn(name = "usr_destino")
@@ -59,14 +60,26 @@ public class Mensagem implements Serializable {
 	@Temporal(TemporalType.TIMESTAMP)
 	private Date men_datahora = new Date();
 
-	@IdentificaCampoPesquisa(descricaoCampo = "Assunto", campoConsulta = "men_assunto")
+	@IdentificaCampoPesquisa(descricaoCampo = "Assunto", campoConsulta = "men_assunto", campoNormalizado = "men_assunto_pesquisa")
 	@Column(length = 80, nullable = false)
 	private String men_assunto;
 
-	@IdentificaCampoPesquisa(descricaoCampo = "Mensagem", campoConsulta = "men_mensagem", principal = 1)
+	// Coluna sombra normalizada (sem acento e em maiúscula) usada nas pesquisas,
+	// mantida por trigger no banco (migração v2_pesquisa_normalizada)
+	@NotAudited
+	@Column(name = "men_assunto_pesquisa", columnDefinition = "text", insertable = false, updatable = false)
+	private String men_assunto_pesquisa;
+
+	@IdentificaCampoPesquisa(descricaoCampo = "Mensagem", campoConsulta = "men_mensagem", campoNormalizado = "men_mensagem_pesquisa", principal = 1)
 	@Column(length = 1000, nullable = false)
 	private String men_mensagem;
 
+	// Coluna sombra normalizada (sem acento e em maiúscula) usada nas pesquisas,
+	// mantida por trigger no banco (migração v2_pesquisa_normalizada)
+	@NotAudited
+	@Column(name = "men_mensagem_pesquisa", columnDefinition = "text", insertable = false, updatable = false)
+	private String men_mensagem_pesquisa;
+
 	private Boolean men_exigirresposta = false;
 
 	@Version
@@ -121,6 +134,10 @@ public class Mensagem implements Serializable {
 		this.men_assunto = men_assunto;
 	}
 
+	public String getMen_assunto_pesquisa() {
+		return men_assunto_pesquisa;
+	}
+
 	public String getMen_mensagem() {
 		return men_mensagem;
 	}
@@ -129,6 +146,10 @@ public class Mensagem implements Serializable {
 		this.men_mensagem = men_mensagem;
 	}
 
+	public String getMen_mensagem_pesquisa() {
+		return men_mensagem_pesquisa;
+	}
+
 	public Boolean getMen_exigirresposta() {
 		return men_exigirresposta;
 	}
@@ -12,13 +12,17 @@ import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 
 import br.com.project.annotation.IdentificaCampoPesquisa;
 
 @Audited
 @Entity
 @Table(name = "pais")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SequenceGenerator(name = "pais_seq", sequenceName = "pais_seq", initialValue = 1, allocationSize = 1 )
 public class Pais implements Serializable {
 
@@ -29,9 +33,15 @@ public class Pais implements Serializable {
 	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pais_seq" )
 	private Long pai_id;
 	
-	@IdentificaCampoPesquisa(descricaoCampo = "Nome", campoConsulta = "pai_nome", principal = 1)
+	@IdentificaCampoPesquisa(descricaoCampo = "Nome", campoConsulta = "pai_nome", campoNormalizado = "pai_nome_pesquisa", principal = 1)
 	@Column(nullable = false, length = 80)
 	private String pai_nome;
+
+	// Coluna sombra normalizada (sem acento e em maiúscula) usada nas pesquisas,
+	// mantida por trigger no banco (migração v2_pesquisa_normalizada)
+	@NotAudited
+	@Column(name = "pai_nome_pesquisa", columnDefinition = "text", insertable = false, updatable = false)
+	private String pai_nome_pesquisa;
 	
 	@Column(nullable = true, length = 15)
 	private String pai_sigla;
@@ -56,6 +66,10 @@ public class Pais implements Serializable {
 		this.pai_nome = pai_nome;
 	}
 
+	public String getPai_nome_pesquisa() {
+		return pai_nome_pesquisa;
+	}
+
 	public String getPai_sigla() {
 		return pai_sigla;
 	}
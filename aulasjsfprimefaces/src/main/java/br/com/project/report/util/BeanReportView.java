@@ -1,14 +1,22 @@
 package br.com.project.report.util;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.primefaces.context.RequestContext;
 import org.primefaces.model.StreamedContent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import net.sf.jasperreports.engine.JRDataSource;
+import br.com.project.enums.SituacaoRelatorio;
 import br.com.project.util.all.BeanViewAbstract;
+import br.com.srv.interfaces.SrvFilaRelatorio;
 
 /**
  * Classe abstrata base para todos os beans de relatórios da aplicação.
@@ -45,7 +53,7 @@ public abstract class BeanReportView extends BeanViewAbstract {
 	protected List<?> listDataBeanCollectionReport;
 
 	/** Mapa de parâmetros a serem enviados ao arquivo .jasper. */
-	protected HashMap<Object, Object> parametrosRelatorio;
+	protected HashMap<String, Object> parametrosRelatorio;
 
 	/** Nome do arquivo .jasper a ser utilizado como template. */
 	protected String nomeRelatorioJasper = "default"; // 
@@ -61,6 +69,13 @@ public abstract class BeanReportView extends BeanViewAbstract {
 	@Autowired
 	private ReportUtil reportUtil;
 
+	/** Fila de geração de relatórios em segundo plano. */
+	@Autowired
+	private SrvFilaRelatorio srvFilaRelatorio;
+
+	/** Id da última tarefa de relatório solicitada em segundo plano. */
+	private String idRelatorio;
+
 	
 	
 	/**
@@ -69,7 +84,7 @@ public abstract class BeanReportView extends BeanViewAbstract {
 	 */		
 	@SuppressWarnings("rawtypes")
 	public BeanReportView() {
-		parametrosRelatorio = new HashMap<Object, Object>();
+		parametrosRelatorio = new HashMap<String, Object>();
 		listDataBeanCollectionReport = new ArrayList();
 	}
 
@@ -108,6 +123,18 @@ public abstract class BeanReportView extends BeanViewAbstract {
 	 */
 	public StreamedContent getArquivoReport() {
 		try {
+			JRDataSource dataSource = criarDataSourceRelatorio();
+
+			if (dataSource != null) {
+				return getReportUtil().geraRelatorio(
+					dataSource,
+					getParametrosRelatorio(),
+					getNomeRelatorioJasper(),
+					getNomeRelatorioSaida(),
+					getTipoRelatorio()
+				);
+			}
+
 			return getReportUtil().geraRelatorio(
 				getListDataBeanCollectionReport(),
 				getParametrosRelatorio(),
@@ -124,6 +151,144 @@ public abstract class BeanReportView extends BeanViewAbstract {
 	
 	
 
+	/**
+	 * Solicita a geração do relatório em segundo plano (botões do
+	 * menuImpressao). A tela acompanha com {@link #atualizarRelatorio()} e baixa
+	 * o arquivo com {@link #baixarRelatorio()} quando estiver pronto.
+	 */
+	public void solicitarRelatorio() throws Exception {
+
+		// O resultado anterior, se já concluído, não será mais baixado
+		srvFilaRelatorio.remover(idRelatorio, getUsuarioRelatorio());
+		idRelatorio = null;
+
+		// Aberta na thread da fila, sem a Session da requisição: a lista da tela teria
+		// associações lazy sem sessão, então só o cursor (Session própria) é aceito
+		FonteDadosRelatorio fonteDados = new FonteDadosRelatorio() {
+			@Override
+			public JRDataSource abrir() throws Exception {
+				JRDataSource dataSource = criarDataSourceRelatorio();
+				if (dataSource == null) {
+					throw new Exception("Relatório " + getNomeRelatorioJasper()
+							+ " não tem fonte de dados para geração em segundo plano (criarDataSourceRelatorio).");
+				}
+				return dataSource;
+			}
+		};
+
+		try {
+			idRelatorio = srvFilaRelatorio.solicitar(getUsuarioRelatorio(), fonteDados,
+					new HashMap<String, Object>(getParametrosRelatorio()),
+					getReportUtil().getPastaRelatorios(getNomeRelatorioJasper()), getNomeRelatorioJasper(),
+					getNomeRelatorioSaida(), getTipoRelatorio());
+		} catch (Exception e) {
+			addMsg(e.getMessage());
+		}
+	}
+
+	/**
+	 * Chamado pelo p:poll: informa à página se ainda deve continuar consultando
+	 * (parâmetro de callback "relatorioEmAndamento").
+	 */
+	public void atualizarRelatorio() throws Exception {
+
+		TarefaRelatorio tarefa = getTarefaRelatorio();
+
+		RequestContext.getCurrentInstance().addCallbackParam("relatorioEmAndamento",
+				tarefa != null && tarefa.getSituacao().isEmAndamento());
+
+		if (tarefa != null && SituacaoRelatorio.ERRO.equals(tarefa.getSituacao())) {
+			addMsg(tarefa.getSituacao().getDescricao() + ": " + tarefa.getMensagemErro());
+			srvFilaRelatorio.remover(idRelatorio, getUsuarioRelatorio());
+			idRelatorio = null;
+		}
+	}
+
+	/**
+	 * Envia o relatório concluído (requisição não ajax) e o descarta da fila.
+	 */
+	public void baixarRelatorio() throws Exception {
+
+		TarefaRelatorio tarefa = getTarefaRelatorio();
+
+		// Reservado até o fim do envio: a expiração não apaga o arquivo no meio do download
+		File arquivo = tarefa != null && SituacaoRelatorio.CONCLUIDO.equals(tarefa.getSituacao())
+				? tarefa.iniciarDownload() : null;
+
+		if (arquivo == null) {
+			addMsg("Relatório não está mais disponível. Solicite novamente.");
+			return;
+		}
+
+		try {
+			getReportUtil().enviaArquivo(arquivo, tarefa.getNomeArquivo(), tarefa.getContentType());
+		} finally {
+			tarefa.terminarDownload();
+		}
+
+		srvFilaRelatorio.remover(idRelatorio, getUsuarioRelatorio());
+		idRelatorio = null;
+	}
+
+	/**
+	 * @return tarefa do último relatório solicitado, ou null.
+	 */
+	public TarefaRelatorio getTarefaRelatorio() {
+		return idRelatorio == null ? null : srvFilaRelatorio.consultar(idRelatorio, getUsuarioRelatorio());
+	}
+
+	public boolean isRelatorioEmAndamento() {
+		TarefaRelatorio tarefa = getTarefaRelatorio();
+		return tarefa != null && tarefa.getSituacao().isEmAndamento();
+	}
+
+	public boolean isRelatorioPronto() {
+		TarefaRelatorio tarefa = getTarefaRelatorio();
+		return tarefa != null && SituacaoRelatorio.CONCLUIDO.equals(tarefa.getSituacao());
+	}
+
+	public int getProgressoRelatorio() {
+		TarefaRelatorio tarefa = getTarefaRelatorio();
+		return tarefa != null ? tarefa.getProgresso() : 0;
+	}
+
+	public String getSituacaoRelatorio() {
+		TarefaRelatorio tarefa = getTarefaRelatorio();
+		return tarefa != null ? tarefa.getSituacao().getDescricao() : "";
+	}
+
+	/**
+	 * Dono das tarefas na fila: o login do usuário ou, sem login, a sessão.
+	 */
+	private String getUsuarioRelatorio() {
+		ExternalContext externalContext = FacesContext.getCurrentInstance().getExternalContext();
+		String usuario = externalContext.getRemoteUser();
+		return usuario != null ? usuario : externalContext.getSessionId(true);
+	}
+	
+	
+	
+
+	/**
+	 * Fonte de dados do relatório lida por cursor (ex:
+	 * {@link DataSourceRelatorioHibernate}), sem carregar todos os registros em
+	 * memória. Quando retorna null (padrão), o download direto usa a lista
+	 * {@link #getListDataBeanCollectionReport()}.
+	 * <p>
+	 * Nos relatórios em segundo plano é chamado na thread da fila: não pode usar
+	 * o FacesContext nem a Session Hibernate da requisição, e é obrigatório (sem
+	 * ele a tarefa termina com erro).
+	 *
+	 * @return fonte de dados ou null
+	 * @throws Exception caso a consulta não possa ser aberta
+	 */
+	protected JRDataSource criarDataSourceRelatorio() throws Exception {
+		return null;
+	}
+	
+	
+	
+
 	/**
 	 * Obtém o tipo de relatório a ser gerado.
 	 *
@@ -177,7 +342,7 @@ public abstract class BeanReportView extends BeanViewAbstract {
 	 *
 	 * @return {@link HashMap} com os parâmetros
 	 */
-	public HashMap<Object, Object> getParametrosRelatorio() {
+	public HashMap<String, Object> getParametrosRelatorio() {
 		return parametrosRelatorio;
 	}
 
@@ -189,7 +354,7 @@ public abstract class BeanReportView extends BeanViewAbstract {
 	 *
 	 * @param parametrosRelatorio {@link HashMap} com os parâmetros
 	 */
-	public void setParametrosRelatorio(HashMap<Object, Object> parametrosRelatorio) {
+	public void setParametrosRelatorio(HashMap<String, Object> parametrosRelatorio) {
 		this.parametrosRelatorio = parametrosRelatorio;
 	}
 
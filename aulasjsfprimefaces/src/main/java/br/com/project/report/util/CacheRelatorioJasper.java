@@ -0,0 +1,167 @@
+package br.com.project.report.util;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+/**
+ * Cache, compartilhado por toda a aplicação, dos modelos de relatório
+ * (JasperReport) já carregados.
+ *
+ * <p>
+ * O .jasper de cada relatório é desserializado uma única vez e reaproveitado
+ * nos downloads seguintes. A cada acesso só é comparada a data de modificação
+ * dos arquivos: quando o .jasper (ou o .jrxml) for substituído, o modelo é
+ * carregado de novo, sem reiniciar a aplicação. Se não existir .jasper, ou se
+ * o .jrxml for mais novo que ele (fonte editada sem recompilar), o modelo é
+ * compilado a partir do .jrxml. Se a compilação falhar (ex: servidor sem
+ * compilador Java) e houver .jasper, ele é usado: os .jasper dos relatórios
+ * ficam versionados junto com os .jrxml e, num checkout, a data dos dois
+ * arquivos não diz qual é o mais novo.
+ * </p>
+ *
+ * <p>
+ * Sub-relatórios: todo parâmetro do relatório do tipo JasperReport cujo nome
+ * seja o de um arquivo da pasta de relatórios (ex:
+ * {@code report_funcionario_subreport1}) recebe o modelo em cache por
+ * {@link #carregarSubRelatorios(JasperReport, String, Map)}. O relatório deve
+ * usar esse parâmetro na subreportExpression (class="JasperReport") em vez do
+ * caminho do arquivo.
+ * </p>
+ */
+public final class CacheRelatorioJasper {
+
+	private static final Log LOG = LogFactory.getLog(CacheRelatorioJasper.class);
+
+	private static final String EXTENSAO_JASPER = ".jasper";
+
+	private static final String EXTENSAO_JRXML = ".jrxml";
+
+	// Caminho do modelo (pasta + nome, sem extensão) -> modelo carregado
+	private static final ConcurrentMap<String, ModeloCarregado> cache = new ConcurrentHashMap<String, ModeloCarregado>();
+
+	private CacheRelatorioJasper() {
+	}
+
+	/**
+	 * @return true quando existe .jasper ou .jrxml do relatório na pasta.
+	 */
+	public static boolean existe(String pasta, String nomeRelatorio) {
+		return new File(pasta + nomeRelatorio + EXTENSAO_JASPER).exists()
+				|| new File(pasta + nomeRelatorio + EXTENSAO_JRXML).exists();
+	}
+
+	/**
+	 * Modelo do relatório, carregado do cache ou do disco.
+	 *
+	 * @param pasta         pasta dos relatórios, terminando com o separador
+	 * @param nomeRelatorio nome do arquivo sem extensão (ex: report_cidade)
+	 * @throws JRException quando o arquivo não existe ou não pode ser carregado.
+	 */
+	public static JasperReport getRelatorio(String pasta, String nomeRelatorio) throws JRException {
+
+		String chave = pasta + nomeRelatorio;
+
+		File jasper = new File(chave + EXTENSAO_JASPER);
+		File jrxml = new File(chave + EXTENSAO_JRXML);
+
+		// lastModified() devolve 0 para arquivo inexistente
+		long modificacaoJasper = jasper.lastModified();
+		long modificacaoJrxml = jrxml.lastModified();
+
+		ModeloCarregado modelo = cache.get(chave);
+
+		if (modelo != null && modelo.modificacaoJasper == modificacaoJasper
+				&& modelo.modificacaoJrxml == modificacaoJrxml) {
+			return modelo.relatorio;
+		}
+
+		JasperReport relatorio;
+
+		if (modificacaoJasper == 0L && modificacaoJrxml == 0L) {
+			throw new JRException("Relatório não encontrado: " + chave);
+		}
+
+		if (modificacaoJasper != 0L && modificacaoJasper >= modificacaoJrxml) {
+			relatorio = (JasperReport) JRLoader.loadObjectFromFile(jasper.getPath());
+		} else {
+			// Sem .jasper ou .jasper desatualizado: compila o .jrxml em memória
+			try {
+				relatorio = JasperCompileManager.compileReport(jrxml.getPath());
+			} catch (JRException e) {
+				if (modificacaoJasper == 0L) {
+					throw e;
+				}
+				LOG.warn("Falha ao compilar " + jrxml.getPath() + "; usando o .jasper existente", e);
+				relatorio = (JasperReport) JRLoader.loadObjectFromFile(jasper.getPath());
+			}
+		}
+
+		// Dois downloads simultâneos podem carregar o mesmo arquivo: o último vence
+		cache.put(chave, new ModeloCarregado(relatorio, modificacaoJasper, modificacaoJrxml));
+
+		return relatorio;
+	}
+
+	/**
+	 * Coloca nos parâmetros os sub-relatórios (em cache) declarados pelo
+	 * relatório, quando ainda não informados pelo chamador.
+	 */
+	public static void carregarSubRelatorios(JasperReport relatorio, String pasta, Map<String, Object> parametros)
+			throws JRException {
+
+		JRParameter[] parametrosRelatorio = relatorio.getParameters();
+
+		if (parametrosRelatorio == null) {
+			return;
+		}
+
+		for (JRParameter parametro : parametrosRelatorio) {
+
+			if (parametro.isSystemDefined() || !JasperReport.class.equals(parametro.getValueClass())
+					|| parametros.containsKey(parametro.getName())) {
+				continue;
+			}
+
+			if (existe(pasta, parametro.getName())) {
+				parametros.put(parametro.getName(), getRelatorio(pasta, parametro.getName()));
+			}
+		}
+	}
+
+	/**
+	 * Descarta todos os modelos carregados.
+	 */
+	public static void limpar() {
+		cache.clear();
+	}
+
+	/**
+	 * Modelo carregado e as datas dos arquivos de onde veio.
+	 */
+	private static final class ModeloCarregado {
+
+		private final JasperReport relatorio;
+
+		private final long modificacaoJasper;
+
+		private final long modificacaoJrxml;
+
+		ModeloCarregado(JasperReport relatorio, long modificacaoJasper, long modificacaoJrxml) {
+			this.relatorio = relatorio;
+			this.modificacaoJasper = modificacaoJasper;
+			this.modificacaoJrxml = modificacaoJrxml;
+		}
+	}
+
+}
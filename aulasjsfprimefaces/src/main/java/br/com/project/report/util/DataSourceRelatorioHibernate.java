@@ -0,0 +1,158 @@
+package br.com.project.report.util;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import br.com.framwork.hibernate.session.HibernateUtil;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.data.JRAbstractBeanDataSource;
+
+/**
+ * Fonte de dados do JasperReports que lê os registros de uma consulta HQL por
+ * cursor (ScrollableResults), um de cada vez, em vez de carregar a tabela
+ * inteira numa lista antes de preencher o relatório.
+ *
+ * <p>
+ * A consulta roda numa Session própria somente leitura (réplica de leitura
+ * quando configurada). A cada {@link #TAMANHO_LOTE} registros a Session é
+ * limpa, então a memória usada não cresce com a quantidade de linhas. Os campos
+ * do relatório são lidos dos getters do objeto corrente, como no
+ * JRBeanCollectionDataSource.
+ * </p>
+ *
+ * <p>
+ * O cursor só anda para frente: não serve para relatórios que percorrem os
+ * dados mais de uma vez. Deve ser sempre fechada com {@link #fechar()} (o
+ * ReportUtil fecha ao final da geração).
+ * </p>
+ *
+ * Exemplo de uso:
+ * <pre>
+ * reportUtil.geraRelatorio(DataSourceRelatorioHibernate.abrir(" from Cidade order by cid_descricao"),
+ *         parametros, "report_cidade", "report_cidade", tipoRelatorio);
+ * </pre>
+ */
+public class DataSourceRelatorioHibernate extends JRAbstractBeanDataSource {
+
+	/** Linhas trazidas do banco a cada ida ao servidor. */
+	private static final int FETCH_SIZE = 500;
+
+	/** Registros processados entre uma limpeza e outra da Session. */
+	private static final int TAMANHO_LOTE = 500;
+
+	private final Session session;
+
+	private final ScrollableResults resultados;
+
+	// Total de registros da consulta; -1 quando não foi contado
+	private final int totalRegistros;
+
+	private Object objetoAtual;
+
+	// Lido por outra thread para exibir o progresso da geração
+	private volatile int lidos;
+
+	private DataSourceRelatorioHibernate(Session session, ScrollableResults resultados, int totalRegistros) {
+		super(true);
+		this.session = session;
+		this.resultados = resultados;
+		this.totalRegistros = totalRegistros;
+	}
+
+	/**
+	 * Abre o cursor da consulta numa Session somente leitura.
+	 *
+	 * @param hql consulta que retorna os objetos do relatório, já ordenada
+	 */
+	public static DataSourceRelatorioHibernate abrir(String hql) throws Exception {
+		return abrir(hql, null);
+	}
+
+	/**
+	 * Abre o cursor da consulta e conta antes os registros, para que o progresso
+	 * da geração possa ser acompanhado ({@link #getTotalRegistros()}).
+	 *
+	 * @param hql         consulta que retorna os objetos do relatório, já ordenada
+	 * @param hqlContagem "select count(...)" equivalente, ou null para não contar
+	 */
+	public static DataSourceRelatorioHibernate abrir(String hql, String hqlContagem) throws Exception {
+
+		Session session = HibernateUtil.openSessionSomenteLeitura(true);
+
+		try {
+			int total = -1;
+
+			if (hqlContagem != null) {
+				Number contagem = (Number) session.createQuery(hqlContagem).uniqueResult();
+				total = contagem != null ? contagem.intValue() : 0;
+			}
+
+			ScrollableResults resultados = session.createQuery(hql).setReadOnly(true).setFetchSize(FETCH_SIZE)
+					.setCacheable(false).scroll(ScrollMode.FORWARD_ONLY);
+
+			return new DataSourceRelatorioHibernate(session, resultados, total);
+
+		} catch (Exception e) {
+			HibernateUtil.fecharSessionSomenteLeitura(session);
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean next() throws JRException {
+
+		// O registro anterior já foi impresso: pode sair da Session
+		if (lidos > 0 && lidos % TAMANHO_LOTE == 0) {
+			session.clear();
+		}
+
+		if (!resultados.next()) {
+			objetoAtual = null;
+			return false;
+		}
+
+		objetoAtual = resultados.get(0);
+		lidos++;
+		return true;
+	}
+
+	@Override
+	public Object getFieldValue(JRField field) throws JRException {
+		return getFieldValue(objetoAtual, field);
+	}
+
+	@Override
+	public void moveFirst() throws JRException {
+		throw new JRException("DataSourceRelatorioHibernate não permite voltar ao início do cursor");
+	}
+
+	/**
+	 * @return registros já entregues ao relatório.
+	 */
+	public int getRegistrosLidos() {
+		return lidos;
+	}
+
+	/**
+	 * @return total de registros da consulta, ou -1 quando não foi contado.
+	 */
+	public int getTotalRegistros() {
+		return totalRegistros;
+	}
+
+	/**
+	 * Fecha o cursor e a Session, devolvendo a conexão ao pool.
+	 */
+	public void fechar() {
+		try {
+			resultados.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			HibernateUtil.fecharSessionSomenteLeitura(session);
+		}
+	}
+
+}
@@ -0,0 +1,17 @@
+package br.com.project.report.util;
+
+import net.sf.jasperreports.engine.JRDataSource;
+
+/**
+ * Abre a fonte de dados de um relatório gerado em segundo plano.
+ *
+ * A abertura acontece na thread do SrvFilaRelatorio, não na thread da
+ * requisição: a implementação não pode usar o FacesContext nem a Session
+ * Hibernate da requisição (use {@link DataSourceRelatorioHibernate}, que abre
+ * Session própria, ou uma lista já carregada).
+ */
+public interface FonteDadosRelatorio {
+
+	JRDataSource abrir() throws Exception;
+
+}
@@ -1,21 +1,28 @@
 package br.com.project.report.util;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
 
-import org.primefaces.model.DefaultStreamedContent;
 import org.primefaces.model.StreamedContent;
+import org.primefaces.util.Constants;
 import org.springframework.stereotype.Component;
 
+import net.sf.jasperreports.engine.JRDataSource;
 import net.sf.jasperreports.engine.JRExporter;
 import net.sf.jasperreports.engine.JRExporterParameter;
+import net.sf.jasperreports.engine.JRParameter;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperReport;
@@ -24,7 +31,7 @@ import net.sf.jasperreports.engine.export.JRHtmlExporter;
 import net.sf.jasperreports.engine.export.JRPdfExporter;
 import net.sf.jasperreports.engine.export.JRXlsExporter;
 import net.sf.jasperreports.engine.export.oasis.JROdsExporter;
-import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.fill.JRGzipVirtualizer;
 
 /**
  * Classe utilitária responsável pela geração de relatórios utilizando
@@ -38,13 +45,22 @@ import net.sf.jasperreports.engine.util.JRLoader;
  * Principais funcionalidades:
  * </p>
  * <ul>
- * <li>Localiza arquivos .jasper no projeto.</li>
- * <li>Gera relatórios com base em uma coleção de dados.</li>
+ * <li>Localiza arquivos .jasper no projeto (mantidos em
+ * {@link CacheRelatorioJasper}).</li>
+ * <li>Gera relatórios com base em uma coleção de dados ou em uma fonte de
+ * dados por cursor ({@link DataSourceRelatorioHibernate}).</li>
  * <li>Define o formato de saída do relatório.</li>
- * <li>Exporta o relatório gerado como arquivo para download.</li>
+ * <li>Exporta o relatório direto na resposta HTTP, para download, sem gravar
+ * arquivo temporário no servidor.</li>
  * </ul>
  * 
  * <p>
+ * As páginas preenchidas ficam em memória só até o limite
+ * {@code MAX_PAGINAS_MEMORIA}; as demais são compactadas em disco pelo
+ * virtualizador do JasperReports e apagadas ao final da exportação.
+ * </p>
+ * 
+ * <p>
  * Frameworks utilizados:
  * </p>
  * <ul>
@@ -75,6 +91,9 @@ public class ReportUtil implements Serializable {
 	/** Parâmetro padrão utilizado em sub-relatórios. */
 	private static final String SUBREPORT_DIR = "SUBREPORT_DIR";
 
+	/** Páginas preenchidas mantidas em memória; as demais vão para o virtualizador. */
+	private static final int MAX_PAGINAS_MEMORIA = 50;
+
 	
 	
 //----------------------------------------------------------------------------------------------------------------------------------------
@@ -88,7 +107,7 @@ public class ReportUtil implements Serializable {
 //----------------------------------------------------------------------------------------------------------------------------------------
 	
 	/** Separador de diretórios conforme o sistema operacional. */
-	private String SEPARATOR = File.separator;
+	private static final String SEPARATOR = File.separator;
 
 	/** Constantes para definição do tipo do relatório exportado. */
 	private static final int RELATORIO_PDF = 1;
@@ -101,40 +120,45 @@ public class ReportUtil implements Serializable {
 	/** Caracter para concatenação dos nomes dos arquivos. */
 	private static final String PONTO = ".";
 
-	/** Arquivo final que será disponibilizado para download. */
-	private StreamedContent arquivoRetorno = null;
-
-	private String caminhoArquivoRelatorio = null;
-	private JRExporter tipoArquivoExportado = null;
-	private String extensaoArquivoExportado = "";
-	private File arquivoGerado = null;
-	private String caminhoSubReport_Dir = "";
-
 	
 // ----------------------------------------------------------------------------------------------------------------------------------
 
 	/**
-	 * Gera um relatório em diversos formatos (PDF, HTML, ODS, Excel) utilizando
-	 * JasperReports, a partir de uma lista de dados e parâmetros informados.
+	 * Gera um relatório a partir de uma lista de objetos já carregada.
 	 * <p>
-	 * O arquivo gerado é armazenado temporariamente no servidor e disponibilizado
-	 * como {@link StreamedContent} para download ou visualização na aplicação web.
+	 * Mantido para relatórios pequenos; para tabelas grandes use
+	 * {@link #geraRelatorio(JRDataSource, HashMap, String, String, int)} com um
+	 * {@link DataSourceRelatorioHibernate}.
 	 *
-	 * @param listDataBeanCollectionReport Lista de objetos (beans) que serão
-	 *                                     utilizados como fonte de dados no
-	 *                                     relatório.
-	 * @param parametroRelatorio           Mapa contendo os parâmetros que serão
-	 *                                     utilizados na construção do relatório.
-	 * @param nomeRelatorioJasper          Nome do arquivo .jasper (modelo compilado
-	 *                                     do relatório) que será utilizado.
-	 * @param nomeRelatorioSaida           Nome base do arquivo de saída que será
-	 *                                     gerado.
-	 * @param tipoRelatorio                Tipo do relatório a ser gerado (PDF,
-	 *                                     HTML, ODS, XLS), definido por constantes
-	 *                                     (ex: RELATORIO_PDF).
+	 * @see #geraRelatorio(JRDataSource, HashMap, String, String, int)
+	 */
+	public StreamedContent geraRelatorio(List<?> listDataBeanCollectionReport, HashMap<String, Object> parametroRelatorio,
+			String nomeRelatorioJasper, String nomeRelatorioSaida, int tipoRelatorio) throws Exception {
+
+// Cria um datasource baseado na lista de objetos recebida
+		return geraRelatorio(new JRBeanCollectionDataSource(listDataBeanCollectionReport), parametroRelatorio,
+				nomeRelatorioJasper, nomeRelatorioSaida, tipoRelatorio);
+	}
+
+	/**
+	 * Gera um relatório em diversos formatos (PDF, HTML, ODS, Excel) utilizando
+	 * JasperReports e escreve o resultado direto na resposta HTTP da requisição
+	 * JSF corrente, como anexo para download.
+	 *
+	 * @param dataSource          Fonte de dados do relatório. Quando for um
+	 *                            {@link DataSourceRelatorioHibernate}, é fechada
+	 *                            ao final, com ou sem erro.
+	 * @param parametroRelatorio  Mapa contendo os parâmetros que serão utilizados
+	 *                            na construção do relatório.
+	 * @param nomeRelatorioJasper Nome do arquivo .jasper (modelo compilado do
+	 *                            relatório) que será utilizado.
+	 * @param nomeRelatorioSaida  Nome base do arquivo de saída que será gerado.
+	 * @param tipoRelatorio       Tipo do relatório a ser gerado (PDF, HTML, ODS,
+	 *                            XLS), definido por constantes (ex:
+	 *                            RELATORIO_PDF).
 	 * 
-	 * @return {@link StreamedContent} contendo o arquivo gerado pronto para
-	 *         download ou visualização.
+	 * @return sempre null: o conteúdo já foi enviado na resposta e a resposta do
+	 *         JSF foi finalizada (o p:fileDownload ignora o retorno nulo).
 	 * 
 	 * @throws Exception Caso ocorra algum erro durante a geração do relatório,
 	 *                   leitura do arquivo ou exportação.
@@ -145,125 +169,229 @@ public class ReportUtil implements Serializable {
 	 *                   <ul>
 	 *                   <li>O método identifica o caminho do relatório de forma
 	 *                   dinâmica.</li>
-	 *                   <li>Verifica a existência do arquivo .jasper
-	 *                   informado.</li>
 	 *                   <li>Suporta sub-relatórios através do parâmetro
 	 *                   {@code SUBREPORT_DIR}.</li>
 	 *                   <li>Define o tipo de exportação com base no parâmetro
 	 *                   {@code tipoRelatorio}.</li>
-	 *                   <li>Gera o arquivo temporário e o exclui automaticamente ao
-	 *                   encerrar a aplicação.</li>
+	 *                   <li>Nenhum arquivo é gravado na pasta de relatórios.</li>
 	 *                   </ul>
 	 */
-
-	
-	
-	public StreamedContent geraRelatorio(List<?> listDataBeanCollectionReport, HashMap parametroRelatorio,
+	public StreamedContent geraRelatorio(JRDataSource dataSource, HashMap<String, Object> parametroRelatorio,
 			String nomeRelatorioJasper, String nomeRelatorioSaida, int tipoRelatorio) throws Exception {
 
-// Cria um datasource baseado na lista de objetos recebida
-		JRBeanCollectionDataSource jrBeanCollectionDataSource = new JRBeanCollectionDataSource(
-				listDataBeanCollectionReport);
+		JRGzipVirtualizer virtualizador = criaVirtualizador();
+
+		try {
 
 // Obtém o contexto do JSF
+			FacesContext context = FacesContext.getCurrentInstance();
+
+			ExternalContext externalContext = context.getExternalContext();
+
+// Preenche o relatório antes de mexer na resposta: um erro aqui não gera download vazio
+			JasperPrint impressoraJasper = preencheRelatorio(dataSource, parametroRelatorio,
+					getPastaRelatorios(nomeRelatorioJasper), nomeRelatorioJasper, virtualizador);
+
+// Adiciona a data atual ao nome do arquivo de saída
+			String nomeArquivo = getNomeArquivo(nomeRelatorioSaida, tipoRelatorio);
+
+// Prepara a resposta HTTP para receber o arquivo como anexo
+			OutputStream saida = preparaResposta(externalContext, nomeArquivo, getContentType(tipoRelatorio));
+
+// Exporta direto na resposta
+			exportaRelatorio(impressoraJasper, tipoRelatorio, saida);
+
+			saida.flush();
+
+// Finaliza a resposta atual do JSF (o conteúdo já foi enviado)
+			context.responseComplete();
+
+			return null;
+
+		} finally {
+// Apaga as páginas compactadas e libera o cursor/conexão da fonte de dados
+			liberaRecursos(dataSource, virtualizador);
+		}
+	}
+
+	/**
+	 * Envia um arquivo já gerado (ex: relatório concluído em segundo plano) como
+	 * anexo na resposta da requisição JSF corrente e finaliza a resposta.
+	 */
+	public void enviaArquivo(File arquivo, String nomeArquivo, String contentType) throws Exception {
+
 		FacesContext context = FacesContext.getCurrentInstance();
 
-// Finaliza a resposta atual do JSF (importante ao gerar arquivos para download)
+		OutputStream saida = preparaResposta(context.getExternalContext(), nomeArquivo, contentType);
+
+		InputStream entrada = new BufferedInputStream(new FileInputStream(arquivo));
+
+		try {
+			byte[] buffer = new byte[8192];
+			int lidos;
+			while ((lidos = entrada.read(buffer)) != -1) {
+				saida.write(buffer, 0, lidos);
+			}
+			saida.flush();
+		} finally {
+			entrada.close();
+		}
+
 		context.responseComplete();
+	}
+
+	/**
+	 * Limpa a resposta, define os cabeçalhos de download e devolve o stream de
+	 * saída.
+	 */
+	private OutputStream preparaResposta(ExternalContext externalContext, String nomeArquivo, String contentType)
+			throws Exception {
+
+		HttpServletResponse response = (HttpServletResponse) externalContext.getResponse();
+		response.reset();
+		response.setContentType(contentType);
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + nomeArquivo + "\"");
+
+// Cookie usado pelo monitorDownload do PrimeFaces para saber que o download começou
+		externalContext.addResponseCookie(Constants.DOWNLOAD_COOKIE, "true", Collections.<String, Object>emptyMap());
+
+		return response.getOutputStream();
+	}
+
+	/**
+	 * Pasta onde estão os modelos do relatório, terminando com o separador.
+	 * <p>
+	 * Usa a pasta {@code /relatorios} da aplicação publicada e, se o modelo não
+	 * estiver lá, a pasta {@code /relatorios} do classpath. Precisa do
+	 * FacesContext: deve ser chamado na thread da requisição.
+	 */
+	public String getPastaRelatorios(String nomeRelatorioJasper) {
 
 // Obtém o contexto do Servlet (necessário para acessar caminhos no servidor)
-		ServletContext servletContext = (ServletContext) context.getExternalContext().getContext();
+		ServletContext servletContext = (ServletContext) FacesContext.getCurrentInstance().getExternalContext()
+				.getContext();
 
 // Recupera o caminho absoluto da pasta de relatórios configurada (FOLDER_RELATORIOS)
 		String caminhoRelatorio = servletContext.getRealPath(FOLDER_RELATORIOS);
 
-// Cria uma referência ao arquivo .jasper do relatório
-		File file = new File(caminhoRelatorio + SEPARATOR + nomeRelatorioJasper + PONTO + "jasper");
+// Verifica se o caminho ou arquivo do relatório (.jasper ou .jrxml) não existem
+		if (caminhoRelatorio == null || caminhoRelatorio.isEmpty()
+				|| !CacheRelatorioJasper.existe(caminhoRelatorio + SEPARATOR, nomeRelatorioJasper)) {
 
-// Verifica se o caminho ou arquivo do relatório não existem
-		if (caminhoRelatorio == null || (caminhoRelatorio != null && caminhoRelatorio.isEmpty()) || (!file.exists())) {
+// Caso não exista, busca o caminho do relatório via getResource (modo alternativo, já termina com "/")
+			return this.getClass().getResource(FOLDER_RELATORIOS).getPath();
+		}
 
-// Caso não exista, busca o caminho do relatório via getResource (modo alternativo)
-			caminhoRelatorio = this.getClass().getResource(FOLDER_RELATORIOS).getPath();
+		return caminhoRelatorio + SEPARATOR;
+	}
 
-// Remove o separador (para compatibilidade de caminho)
-			SEPARATOR = "";
-		}
+	/**
+	 * Virtualizador que mantém em memória só {@code MAX_PAGINAS_MEMORIA} páginas.
+	 * Deve ser liberado com {@link #liberaRecursos(JRDataSource, JRGzipVirtualizer)}.
+	 */
+	public JRGzipVirtualizer criaVirtualizador() {
+		return new JRGzipVirtualizer(MAX_PAGINAS_MEMORIA);
+	}
+
+	/**
+	 * Preenche o relatório com os dados e parâmetros. Não depende do
+	 * FacesContext: pode rodar em segundo plano.
+	 *
+	 * @param pasta pasta dos modelos, obtida por {@link #getPastaRelatorios(String)}
+	 */
+	public JasperPrint preencheRelatorio(JRDataSource dataSource, HashMap<String, Object> parametroRelatorio, String pasta,
+			String nomeRelatorioJasper, JRGzipVirtualizer virtualizador) throws Exception {
 
 // Adiciona o caminho das imagens como parâmetro do relatório
-		parametroRelatorio.put("REPORT_PARAMETERS_IMG", caminhoRelatorio);
+		parametroRelatorio.put("REPORT_PARAMETERS_IMG", pasta);
 
-// Monta o caminho completo do arquivo .jasper
-		String caminhoArquivoJasper = caminhoRelatorio + SEPARATOR + nomeRelatorioJasper + PONTO + "jasper";
+// Obtém o modelo do relatório do cache (só lê o disco quando o arquivo mudou)
+		JasperReport relatorioJasper = CacheRelatorioJasper.getRelatorio(pasta, nomeRelatorioJasper);
 
-// Carrega o relatório .jasper em memória
-		JasperReport relatorioJasper = (JasperReport) JRLoader.loadObjectFromFile(caminhoArquivoJasper);
+// Passa o caminho dos sub-relatórios como parâmetro
+		parametroRelatorio.put(SUBREPORT_DIR, pasta);
 
-// Define o caminho dos sub-relatórios
-		caminhoSubReport_Dir = caminhoRelatorio + SEPARATOR;
+// Passa os sub-relatórios já carregados (parâmetros do tipo JasperReport)
+		CacheRelatorioJasper.carregarSubRelatorios(relatorioJasper, pasta, parametroRelatorio);
 
-// Passa o caminho dos sub-relatórios como parâmetro
-		parametroRelatorio.put(SUBREPORT_DIR, caminhoSubReport_Dir);
+// Páginas além do limite em memória são compactadas pelo virtualizador
+		parametroRelatorio.put(JRParameter.REPORT_VIRTUALIZER, virtualizador);
 
 // Preenche o relatório com os dados e parâmetros
-		JasperPrint impressoraJasper = JasperFillManager.fillReport(relatorioJasper, parametroRelatorio,
-				jrBeanCollectionDataSource);
+		return JasperFillManager.fillReport(relatorioJasper, parametroRelatorio, dataSource);
+	}
+
+	/**
+	 * Exporta o relatório preenchido no formato do tipo informado.
+	 */
+	public void exportaRelatorio(JasperPrint impressoraJasper, int tipoRelatorio, OutputStream saida)
+			throws Exception {
+
+		JRExporter tipoArquivoExportado;
 
-// Define o exportador e a extensão do arquivo de acordo com o tipo do relatório
+// Define o exportador de acordo com o tipo do relatório
 		switch (tipoRelatorio) {
-		case RELATORIO_PDF:
-			tipoArquivoExportado = new JRPdfExporter();
-			extensaoArquivoExportado = EXTENSION_PDF;
-			break;
 		case RELATORIO_HTML:
 			tipoArquivoExportado = new JRHtmlExporter();
-			extensaoArquivoExportado = EXTENSION_HTML;
 			break;
 		case RELATORIO_ODS:
 			tipoArquivoExportado = new JROdsExporter();
-			extensaoArquivoExportado = EXTENSION_ODS;
 			break;
 		case RELATORIO_EXCEL:
 			tipoArquivoExportado = new JRXlsExporter();
-			extensaoArquivoExportado = EXTENSION_XLS;
 			break;
+		case RELATORIO_PDF:
 		default:
-// Caso não seja informado um tipo válido, gera PDF por padrão
+// PDF, ou tipo não informado
 			tipoArquivoExportado = new JRPdfExporter();
-			extensaoArquivoExportado = EXTENSION_PDF;
 			break;
 		}
 
-// Adiciona a data atual ao nome do arquivo de saída
-		nomeRelatorioSaida += UNDERLINE + DateUtil.getDateAtualReportName();
-
-// Monta o caminho completo do arquivo que será gerado
-		caminhoArquivoRelatorio = caminhoRelatorio + SEPARATOR + nomeRelatorioSaida + PONTO + extensaoArquivoExportado;
-
-// Cria a referência do arquivo de saída
-		arquivoGerado = new File(caminhoArquivoRelatorio);
-
-// Define qual relatório será exportado
+// Define qual relatório será exportado e onde
 		tipoArquivoExportado.setParameter(JRExporterParameter.JASPER_PRINT, impressoraJasper);
+		tipoArquivoExportado.setParameter(JRExporterParameter.OUTPUT_STREAM, saida);
+		tipoArquivoExportado.exportReport();
+	}
 
-// Define o local (arquivo) onde o relatório será exportado
-		tipoArquivoExportado.setParameter(JRExporterParameter.OUTPUT_FILE, arquivoGerado);
+	/**
+	 * Apaga as páginas compactadas do virtualizador e fecha a fonte de dados
+	 * quando ela for um {@link DataSourceRelatorioHibernate}.
+	 */
+	public void liberaRecursos(JRDataSource dataSource, JRGzipVirtualizer virtualizador) {
 
-// Executa a exportação do relatório
-		tipoArquivoExportado.exportReport();
+		virtualizador.cleanup();
 
-// Solicita que o arquivo gerado seja excluído ao encerrar a aplicação
-		arquivoGerado.deleteOnExit();
+		if (dataSource instanceof DataSourceRelatorioHibernate) {
+			((DataSourceRelatorioHibernate) dataSource).fechar();
+		}
+	}
 
-// Cria o inputStream com o conteúdo do arquivo gerado
-		InputStream conteudoRelatorio = new FileInputStream(arquivoGerado);
+	/**
+	 * Extensão do arquivo gerado para o tipo de relatório (PDF por padrão).
+	 */
+	public String getExtensao(int tipoRelatorio) {
+		switch (tipoRelatorio) {
+		case RELATORIO_HTML:
+			return EXTENSION_HTML;
+		case RELATORIO_ODS:
+			return EXTENSION_ODS;
+		case RELATORIO_EXCEL:
+			return EXTENSION_XLS;
+		case RELATORIO_PDF:
+		default:
+			return EXTENSION_PDF;
+		}
+	}
 
-// Cria o objeto StreamedContent que será retornado (utilizado para download no JSF)
-		arquivoRetorno = new DefaultStreamedContent(conteudoRelatorio, "application/" + extensaoArquivoExportado,
-				nomeRelatorioSaida + PONTO + extensaoArquivoExportado);
+	public String getContentType(int tipoRelatorio) {
+		return "application/" + getExtensao(tipoRelatorio);
+	}
 
-// Retorna o arquivo pronto para download
-		return arquivoRetorno;
+	/**
+	 * Nome do arquivo de download: nome base + data atual + extensão.
+	 */
+	public String getNomeArquivo(String nomeRelatorioSaida, int tipoRelatorio) {
+		return nomeRelatorioSaida + UNDERLINE + DateUtil.getDateAtualReportName() + PONTO + getExtensao(tipoRelatorio);
 	}
 
 }
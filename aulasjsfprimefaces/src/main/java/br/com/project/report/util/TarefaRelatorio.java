@@ -0,0 +1,181 @@
+package br.com.project.report.util;
+
+import java.io.File;
+
+import br.com.project.enums.SituacaoRelatorio;
+import net.sf.jasperreports.engine.JRDataSource;
+
+/**
+ * Relatório solicitado ao SrvFilaRelatorio: situação, progresso e, quando
+ * concluído, o arquivo gerado (temporário, apagado quando a tarefa sai do
+ * armazenamento de resultados).
+ *
+ * A tarefa é atualizada pela thread que gera o relatório e lida pelas
+ * requisições de acompanhamento (p:poll), por isso os campos mutáveis são
+ * volatile. O arquivo é apagado só depois do último download em andamento
+ * (a tarefa pode expirar enquanto o arquivo ainda está sendo enviado).
+ */
+public class TarefaRelatorio {
+
+	private final String id;
+
+	private final String usuario;
+
+	private final String nomeArquivo;
+
+	private final String contentType;
+
+	private final long criadaEm = System.currentTimeMillis();
+
+	private volatile SituacaoRelatorio situacao = SituacaoRelatorio.AGUARDANDO;
+
+	// Fonte de dados em uso, para o cálculo do progresso
+	private volatile JRDataSource dataSource;
+
+	private volatile File arquivo;
+
+	private volatile String mensagemErro;
+
+	private volatile long concluidaEm;
+
+	// Downloads lendo o arquivo e descarte pedido durante eles (protegidos por this)
+	private int downloads;
+
+	private boolean descartada;
+
+	public TarefaRelatorio(String id, String usuario, String nomeArquivo, String contentType) {
+		this.id = id;
+		this.usuario = usuario;
+		this.nomeArquivo = nomeArquivo;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Percentual aproximado: a leitura dos registros vai até 95% (quando a fonte
+	 * é um {@link DataSourceRelatorioHibernate} com total contado) e a
+	 * exportação completa o restante.
+	 */
+	public int getProgresso() {
+
+		switch (situacao) {
+		case CONCLUIDO:
+			return 100;
+		case EXPORTANDO:
+			return 95;
+		case PREENCHENDO:
+			JRDataSource atual = dataSource;
+			if (atual instanceof DataSourceRelatorioHibernate) {
+				DataSourceRelatorioHibernate cursor = (DataSourceRelatorioHibernate) atual;
+				if (cursor.getTotalRegistros() > 0) {
+					return (int) Math.min(95L, cursor.getRegistrosLidos() * 95L / cursor.getTotalRegistros());
+				}
+			}
+			return 0;
+		default:
+			return 0;
+		}
+	}
+
+	public void iniciarPreenchimento(JRDataSource dataSource) {
+		this.dataSource = dataSource;
+		this.situacao = SituacaoRelatorio.PREENCHENDO;
+	}
+
+	public void iniciarExportacao() {
+		this.situacao = SituacaoRelatorio.EXPORTANDO;
+	}
+
+	public void concluir(File arquivo) {
+		this.arquivo = arquivo;
+		this.dataSource = null;
+		this.concluidaEm = System.currentTimeMillis();
+		this.situacao = SituacaoRelatorio.CONCLUIDO;
+	}
+
+	public void falhar(String mensagemErro) {
+		this.mensagemErro = mensagemErro;
+		this.dataSource = null;
+		this.concluidaEm = System.currentTimeMillis();
+		this.situacao = SituacaoRelatorio.ERRO;
+	}
+
+	/**
+	 * Reserva o arquivo para um download: enquanto não houver
+	 * {@link #terminarDownload()}, o descarte não o apaga.
+	 *
+	 * @return arquivo gerado, ou null quando já foi descartado
+	 */
+	public synchronized File iniciarDownload() {
+		if (arquivo == null || descartada) {
+			return null;
+		}
+		downloads++;
+		return arquivo;
+	}
+
+	/**
+	 * Libera a reserva de {@link #iniciarDownload()}; se a tarefa foi descartada
+	 * nesse meio tempo, apaga o arquivo agora.
+	 */
+	public synchronized void terminarDownload() {
+		downloads--;
+		if (downloads == 0 && descartada) {
+			apagarArquivo();
+		}
+	}
+
+	/**
+	 * Apaga o arquivo gerado, se houver (ou, com download em andamento, ao final dele).
+	 */
+	public synchronized void descartarArquivo() {
+		descartada = true;
+		if (downloads == 0) {
+			apagarArquivo();
+		}
+	}
+
+	private void apagarArquivo() {
+		File atual = arquivo;
+		arquivo = null;
+		if (atual != null && atual.exists() && !atual.delete()) {
+			atual.deleteOnExit();
+		}
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getUsuario() {
+		return usuario;
+	}
+
+	public String getNomeArquivo() {
+		return nomeArquivo;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public long getCriadaEm() {
+		return criadaEm;
+	}
+
+	public SituacaoRelatorio getSituacao() {
+		return situacao;
+	}
+
+	public File getArquivo() {
+		return arquivo;
+	}
+
+	public String getMensagemErro() {
+		return mensagemErro;
+	}
+
+	public long getConcluidaEm() {
+		return concluidaEm;
+	}
+
+}
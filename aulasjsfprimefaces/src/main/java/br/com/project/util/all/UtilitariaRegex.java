@@ -2,15 +2,85 @@ package br.com.project.util.all;
 
 public class UtilitariaRegex {
 
-	
+	// Caracteres acentuados de Latin-1 e Latin Extended-A (U+00C0 a U+017F)...
+	private static final String ACENTUADOS = "\u00C0\u00C1\u00C2\u00C3\u00C4\u00C5\u00C7\u00C8\u00C9\u00CA\u00CB\u00CC\u00CD\u00CE\u00CF\u00D0"
+			+ "\u00D1\u00D2\u00D3\u00D4\u00D5\u00D6\u00D8\u00D9\u00DA\u00DB\u00DC\u00DD\u00E0\u00E1\u00E2\u00E3"
+			+ "\u00E4\u00E5\u00E7\u00E8\u00E9\u00EA\u00EB\u00EC\u00ED\u00EE\u00EF\u00F0\u00F1\u00F2\u00F3\u00F4"
+			+ "\u00F5\u00F6\u00F8\u00F9\u00FA\u00FB\u00FC\u00FD\u00FF\u0100\u0101\u0102\u0103\u0104\u0105\u0106"
+			+ "\u0107\u0108\u0109\u010A\u010B\u010C\u010D\u010E\u010F\u0110\u0111\u0112\u0113\u0114\u0115\u0116"
+			+ "\u0117\u0118\u0119\u011A\u011B\u011C\u011D\u011E\u011F\u0120\u0121\u0122\u0123\u0124\u0125\u0126"
+			+ "\u0127\u0128\u0129\u012A\u012B\u012C\u012D\u012E\u012F\u0130\u0131\u0134\u0135\u0136\u0137\u0139"
+			+ "\u013A\u013B\u013C\u013D\u013E\u013F\u0140\u0141\u0142\u0143\u0144\u0145\u0146\u0147\u0148\u014A"
+			+ "\u014B\u014C\u014D\u014E\u014F\u0150\u0151\u0154\u0155\u0156\u0157\u0158\u0159\u015A\u015B\u015C"
+			+ "\u015D\u015E\u015F\u0160\u0161\u0162\u0163\u0164\u0165\u0166\u0167\u0168\u0169\u016A\u016B\u016C"
+			+ "\u016D\u016E\u016F\u0170\u0171\u0172\u0173\u0174\u0175\u0176\u0177\u0178\u0179\u017A\u017B\u017C"
+			+ "\u017D\u017E\u017F";
+
+	// ...e o caractere sem acento correspondente, na mesma posição (mesma tabela da função retira_acentos do banco)
+	private static final String SEM_ACENTO = "AAAAAACEEEEIIIID"
+			+ "NOOOOOOUUUUYaaaa"
+			+ "aaceeeeiiiidnooo"
+			+ "ooouuuuyyAaAaAaC"
+			+ "cCcCcCcDdDdEeEeE"
+			+ "eEeEeGgGgGgGgHhH"
+			+ "hIiIiIiIiIiJjKkL"
+			+ "lLlLlLlLlNnNnNnN"
+			+ "nOoOoOoRrRrRrSsS"
+			+ "sSsSsTtTtTtUuUuU"
+			+ "uUuUuUuWwYyYZzZz"
+			+ "Zzs";
+
+	// Tabela de troca indexada pelo próprio caractere; posições sem acento guardam o próprio caractere
+	private static final char[] TABELA = new char[0x180];
+
+	static {
+		for (char c = 0; c < TABELA.length; c++) {
+			TABELA[c] = c;
+		}
+		for (int i = 0; i < ACENTUADOS.length(); i++) {
+			TABELA[ACENTUADOS.charAt(i)] = SEM_ACENTO.charAt(i);
+		}
+	}
+
+	/**
+	 * Remove os acentos de uma única passada pela string, consultando a TABELA.
+	 * Mantém maiúsculas e minúsculas (ex: "Ação" -> "Acao"), igual à função
+	 * retira_acentos do PostgreSQL (migração v3_retira_acentos_latin_estendido).
+	 * 
+	 * Se a string não possui acento, retorna a própria string, sem alocar nada.
+	 */
 	public String retiraAcentos(String string) {
-	    String aux = new String(string);
-	    aux = aux.replaceAll("[êéèëÊÉÈË]", "e");
-	    aux = aux.replaceAll("[ûúùüÛÚÙÜ]", "u");
-	    aux = aux.replaceAll("[îíìïÎÍÌÏ]", "i");
-	    aux = aux.replaceAll("[âãáàäÂÃÁÀÄ]", "a");
-	    aux = aux.replaceAll("[ôõóòöÔÕÓÒÖ]", "o");
-	    return aux;
+
+		if (string == null) {
+			return null;
+		}
+
+		int tamanho = string.length();
+		int i = 0;
+
+		// Procura o primeiro caractere que precisa ser trocado
+		while (i < tamanho) {
+			char c = string.charAt(i);
+			if (c < TABELA.length && TABELA[c] != c) {
+				break;
+			}
+			i++;
+		}
+
+		if (i == tamanho) {
+			return string;
+		}
+
+		char[] resultado = string.toCharArray();
+
+		for (; i < tamanho; i++) {
+			char c = resultado[i];
+			if (c < TABELA.length) {
+				resultado[i] = TABELA[c];
+			}
+		}
+
+		return new String(resultado);
 	}
 	
 	
@@ -2,6 +2,7 @@ package br.com.repository.interfaces;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.Map;
 
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,6 +15,7 @@ public interface RepositoryEntidade extends Serializable{
 	
 	Date getUltimoAcessoEntidadeLogada(String name);
 	void updateUltimoAcessoUser(String login);
+	void updateUltimoAcessoUsers(Map<String, Date> acessos);
 	
 	boolean existeUsuario(String ent_login);
 	
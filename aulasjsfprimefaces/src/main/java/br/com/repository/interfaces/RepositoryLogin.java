@@ -39,4 +39,13 @@ public interface RepositoryLogin extends Serializable {
      * @throws Exception Caso ocorra erro ao acessar o banco ou regras de negócio
      */
     boolean autentico(String login, String senha) throws Exception;
+
+    /**
+     * 🔁 Grava a senha, já codificada, do usuário informado.
+     * 
+     * @param login Nome de login do usuário
+     * @param senhaCodificada Hash da senha (CodificadorSenha)
+     * @throws Exception Caso ocorra erro ao acessar o banco
+     */
+    void atualizarSenha(String login, String senhaCodificada) throws Exception;
 }
@@ -0,0 +1,93 @@
+package br.com.repository.interfaces;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.util.List;
+
+import org.springframework.security.core.session.SessionInformation;
+
+/**
+ * 🌐 RepositorySessao
+ * -------------------------------------------------------------
+ * Backend do registro de sessões logadas, compartilhado entre os nós da
+ * aplicação (vários Tomcats atrás de um balanceador).
+ * 
+ * 📌 Implementações (escolhidas no bean "repositorySessao" do applicationContext.xml):
+ * - DaoSessao: tabela sessao_usuario no banco, vale para todos os nós
+ * - DaoSessaoMemoria: mapa em memória, para um único nó
+ * 
+ * ✅ Usado por:
+ * - SessionRegistryCompartilhado: controle de sessão simultânea (max-sessions)
+ * - SessioControllerImpl: logout forçado em qualquer nó
+ * 
+ * ⚠️ As sessões só podem ser encerradas pelo nó dono (a HttpSession está na
+ * JVM dele): os demais nós apenas marcam a sessão, e o dono encerra as
+ * sessões marcadas ao consultar {@link #sessoesMarcadas(String)}.
+ */
+public interface RepositorySessao extends Serializable {
+
+	/**
+	 * Identificador deste nó, o mesmo a cada reinício: propriedade de sistema
+	 * "ecsr.no" ou, sem ela, o host mais o catalina.base (uma instalação do
+	 * Tomcat por pasta).
+	 */
+	String NO_LOCAL = IdentificacaoNo.identificar();
+
+	// Registra a sessão logada do usuário no nó informado
+	void registrar(String idSessao, String login, String no) throws Exception;
+
+	// Remove a sessão (encerrada ou expirada)
+	void remover(String idSessao) throws Exception;
+
+	// Atualiza a data do último acesso da sessão
+	void atualizarAcesso(String idSessao) throws Exception;
+
+	// Sessões do usuário em todos os nós; as marcadas para encerramento vêm expiradas
+	List<SessionInformation> sessoesDoUsuario(String login) throws Exception;
+
+	// Marca todas as sessões do usuário para encerramento; retorna a quantidade marcada
+	int marcarInvalidacaoUsuario(String login) throws Exception;
+
+	// Marca uma sessão para encerramento pelo nó dono
+	void marcarInvalidacaoSessao(String idSessao) throws Exception;
+
+	// Ids das sessões do nó marcadas para encerramento
+	List<String> sessoesMarcadas(String no) throws Exception;
+
+	// Remove sessões sem acesso há mais de minutosInativos (nós que pararam); retorna a quantidade removida
+	int removerInativas(int minutosInativos) throws Exception;
+
+	// Remove todas as sessões do nó (na inicialização: as da execução anterior não existem mais); retorna a quantidade removida
+	int removerDoNo(String no) throws Exception;
+
+	/**
+	 * Calcula o {@link RepositorySessao#NO_LOCAL}.
+	 */
+	final class IdentificacaoNo {
+
+		private IdentificacaoNo() {
+		}
+
+		static String identificar() {
+
+			String no = System.getProperty("ecsr.no");
+
+			if (no != null && !no.trim().isEmpty()) {
+				return no.trim();
+			}
+
+			String host;
+
+			try {
+				host = InetAddress.getLocalHost().getHostName();
+			} catch (Exception e) {
+				host = "localhost";
+			}
+
+			String instalacao = System.getProperty("catalina.base");
+
+			return instalacao != null ? host + ":" + instalacao : host;
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package br.com.srv.implementacao;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+
+import br.com.framwork.hibernate.session.HibernateUtil;
+import br.com.srv.interfaces.SrvContagemRegistro;
+
+/**
+ * Implementação do serviço de contagem de registros em segundo plano.
+ * 
+ * - As contagens rodam num pool pequeno e limitado de threads daemon, cada uma
+ *   com sua própria Session do Hibernate (a Session da requisição não é thread-safe).
+ * - O cache é indexado pela query normalizada (espaços colapsados) + parâmetros.
+ * - Cada entrada expira após TEMPO_VIDA_MS ou quando a entidade é alterada
+ *   pelo ImplementacaoCrud.
+ * - Se a fila estiver cheia (ou o pool já tiver sido encerrado), a contagem
+ *   roda na própria thread da requisição: o Future devolvido sempre termina.
+ */
+@Service
+public class SrvContagemRegistroImpl implements SrvContagemRegistro {
+
+	private static final long serialVersionUID = 1L;
+
+	// Tempo de vida de uma contagem em cache (60 segundos)
+	private static final long TEMPO_VIDA_MS = 60 * 1000L;
+
+	// Quantidade de contagens simultâneas em segundo plano
+	private static final int MAXIMO_THREADS = 2;
+
+	// Contagens aguardando execução antes de rodar na thread da requisição
+	private static final int TAMANHO_FILA = 50;
+
+	// Query normalizada + parâmetros -> contagem em cache
+	private final transient ConcurrentMap<String, ContagemCache> cache = new ConcurrentHashMap<String, ContagemCache>();
+
+	private final transient ThreadPoolExecutor executor = new ThreadPoolExecutor(MAXIMO_THREADS, MAXIMO_THREADS,
+			60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(TAMANHO_FILA), new ThreadFactory() {
+
+				private final AtomicInteger numero = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "contagem-registro-" + numero.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			}, new RejectedExecutionHandler() {
+
+				// Diferente do CallerRunsPolicy, executa também com o pool encerrado
+				@Override
+				public void rejectedExecution(Runnable tarefa, ThreadPoolExecutor executor) {
+					tarefa.run();
+				}
+			});
+
+	@Override
+	public Future<Integer> contar(Class<?> entidade, final String hqlContagem, final Map<String, Object> parametros) {
+
+		String chave = normalizar(hqlContagem, parametros);
+		long agora = System.currentTimeMillis();
+
+		ContagemCache existente = cache.get(chave);
+
+		if (existente != null && !existente.expirou(agora)) {
+			return existente.contagem;
+		}
+
+		FutureTask<Integer> tarefa = new FutureTask<Integer>(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return executarContagem(hqlContagem, parametros);
+			}
+		});
+
+		ContagemCache nova = new ContagemCache(entidade, tarefa, agora + TEMPO_VIDA_MS);
+
+		// Outra requisição pode ter agendado a mesma contagem ao mesmo tempo
+		if (existente == null ? cache.putIfAbsent(chave, nova) != null : !cache.replace(chave, existente, nova)) {
+			ContagemCache concorrente = cache.get(chave);
+			if (concorrente != null) {
+				return concorrente.contagem;
+			}
+		}
+
+		executor.execute(tarefa);
+
+		return tarefa;
+	}
+
+	@Override
+	public void evict(Class<?> entidade) {
+		Iterator<ContagemCache> iterator = cache.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().entidade == entidade) {
+				iterator.remove();
+			}
+		}
+	}
+
+	@Override
+	public void evictAll() {
+		cache.clear();
+	}
+
+	@PreDestroy
+	public void finalizar() {
+		executor.shutdownNow();
+		cache.clear();
+	}
+
+	/**
+	 * Executa o "select count(...)" numa Session própria somente leitura, fora da
+	 * thread da requisição. Usa sempre o banco principal: a contagem fica em cache
+	 * e não pode guardar o atraso de uma réplica.
+	 */
+	private Integer executarContagem(String hqlContagem, Map<String, Object> parametros) throws SQLException {
+
+		Session session = HibernateUtil.openSessionSomenteLeitura(false);
+
+		try {
+			Query query = session.createQuery(hqlContagem);
+
+			if (parametros != null) {
+				for (Map.Entry<String, Object> parametro : parametros.entrySet()) {
+					query.setParameter(parametro.getKey(), parametro.getValue());
+				}
+			}
+
+			Number resultado = (Number) query.uniqueResult();
+
+			return resultado != null ? resultado.intValue() : 0;
+
+		} finally {
+			HibernateUtil.fecharSessionSomenteLeitura(session);
+		}
+	}
+
+	/**
+	 * Chave do cache: a query com os espaços colapsados seguida dos parâmetros
+	 * em ordem alfabética.
+	 */
+	private String normalizar(String hqlContagem, Map<String, Object> parametros) {
+
+		StringBuilder chave = new StringBuilder(hqlContagem.trim().replaceAll("\\s+", " "));
+
+		if (parametros != null && !parametros.isEmpty()) {
+			for (Map.Entry<String, Object> parametro : new TreeMap<String, Object>(parametros).entrySet()) {
+				chave.append('|').append(parametro.getKey()).append('=').append(parametro.getValue());
+			}
+		}
+
+		return chave.toString();
+	}
+
+	/**
+	 * Entrada do cache: entidade consultada, contagem (pronta ou em andamento) e validade.
+	 */
+	private static class ContagemCache {
+
+		private final Class<?> entidade;
+
+		private final Future<Integer> contagem;
+
+		private final long expiraEm;
+
+		ContagemCache(Class<?> entidade, Future<Integer> contagem, long expiraEm) {
+			this.entidade = entidade;
+			this.contagem = contagem;
+			this.expiraEm = expiraEm;
+		}
+
+		boolean expirou(long agora) {
+			// Contagem que falhou não fica em cache
+			if (contagem.isDone()) {
+				try {
+					contagem.get();
+				} catch (Exception e) {
+					return true;
+				}
+			}
+			return agora > expiraEm;
+		}
+	}
+
+}
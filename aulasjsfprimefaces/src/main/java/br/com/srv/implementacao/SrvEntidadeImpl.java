@@ -1,9 +1,24 @@
 package br.com.srv.implementacao;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import br.com.repository.interfaces.RepositoryEntidade;
 import br.com.srv.interfaces.SrvEntidade;
@@ -16,18 +31,126 @@ public class SrvEntidadeImpl  implements SrvEntidade {
 
 	@Autowired
 	private RepositoryEntidade repositoryEntidade;
+
+	// A gravação roda fora de requisição: sem transação explícita ninguém faz o
+	// commit e o pool (sem auto-commit) desfaz o update ao receber a conexão
+	@Autowired
+	private transient PlatformTransactionManager transactionManager;
+
+	private transient TransactionTemplate transacaoAcessos;
+
+	// Intervalo entre as gravações dos últimos acessos acumulados
+	private static final long INTERVALO_GRAVACAO_SEGUNDOS = 5L;
+
+	// Login -> último acesso ainda não gravado (só o mais recente de cada usuário)
+	private final transient ConcurrentMap<String, Date> acessosPendentes = new ConcurrentHashMap<String, Date>();
+
+	// Uma única thread grava os acessos: as gravações nunca concorrem entre si
+	private transient ScheduledExecutorService agendadorAcessos;
+
+	@PostConstruct
+	public void iniciar() {
+
+		transacaoAcessos = new TransactionTemplate(transactionManager);
+
+		agendadorAcessos = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ultimo-acesso");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		agendadorAcessos.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				gravarAcessosPendentes();
+			}
+		}, INTERVALO_GRAVACAO_SEGUNDOS, INTERVALO_GRAVACAO_SEGUNDOS, TimeUnit.SECONDS);
+	}
+
 		
 	@Override
 	public Date getUltimoAcessoEntidadeLogada(String name) {
 		return repositoryEntidade.getUltimoAcessoEntidadeLogada(name);
 	}
 
+	/**
+	 * Não grava na hora: o acesso entra no buffer de gravação (ver
+	 * {@link #registrarUltimoAcesso(String)}).
+	 */
 	public void updateUltimoAcessoUser(String login) {
 		
-		repositoryEntidade.updateUltimoAcessoUser(login);
+		registrarUltimoAcesso(login);
 		
 	}
 
+	@Override
+	public void registrarUltimoAcesso(String login) {
+
+		// Se o usuário já tem acesso pendente, só a hora é atualizada
+		if (login != null) {
+			acessosPendentes.put(login, new Date());
+		}
+	}
+
+	/**
+	 * Grava num só comando, e numa transação própria, todos os acessos
+	 * acumulados desde a última gravação. Em caso de erro, os acessos voltam para o buffer (sem sobrescrever um
+	 * acesso mais novo) e são gravados na próxima vez.
+	 */
+	private void gravarAcessosPendentes() {
+
+		if (acessosPendentes.isEmpty()) {
+			return;
+		}
+
+		final Map<String, Date> acessos = new HashMap<String, Date>();
+
+		for (String login : acessosPendentes.keySet()) {
+			Date acesso = acessosPendentes.remove(login);
+			if (acesso != null) {
+				acessos.put(login, acesso);
+			}
+		}
+
+		if (acessos.isEmpty()) {
+			return;
+		}
+
+		try {
+			transacaoAcessos.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					repositoryEntidade.updateUltimoAcessoUsers(acessos);
+				}
+			});
+		} catch (Exception e) {
+			e.printStackTrace();
+			for (Map.Entry<String, Date> acesso : acessos.entrySet()) {
+				acessosPendentes.putIfAbsent(acesso.getKey(), acesso.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Grava os acessos que ainda estiverem no buffer antes de encerrar.
+	 */
+	@PreDestroy
+	public void finalizar() {
+		if (agendadorAcessos != null) {
+			agendadorAcessos.shutdown();
+			try {
+				agendadorAcessos.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		gravarAcessosPendentes();
+	}
+
+
 	public boolean existeUsuario(String ent_login) {
 		return repositoryEntidade.existeUsuario(ent_login);
 	}
@@ -0,0 +1,263 @@
+package br.com.srv.implementacao;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import br.com.project.report.util.FonteDadosRelatorio;
+import br.com.project.report.util.ReportUtil;
+import br.com.project.report.util.TarefaRelatorio;
+import br.com.srv.interfaces.SrvFilaRelatorio;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.fill.JRGzipVirtualizer;
+
+/**
+ * Implementação da fila de relatórios em segundo plano.
+ * 
+ * - Pool fixo e pequeno de threads daemon com fila limitada: quando a fila
+ *   enche, a solicitação é recusada (não roda na thread da requisição).
+ * - Cada usuário pode ter no máximo MAXIMO_POR_USUARIO relatórios em andamento.
+ * - O arquivo gerado vai para o diretório temporário do servidor e é apagado
+ *   no download, após TEMPO_RETENCAO_MS ou quando o armazenamento passa de
+ *   MAXIMO_RESULTADOS tarefas concluídas (as mais antigas saem primeiro).
+ */
+@Service
+public class SrvFilaRelatorioImpl implements SrvFilaRelatorio {
+
+	private static final long serialVersionUID = 1L;
+
+	// Relatórios gerados ao mesmo tempo
+	private static final int MAXIMO_THREADS = 2;
+
+	// Relatórios aguardando uma thread livre
+	private static final int TAMANHO_FILA = 20;
+
+	// Relatórios em andamento por usuário
+	private static final int MAXIMO_POR_USUARIO = 2;
+
+	// Tempo que um relatório concluído fica disponível para download (10 minutos)
+	private static final long TEMPO_RETENCAO_MS = 10 * 60 * 1000L;
+
+	// Tarefas concluídas guardadas ao mesmo tempo
+	private static final int MAXIMO_RESULTADOS = 50;
+
+	@Autowired
+	private ReportUtil reportUtil;
+
+	// Id da tarefa -> tarefa
+	private final transient ConcurrentMap<String, TarefaRelatorio> tarefas = new ConcurrentHashMap<String, TarefaRelatorio>();
+
+	private final transient ThreadPoolExecutor executor = new ThreadPoolExecutor(MAXIMO_THREADS, MAXIMO_THREADS,
+			60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(TAMANHO_FILA), new ThreadFactory() {
+
+				private final AtomicInteger numero = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "relatorio-" + numero.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	@Override
+	public String solicitar(String usuario, final FonteDadosRelatorio fonteDados,
+			final HashMap<String, Object> parametros, final String pastaRelatorios, final String nomeRelatorioJasper,
+			String nomeRelatorioSaida, final int tipoRelatorio) throws Exception {
+
+		removerExpiradas();
+
+		final TarefaRelatorio tarefa = new TarefaRelatorio(UUID.randomUUID().toString(), usuario,
+				reportUtil.getNomeArquivo(nomeRelatorioSaida, tipoRelatorio), reportUtil.getContentType(tipoRelatorio));
+
+		// Contagem e inclusão juntas, para duas solicitações simultâneas não passarem do limite
+		synchronized (this) {
+			if (contarEmAndamento(usuario) >= MAXIMO_POR_USUARIO) {
+				throw new Exception("Você já possui " + MAXIMO_POR_USUARIO
+						+ " relatórios em geração. Aguarde a conclusão para solicitar outro.");
+			}
+			tarefas.put(tarefa.getId(), tarefa);
+		}
+
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					gerar(tarefa, fonteDados, parametros, pastaRelatorios, nomeRelatorioJasper, tipoRelatorio);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			tarefas.remove(tarefa.getId());
+			throw new Exception("Muitos relatórios em geração no momento. Tente novamente em instantes.");
+		}
+
+		return tarefa.getId();
+	}
+
+	@Override
+	public TarefaRelatorio consultar(String id, String usuario) {
+
+		removerExpiradas();
+
+		if (id == null) {
+			return null;
+		}
+
+		TarefaRelatorio tarefa = tarefas.get(id);
+
+		// Um usuário não enxerga as tarefas de outro
+		if (tarefa == null || !tarefa.getUsuario().equals(usuario)) {
+			return null;
+		}
+
+		return tarefa;
+	}
+
+	@Override
+	public void remover(String id, String usuario) {
+
+		TarefaRelatorio tarefa = consultar(id, usuario);
+
+		// Em andamento a tarefa continua; o arquivo é descartado na expiração
+		if (tarefa != null && !tarefa.getSituacao().isEmAndamento() && tarefas.remove(id, tarefa)) {
+			tarefa.descartarArquivo();
+		}
+	}
+
+	@PreDestroy
+	public void finalizar() {
+		executor.shutdownNow();
+		for (TarefaRelatorio tarefa : tarefas.values()) {
+			tarefa.descartarArquivo();
+		}
+		tarefas.clear();
+	}
+
+	/**
+	 * Gera o relatório na thread do pool: abre a fonte de dados, preenche e
+	 * exporta para um arquivo temporário.
+	 */
+	private void gerar(TarefaRelatorio tarefa, FonteDadosRelatorio fonteDados, HashMap<String, Object> parametros,
+			String pastaRelatorios, String nomeRelatorioJasper, int tipoRelatorio) {
+
+		JRDataSource dataSource = null;
+		JRGzipVirtualizer virtualizador = reportUtil.criaVirtualizador();
+		File arquivo = null;
+
+		try {
+			dataSource = fonteDados.abrir();
+
+			tarefa.iniciarPreenchimento(dataSource);
+
+			JasperPrint impressoraJasper = reportUtil.preencheRelatorio(dataSource, parametros, pastaRelatorios,
+					nomeRelatorioJasper, virtualizador);
+
+			tarefa.iniciarExportacao();
+
+			arquivo = File.createTempFile("relatorio-", "." + reportUtil.getExtensao(tipoRelatorio));
+
+			OutputStream saida = new BufferedOutputStream(new FileOutputStream(arquivo));
+
+			try {
+				reportUtil.exportaRelatorio(impressoraJasper, tipoRelatorio, saida);
+			} finally {
+				saida.close();
+			}
+
+			tarefa.concluir(arquivo);
+
+		} catch (Throwable e) {
+			e.printStackTrace();
+
+			if (arquivo != null && !arquivo.delete()) {
+				arquivo.deleteOnExit();
+			}
+
+			tarefa.falhar(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+
+		} finally {
+			reportUtil.liberaRecursos(dataSource, virtualizador);
+		}
+	}
+
+	private int contarEmAndamento(String usuario) {
+		int total = 0;
+		for (TarefaRelatorio tarefa : tarefas.values()) {
+			if (tarefa.getUsuario().equals(usuario) && tarefa.getSituacao().isEmAndamento()) {
+				total++;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Descarta as tarefas concluídas há mais de TEMPO_RETENCAO_MS e, passando de
+	 * MAXIMO_RESULTADOS, as concluídas mais antigas.
+	 */
+	private void removerExpiradas() {
+
+		long limite = System.currentTimeMillis() - TEMPO_RETENCAO_MS;
+
+		List<TarefaRelatorio> concluidas = new ArrayList<TarefaRelatorio>();
+
+		Iterator<TarefaRelatorio> iterator = tarefas.values().iterator();
+
+		while (iterator.hasNext()) {
+
+			TarefaRelatorio tarefa = iterator.next();
+
+			if (tarefa.getSituacao().isEmAndamento()) {
+				continue;
+			}
+
+			if (tarefa.getConcluidaEm() < limite) {
+				iterator.remove();
+				tarefa.descartarArquivo();
+			} else {
+				concluidas.add(tarefa);
+			}
+		}
+
+		if (concluidas.size() <= MAXIMO_RESULTADOS) {
+			return;
+		}
+
+		Collections.sort(concluidas, new Comparator<TarefaRelatorio>() {
+			@Override
+			public int compare(TarefaRelatorio o1, TarefaRelatorio o2) {
+				return o1.getConcluidaEm() < o2.getConcluidaEm() ? -1
+						: (o1.getConcluidaEm() == o2.getConcluidaEm() ? 0 : 1);
+			}
+		});
+
+		for (int i = 0; i < concluidas.size() - MAXIMO_RESULTADOS; i++) {
+			TarefaRelatorio tarefa = concluidas.get(i);
+			if (tarefas.remove(tarefa.getId(), tarefa)) {
+				tarefa.descartarArquivo();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package br.com.srv.interfaces;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Serviço de contagem de registros das consultas de pesquisa.
+ * 
+ * A contagem roda em segundo plano, para que a primeira página da consulta
+ * seja exibida sem esperar o "select count(...)". O resultado fica em cache
+ * por consulta normalizada até expirar ou até a entidade ser alterada.
+ */
+@Service
+public interface SrvContagemRegistro extends Serializable {
+
+	// Retorna a contagem (em cache ou agendada em segundo plano) da query HQL de contagem
+	Future<Integer> contar(Class<?> entidade, String hqlContagem, Map<String, Object> parametros);
+
+	// Descarta as contagens em cache da entidade (chamado ao salvar/alterar/excluir)
+	void evict(Class<?> entidade);
+
+	// Descarta todas as contagens em cache (updates em massa por HQL/SQL)
+	void evictAll();
+
+}
@@ -10,6 +10,14 @@ public interface SrvEntidade extends Serializable{
 
 	Date getUltimoAcessoEntidadeLogada(String name);
 	void updateUltimoAcessoUser(String login);
+
+	/**
+	 * Registra o último acesso do usuário num buffer em memória, gravado no
+	 * banco a cada poucos segundos, fora da requisição. Vários acessos do mesmo
+	 * usuário no intervalo viram uma única gravação (a do mais recente), e
+	 * todos os usuários do intervalo são gravados num só comando.
+	 */
+	void registrarUltimoAcesso(String login);
 	
 	boolean existeUsuario(String ent_login);
 	
@@ -0,0 +1,34 @@
+package br.com.srv.interfaces;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+import org.springframework.stereotype.Service;
+
+import br.com.project.report.util.FonteDadosRelatorio;
+import br.com.project.report.util.TarefaRelatorio;
+
+/**
+ * Serviço de geração de relatórios em segundo plano.
+ * 
+ * A tela solicita o relatório e recebe o id da tarefa; a geração roda num pool
+ * limitado de threads, fora da thread da requisição. A tela acompanha o
+ * progresso por AJAX (p:poll) e baixa o arquivo quando a tarefa for concluída.
+ * Os arquivos prontos ficam guardados por tempo limitado.
+ */
+@Service
+public interface SrvFilaRelatorio extends Serializable {
+
+	// Agenda a geração e retorna o id da tarefa; lança exceção quando o usuário já
+	// tem o máximo de relatórios em andamento ou a fila está cheia
+	String solicitar(String usuario, FonteDadosRelatorio fonteDados, HashMap<String, Object> parametros,
+			String pastaRelatorios, String nomeRelatorioJasper, String nomeRelatorioSaida, int tipoRelatorio)
+			throws Exception;
+
+	// Tarefa do usuário, ou null quando não existe ou já foi descartada
+	TarefaRelatorio consultar(String id, String usuario);
+
+	// Descarta a tarefa e apaga o arquivo gerado (após o download)
+	void remover(String id, String usuario);
+
+}
@@ -0,0 +1,58 @@
+package teste;
+
+import br.com.project.util.all.UtilitariaRegex;
+
+/**
+ * Micro benchmark de {@link UtilitariaRegex#retiraAcentos(String)}: compara a
+ * versão antiga (cinco String.replaceAll) com a versão por tabela.
+ * 
+ * <p>Executar como aplicação Java (main). Faz aquecimento antes de medir para
+ * o JIT compilar os dois métodos.</p>
+ */
+public class BenchmarkRetiraAcentos {
+
+	private static final String[] TEXTOS = { "São José dos Campos", "CURITIBA", "Florianópolis",
+			"João da Conceição", "maria", "Ribeirão Preto", "GOIÂNIA", "Brasília" };
+
+	private static final int AQUECIMENTO = 200000;
+
+	private static final int ITERACOES = 2000000;
+
+	private static volatile Object consumidor;
+
+	public static void main(String[] args) {
+
+		UtilitariaRegex utilitariaRegex = new UtilitariaRegex();
+
+		for (int i = 0; i < AQUECIMENTO; i++) {
+			consumidor = retiraAcentosRegex(TEXTOS[i % TEXTOS.length]);
+			consumidor = utilitariaRegex.retiraAcentos(TEXTOS[i % TEXTOS.length]);
+		}
+
+		long inicio = System.nanoTime();
+		for (int i = 0; i < ITERACOES; i++) {
+			consumidor = retiraAcentosRegex(TEXTOS[i % TEXTOS.length]);
+		}
+		long regex = System.nanoTime() - inicio;
+
+		inicio = System.nanoTime();
+		for (int i = 0; i < ITERACOES; i++) {
+			consumidor = utilitariaRegex.retiraAcentos(TEXTOS[i % TEXTOS.length]);
+		}
+		long tabela = System.nanoTime() - inicio;
+
+		System.out.println("replaceAll: " + (regex / ITERACOES) + " ns/op");
+		System.out.println("tabela:     " + (tabela / ITERACOES) + " ns/op");
+	}
+
+	// Implementação anterior, mantida aqui apenas para comparação
+	private static String retiraAcentosRegex(String string) {
+		String aux = new String(string);
+		aux = aux.replaceAll("[êéèëÊÉÈË]", "e");
+		aux = aux.replaceAll("[ûúùüÛÚÙÜ]", "u");
+		aux = aux.replaceAll("[îíìïÎÍÌÏ]", "i");
+		aux = aux.replaceAll("[âãáàäÂÃÁÀÄ]", "a");
+		aux = aux.replaceAll("[ôõóòöÔÕÓÒÖ]", "o");
+		return aux;
+	}
+}
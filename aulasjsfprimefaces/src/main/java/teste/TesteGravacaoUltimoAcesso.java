@@ -0,0 +1,156 @@
+package teste;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import br.com.framwork.hibernate.session.DataSourceSessaoHibernate;
+import br.com.repository.interfaces.RepositoryEntidade;
+import br.com.srv.implementacao.SrvEntidadeImpl;
+
+/**
+ * Teste unitário da gravação em segundo plano do último acesso
+ * ({@link SrvEntidadeImpl}).
+ *
+ * <p>Usa HSQLDB em memória com conexões sem auto-commit, como as do pool do
+ * Tomcat (defaultAutoCommit="false"): o que não for confirmado é desfeito
+ * quando a conexão é fechada. O repositório grava pelo
+ * {@link DataSourceSessaoHibernate}, como o DaoEntidade, mas com SQL portável
+ * (o do DaoEntidade é específico do PostgreSQL).</p>
+ *
+ * <p>Realiza testes usando JUnit 4.</p>
+ */
+public class TesteGravacaoUltimoAcesso {
+
+	private DriverManagerDataSource dataSource;
+
+	private JdbcTemplate consulta;
+
+	@Before
+	public void criarBanco() {
+
+		// Conexões como as do pool: sem auto-commit
+		dataSource = new DriverManagerDataSource() {
+			@Override
+			protected Connection getConnectionFromDriver(Properties props) throws SQLException {
+				Connection conexao = super.getConnectionFromDriver(props);
+				conexao.setAutoCommit(false);
+				return conexao;
+			}
+		};
+		dataSource.setDriverClassName("org.hsqldb.jdbcDriver");
+		dataSource.setUrl("jdbc:hsqldb:mem:ultimoacesso");
+		dataSource.setUsername("sa");
+		dataSource.setPassword("");
+
+		consulta = new JdbcTemplate(new DataSourceSessaoHibernate(dataSource));
+
+		executarConfirmado("create table entidade (ent_login varchar(50), ent_ultimoacesso timestamp)");
+		executarConfirmado("insert into entidade (ent_login) values ('admin')");
+	}
+
+	@After
+	public void apagarBanco() {
+		executarConfirmado("drop table entidade");
+	}
+
+	/**
+	 * O acesso registrado tem que estar gravado (confirmado) depois que o
+	 * serviço é finalizado, lido por outra conexão.
+	 */
+	@Test
+	public void testAcessoGravadoNoBanco() throws Exception {
+
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+		SrvEntidadeImpl srvEntidade = new SrvEntidadeImpl();
+		atribuir(srvEntidade, "repositoryEntidade", new RepositorioTeste(consulta));
+		atribuir(srvEntidade, "transactionManager", transactionManager);
+
+		srvEntidade.iniciar();
+		srvEntidade.registrarUltimoAcesso("admin");
+		srvEntidade.finalizar(); // grava o que ficou no buffer
+
+		Connection conexao = dataSource.getConnection();
+		try {
+			ResultSet resultado = conexao.createStatement().executeQuery(
+					"select ent_ultimoacesso from entidade where ent_login = 'admin'");
+			assertTrue(resultado.next());
+			assertNotNull("O último acesso não foi confirmado no banco", resultado.getTimestamp(1));
+		} finally {
+			conexao.close();
+		}
+	}
+
+	private void executarConfirmado(String sql) {
+		try {
+			Connection conexao = dataSource.getConnection();
+			try {
+				conexao.createStatement().execute(sql);
+				conexao.commit();
+			} finally {
+				conexao.close();
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void atribuir(Object alvo, String campo, Object valor) throws Exception {
+		Field field = alvo.getClass().getDeclaredField(campo);
+		field.setAccessible(true);
+		field.set(alvo, valor);
+	}
+
+	/**
+	 * Repositório com SQL portável, gravando pelo mesmo DataSource dos beans JDBC.
+	 */
+	private static final class RepositorioTeste implements RepositoryEntidade {
+
+		private static final long serialVersionUID = 1L;
+
+		private final JdbcTemplate jdbcTemplate;
+
+		RepositorioTeste(JdbcTemplate jdbcTemplate) {
+			this.jdbcTemplate = jdbcTemplate;
+		}
+
+		@Override
+		public Date getUltimoAcessoEntidadeLogada(String name) {
+			return null;
+		}
+
+		@Override
+		public void updateUltimoAcessoUser(String login) {
+			jdbcTemplate.update("update entidade set ent_ultimoacesso = ? where ent_login = ?",
+					new Object[] { new Date(), login });
+		}
+
+		@Override
+		public void updateUltimoAcessoUsers(Map<String, Date> acessos) {
+			for (Map.Entry<String, Date> acesso : acessos.entrySet()) {
+				jdbcTemplate.update("update entidade set ent_ultimoacesso = ? where ent_login = ?",
+						new Object[] { acesso.getValue(), acesso.getKey() });
+			}
+		}
+
+		@Override
+		public boolean existeUsuario(String ent_login) {
+			return false;
+		}
+	}
+
+}
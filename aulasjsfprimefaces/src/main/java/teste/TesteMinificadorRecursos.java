@@ -0,0 +1,154 @@
+package teste;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import javax.script.Compilable;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import br.com.project.filter.MinificadorRecursos;
+
+/**
+ * Classe de teste unitário para {@link MinificadorRecursos}.
+ *
+ * <p>Cobre os casos que um minificador por caracteres costuma quebrar
+ * (expressões regulares, strings com // ou /*, comentários de licença) e
+ * minifica os javascripts do projeto (resources/javascript), lidos como
+ * ISO-8859-1, igual ao RegistroRecursosEstaticos.</p>
+ *
+ * <p>Realiza testes usando JUnit 4.</p>
+ */
+public class TesteMinificadorRecursos {
+
+	private static final String PASTA_JAVASCRIPT = "src/main/webapp/resources/javascript/";
+
+	private static final String[] JAVASCRIPTS = { "deployJava.js", "googlechart.js", "jquery.cookie.js",
+			"jquery.maskMoney.min.js", "jquery.maskedinput.js", "scripty.js" };
+
+	/**
+	 * Expressões regulares são copiadas sem alteração, inclusive com barra,
+	 * aspas ou espaço dentro de uma classe de caracteres.
+	 */
+	@Test
+	public void testRegexMantida() {
+		assertEquals("var r=/[/\"' ]+/g;", MinificadorRecursos.minificarJs("var r = /[/\"' ]+/g; // fim"));
+		// Depois de return a barra inicia regex (o espaço não é necessário)
+		assertEquals("function f(x){return/a\\/b/.test(x)}",
+				MinificadorRecursos.minificarJs("function f(x) { return /a\\/b/.test(x) }"));
+		assertEquals("if(/^\\d+$/.test(v))ok()", MinificadorRecursos.minificarJs("if (/^\\d+$/.test(v)) ok()"));
+	}
+
+	/**
+	 * Barra depois de identificador, número ou parêntese é divisão.
+	 */
+	@Test
+	public void testDivisaoNaoViraRegex() {
+		assertEquals("var a=b/c/d;", MinificadorRecursos.minificarJs("var a = b / c / d;"));
+		assertEquals("x=(a+b)/2/n;", MinificadorRecursos.minificarJs("x = (a + b) / 2 / n;"));
+	}
+
+	/**
+	 * // e /* dentro de string não são comentários.
+	 */
+	@Test
+	public void testStringComBarras() {
+		assertEquals("var u=\"http://exemplo.com/a\";",
+				MinificadorRecursos.minificarJs("var u = \"http://exemplo.com/a\"; // endereço"));
+		assertEquals("var s='/* texto */ // texto';",
+				MinificadorRecursos.minificarJs("var s = '/* texto */ // texto';"));
+		assertEquals("var e=\"aspas \\\" e // barra\";",
+				MinificadorRecursos.minificarJs("var e = \"aspas \\\" e // barra\";"));
+	}
+
+	/**
+	 * Comentário de licença (/*!) fica; os demais saem.
+	 */
+	@Test
+	public void testComentarios() {
+		assertEquals("/*! Licença MIT */\nvar a=1;",
+				MinificadorRecursos.minificarJs("/*! Licença MIT */\n/* comum */\nvar a = 1; // fim"));
+		assertEquals("a{color:red}", MinificadorRecursos.minificarCss("/* comum */ a { color: red; }"));
+		assertEquals("/*! Licença */\nb{margin:0}",
+				MinificadorRecursos.minificarCss("/*! Licença */ b { margin: 0; }"));
+	}
+
+	/**
+	 * Quebras de linha ficam (inserção automática de ';') e operadores repetidos
+	 * não se juntam.
+	 */
+	@Test
+	public void testQuebrasEOperadores() {
+		assertEquals("a=1\nb=2", MinificadorRecursos.minificarJs("a = 1\n\n   b = 2"));
+		assertEquals("a=1\nb=2", MinificadorRecursos.minificarJs("a = 1 /* um */\nb = 2"));
+		assertEquals("a b", MinificadorRecursos.minificarJs("a/* separa */b"));
+		assertEquals("x=a+ +b;y=c- -d;", MinificadorRecursos.minificarJs("x = a + +b; y = c - -d;"));
+	}
+
+	/**
+	 * Os javascripts do projeto: a saída é menor, não muda numa segunda
+	 * minificação e mantém os comentários de licença.
+	 */
+	@Test
+	public void testJavascriptsDoProjeto() throws Exception {
+
+		for (String nome : JAVASCRIPTS) {
+
+			String original = ler(PASTA_JAVASCRIPT + nome);
+			String minificado = MinificadorRecursos.minificarJs(original);
+
+			assertTrue(nome, minificado.length() > 0 && minificado.length() <= original.length());
+			assertEquals(nome, minificado, MinificadorRecursos.minificarJs(minificado));
+
+			int licenca = original.indexOf("/*!");
+			if (licenca >= 0) {
+				String comentario = original.substring(licenca, original.indexOf("*/", licenca) + 2);
+				assertTrue(nome, minificado.contains(comentario));
+			}
+		}
+	}
+
+	/**
+	 * A saída dos javascripts do projeto compila no motor javascript da JVM
+	 * (Rhino no Java 7, Nashorn no 8); sem motor o teste é ignorado.
+	 */
+	@Test
+	public void testJavascriptsDoProjetoCompilam() throws Exception {
+
+		ScriptEngine motor = new ScriptEngineManager().getEngineByName("JavaScript");
+		Assume.assumeTrue(motor instanceof Compilable);
+
+		for (String nome : JAVASCRIPTS) {
+			String minificado = MinificadorRecursos.minificarJs(ler(PASTA_JAVASCRIPT + nome));
+			// Só compila: os arquivos dependem do navegador (window, jQuery)
+			((Compilable) motor).compile(minificado);
+		}
+	}
+
+	private String ler(String caminho) throws Exception {
+		File arquivo = new File(caminho);
+		assertTrue(caminho + " não encontrado (executar a partir da pasta do projeto)", arquivo.exists());
+
+		InputStream in = new FileInputStream(arquivo);
+
+		try {
+			ByteArrayOutputStream saida = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int lidos;
+			while ((lidos = in.read(buffer)) != -1) {
+				saida.write(buffer, 0, lidos);
+			}
+			return saida.toString("ISO-8859-1");
+		} finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package teste;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import br.com.project.util.all.UtilitariaRegex;
+
+/**
+ * Classe de teste unitário para {@link UtilitariaRegex#retiraAcentos(String)}.
+ * 
+ * <p>Garante que a tabela Java produz o mesmo resultado que a função
+ * retira_acentos do PostgreSQL, lendo os dois parâmetros do translate()
+ * direto da migração v3_retira_acentos_latin_estendido.sql.</p>
+ * 
+ * <p>Realiza testes usando JUnit 4.</p>
+ */
+public class TesteUtilitariaRegex {
+
+	private static final String MIGRACAO = "db/migration/v3_retira_acentos_latin_estendido.sql";
+
+	private final UtilitariaRegex utilitariaRegex = new UtilitariaRegex();
+
+	/**
+	 * Casos usados nas telas de pesquisa, incluindo ç, ñ e maiúsculas.
+	 */
+	@Test
+	public void testRetiraAcentos() {
+		assertEquals("Sao Paulo", utilitariaRegex.retiraAcentos("São Paulo"));
+		assertEquals("ACAO", utilitariaRegex.retiraAcentos("AÇÃO"));
+		assertEquals("Espana", utilitariaRegex.retiraAcentos("España"));
+		assertEquals("Lodz", utilitariaRegex.retiraAcentos("Łódź"));
+		assertEquals("", utilitariaRegex.retiraAcentos(""));
+		assertNull(utilitariaRegex.retiraAcentos(null));
+	}
+
+	/**
+	 * Sem acento, a própria instância deve ser devolvida (sem alocação).
+	 */
+	@Test
+	public void testSemAcentoRetornaMesmaString() {
+		String texto = "CURITIBA 123";
+		assertSame(texto, utilitariaRegex.retiraAcentos(texto));
+	}
+
+	/**
+	 * Compara caractere a caractere (U+0000 a U+017F) a tabela Java com o
+	 * translate() da função do banco.
+	 */
+	@Test
+	public void testMesmaTabelaDaFuncaoDoBanco() throws Exception {
+
+		String sql = lerMigracao();
+
+		Matcher matcher = Pattern.compile("U&'([^']*)',\\s*'([^']*)'").matcher(sql);
+		assertTrue("translate() não encontrado em " + MIGRACAO, matcher.find());
+
+		String acentuados = decodificarUnicode(matcher.group(1));
+		String semAcento = matcher.group(2);
+
+		assertEquals(acentuados.length(), semAcento.length());
+
+		for (char c = 0; c < 0x180; c++) {
+			int posicao = acentuados.indexOf(c);
+			String esperado = String.valueOf(posicao >= 0 ? semAcento.charAt(posicao) : c);
+
+			assertEquals("U+" + Integer.toHexString(c), esperado, utilitariaRegex.retiraAcentos(String.valueOf(c)));
+		}
+	}
+
+	private String lerMigracao() throws Exception {
+		InputStream in = getClass().getClassLoader().getResourceAsStream(MIGRACAO);
+		assertNotNull(MIGRACAO + " não encontrada no classpath", in);
+
+		try {
+			ByteArrayOutputStream saida = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int lidos;
+			while ((lidos = in.read(buffer)) != -1) {
+				saida.write(buffer, 0, lidos);
+			}
+			return saida.toString("ISO-8859-1");
+		} finally {
+			in.close();
+		}
+	}
+
+	// Converte os escapes \XXXX de uma string U&'...' do PostgreSQL
+	private String decodificarUnicode(String escapado) {
+		StringBuilder texto = new StringBuilder();
+		for (int i = 0; i < escapado.length(); i++) {
+			if (escapado.charAt(i) == '\\') {
+				texto.append((char) Integer.parseInt(escapado.substring(i + 1, i + 5), 16));
+				i += 4;
+			} else {
+				texto.append(escapado.charAt(i));
+			}
+		}
+		return texto.toString();
+	}
+}
@@ -0,0 +1,81 @@
+-- =====================================================================
+-- Pesquisa sem acento indexada
+--
+-- As telas de consulta comparam retira_acentos(upper(cast(coluna as text))),
+-- o que impede o uso de indices e obriga leitura sequencial da tabela.
+-- Cada coluna de texto pesquisavel (@IdentificaCampoPesquisa) ganha uma
+-- coluna sombra "<coluna>_pesquisa" ja normalizada, mantida por trigger e
+-- indexada por btree (igual / inicia com) e trigrama (contem / termina com).
+-- =====================================================================
+
+-- Normalizacao usada pelas consultas e pelas colunas sombra.
+-- IMMUTABLE para poder ser usada em indices e avaliada uma unica vez por parametro.
+create or replace function retira_acentos(text) returns text as $$
+	select translate($1,
+		U&'\00E1\00E0\00E2\00E3\00E4\00E5\00E9\00E8\00EA\00EB\00ED\00EC\00EE\00EF\00F3\00F2\00F4\00F5\00F6\00FA\00F9\00FB\00FC\00E7\00F1\00FD\00FF\00C1\00C0\00C2\00C3\00C4\00C5\00C9\00C8\00CA\00CB\00CD\00CC\00CE\00CF\00D3\00D2\00D4\00D5\00D6\00DA\00D9\00DB\00DC\00C7\00D1\00DD',
+		'aaaaaaeeeeiiiiooooouuuucnyyAAAAAAEEEEIIIIOOOOOUUUUCNY');
+$$ language sql immutable strict;
+
+
+-- pg_trgm permite indice para like '%valor%'. Sem permissao para criar a
+-- extensao, as colunas ficam apenas com o indice btree.
+do $$
+begin
+	create extension if not exists pg_trgm;
+exception when others then
+	raise notice 'pg_trgm indisponivel: %', sqlerrm;
+end;
+$$;
+
+
+-- Cria (ou completa) a coluna sombra de uma coluna pesquisavel:
+-- coluna, trigger de manutencao, carga inicial e indices.
+-- Idempotente: pode ser chamada novamente sem efeito colateral.
+-- Tabelas que ainda nao existem sao ignoradas; a aplicacao chama esta funcao
+-- novamente na inicializacao, depois que o Hibernate cria as tabelas.
+create or replace function criar_coluna_pesquisa(tabela text, coluna text) returns void as $$
+declare
+	sombra text := coluna || '_pesquisa';
+	gatilho text := tabela || '_' || coluna || '_pesquisa_trg';
+begin
+	if not exists (select 1 from information_schema.columns
+			where table_schema = current_schema() and table_name = tabela and column_name = coluna) then
+		return;
+	end if;
+
+	if not exists (select 1 from information_schema.columns
+			where table_schema = current_schema() and table_name = tabela and column_name = sombra) then
+		execute format('alter table %I add column %I text', tabela, sombra);
+	end if;
+
+	execute format('create or replace function %I() returns trigger as '
+		|| '''begin new.%I := retira_acentos(upper(cast(new.%I as text))); return new; end;'' language plpgsql',
+		gatilho, sombra, coluna);
+
+	if not exists (select 1 from pg_trigger where tgname = gatilho) then
+		execute format('create trigger %I before insert or update of %I on %I for each row execute procedure %I()',
+			gatilho, coluna, tabela, gatilho);
+	end if;
+
+	execute format('update %I set %I = retira_acentos(upper(cast(%I as text))) '
+		|| 'where %I is distinct from retira_acentos(upper(cast(%I as text)))',
+		tabela, sombra, coluna, sombra, coluna);
+
+	if not exists (select 1 from pg_class where relname = sombra || '_idx') then
+		execute format('create index %I on %I (%I text_pattern_ops)', sombra || '_idx', tabela, sombra);
+	end if;
+
+	if exists (select 1 from pg_extension where extname = 'pg_trgm')
+			and not exists (select 1 from pg_class where relname = sombra || '_trgm_idx') then
+		execute format('create index %I on %I using gin (%I gin_trgm_ops)', sombra || '_trgm_idx', tabela, sombra);
+	end if;
+end;
+$$ language plpgsql;
+
+
+select criar_coluna_pesquisa('cidade', 'cid_descricao');
+select criar_coluna_pesquisa('estado', 'est_nome');
+select criar_coluna_pesquisa('pais', 'pai_nome');
+select criar_coluna_pesquisa('entidade', 'ent_nomefantasia');
+select criar_coluna_pesquisa('mensagem', 'men_assunto');
+select criar_coluna_pesquisa('mensagem', 'men_mensagem');
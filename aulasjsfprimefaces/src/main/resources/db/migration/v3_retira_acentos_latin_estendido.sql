@@ -0,0 +1,24 @@
+-- =====================================================================
+-- retira_acentos com a mesma tabela da UtilitariaRegex.retiraAcentos (Java)
+--
+-- Cobre Latin-1 e Latin Extended-A (U+00C0 a U+017F), preservando maiusculas
+-- e minusculas. Ligaduras (AE, OE, ss, IJ) e letras sem equivalente simples
+-- nao sao alteradas, pois translate() troca apenas um caractere por outro.
+-- Qualquer alteracao aqui deve ser refletida na tabela Java (e vice-versa);
+-- o teste teste.TesteUtilitariaRegex compara as duas.
+-- =====================================================================
+
+create or replace function retira_acentos(text) returns text as $$
+	select translate($1,
+		U&'\00C0\00C1\00C2\00C3\00C4\00C5\00C7\00C8\00C9\00CA\00CB\00CC\00CD\00CE\00CF\00D0\00D1\00D2\00D3\00D4\00D5\00D6\00D8\00D9\00DA\00DB\00DC\00DD\00E0\00E1\00E2\00E3\00E4\00E5\00E7\00E8\00E9\00EA\00EB\00EC\00ED\00EE\00EF\00F0\00F1\00F2\00F3\00F4\00F5\00F6\00F8\00F9\00FA\00FB\00FC\00FD\00FF\0100\0101\0102\0103\0104\0105\0106\0107\0108\0109\010A\010B\010C\010D\010E\010F\0110\0111\0112\0113\0114\0115\0116\0117\0118\0119\011A\011B\011C\011D\011E\011F\0120\0121\0122\0123\0124\0125\0126\0127\0128\0129\012A\012B\012C\012D\012E\012F\0130\0131\0134\0135\0136\0137\0139\013A\013B\013C\013D\013E\013F\0140\0141\0142\0143\0144\0145\0146\0147\0148\014A\014B\014C\014D\014E\014F\0150\0151\0154\0155\0156\0157\0158\0159\015A\015B\015C\015D\015E\015F\0160\0161\0162\0163\0164\0165\0166\0167\0168\0169\016A\016B\016C\016D\016E\016F\0170\0171\0172\0173\0174\0175\0176\0177\0178\0179\017A\017B\017C\017D\017E\017F',
+		'AAAAAACEEEEIIIIDNOOOOOOUUUUYaaaaaaceeeeiiiidnoooooouuuuyyAaAaAaCcCcCcCcDdDdEeEeEeEeEeGgGgGgGgHhHhIiIiIiIiIiJjKkLlLlLlLlLlNnNnNnNnOoOoOoRrRrRrSsSsSsSsTtTtTtUuUuUuUuUuUuWwYyYZzZzZzs');
+$$ language sql immutable strict;
+
+
+-- Recalcula as colunas sombra com a nova tabela (apenas linhas divergentes)
+select criar_coluna_pesquisa('cidade', 'cid_descricao');
+select criar_coluna_pesquisa('estado', 'est_nome');
+select criar_coluna_pesquisa('pais', 'pai_nome');
+select criar_coluna_pesquisa('entidade', 'ent_nomefantasia');
+select criar_coluna_pesquisa('mensagem', 'men_assunto');
+select criar_coluna_pesquisa('mensagem', 'men_mensagem');
@@ -0,0 +1,40 @@
+-- =====================================================================
+-- Registro compartilhado de sessoes
+--
+-- Com varios Tomcats atras do balanceador, cada no so enxerga as sessoes
+-- da propria JVM. Esta tabela guarda as sessoes logadas de todos os nos:
+-- o controle de sessao simultanea (max-sessions) conta as sessoes do
+-- usuario em qualquer no, e o logout forcado marca as sessoes para que o
+-- no dono de cada uma a encerre (SessionRegistryCompartilhado).
+-- =====================================================================
+
+create table if not exists sessao_usuario (
+	ses_id varchar(128) not null,
+	ses_login varchar(255) not null,
+	ses_no varchar(255) not null,
+	ses_criacao timestamp not null default now(),
+	ses_ultimo_acesso timestamp not null default now(),
+	ses_invalidar boolean not null default false,
+	constraint sessao_usuario_pkey primary key (ses_id)
+);
+
+-- Indices criados so quando ainda nao existem: "create index if not exists"
+-- exige PostgreSQL 9.5, e o banco pode ser mais antigo (driver 9.1)
+do $$
+begin
+	-- Sessoes do usuario (login comparado sem diferenciar maiusculas, como no Spring Security)
+	if not exists (select 1 from pg_class where relname = 'sessao_usuario_login_idx') then
+		create index sessao_usuario_login_idx on sessao_usuario (upper(ses_login));
+	end if;
+
+	-- Sessoes marcadas para encerramento, consultadas periodicamente por cada no
+	if not exists (select 1 from pg_class where relname = 'sessao_usuario_invalidar_idx') then
+		create index sessao_usuario_invalidar_idx on sessao_usuario (ses_no) where ses_invalidar;
+	end if;
+
+	-- Limpeza das sessoes de nos que pararam sem remover os registros
+	if not exists (select 1 from pg_class where relname = 'sessao_usuario_ultimo_acesso_idx') then
+		create index sessao_usuario_ultimo_acesso_idx on sessao_usuario (ses_ultimo_acesso);
+	end if;
+end;
+$$;
@@ -0,0 +1,24 @@
+-- =====================================================================
+-- Indice funcional do login
+--
+-- A autenticacao (Spring Security e DaoLogin) busca o usuario por
+-- upper(ent_login) = upper(?), que nao usa um indice comum em ent_login.
+-- Com este indice a busca deixa de percorrer a tabela entidade inteira.
+--
+-- ent_senha passa a guardar o hash BCrypt (60 caracteres); as senhas em
+-- texto puro sao regravadas como hash no primeiro login de cada usuario.
+--
+-- Em banco novo a tabela ainda nao existe (o Flyway roda antes do
+-- Hibernate); o indice e criado na inicializacao, depois do hbm2ddl
+-- (HibernateUtil.prepararColunasPesquisa).
+-- =====================================================================
+
+do $$
+begin
+	if exists (select 1 from information_schema.tables
+			where table_schema = current_schema() and table_name = 'entidade')
+			and not exists (select 1 from pg_class where relname = 'entidade_login_idx') then
+		create index entidade_login_idx on entidade (upper(ent_login));
+	end if;
+end;
+$$;
@@ -0,0 +1,52 @@
+-- =====================================================================
+-- Carga incremental das colunas sombra de pesquisa
+--
+-- criar_coluna_pesquisa e chamada de novo a cada inicializacao da
+-- aplicacao (HibernateUtil.prepararColunasPesquisa), para completar as
+-- tabelas criadas pelo Hibernate depois das migracoes. A versao da v2
+-- recalculava a tabela inteira a cada chamada (leitura completa e
+-- bloqueio das linhas divergentes em todo deploy). A carga completa ja
+-- foi feita pela v2/v3; daqui em diante so as linhas com a coluna sombra
+-- vazia sao preenchidas, e o trigger mantem as demais.
+-- =====================================================================
+
+create or replace function criar_coluna_pesquisa(tabela text, coluna text) returns void as $$
+declare
+	sombra text := coluna || '_pesquisa';
+	gatilho text := tabela || '_' || coluna || '_pesquisa_trg';
+begin
+	if not exists (select 1 from information_schema.columns
+			where table_schema = current_schema() and table_name = tabela and column_name = coluna) then
+		return;
+	end if;
+
+	if not exists (select 1 from information_schema.columns
+			where table_schema = current_schema() and table_name = tabela and column_name = sombra) then
+		execute format('alter table %I add column %I text', tabela, sombra);
+	end if;
+
+	execute format('create or replace function %I() returns trigger as '
+		|| '''begin new.%I := retira_acentos(upper(cast(new.%I as text))); return new; end;'' language plpgsql',
+		gatilho, sombra, coluna);
+
+	if not exists (select 1 from pg_trigger where tgname = gatilho) then
+		execute format('create trigger %I before insert or update of %I on %I for each row execute procedure %I()',
+			gatilho, coluna, tabela, gatilho);
+	end if;
+
+	-- Carga apenas das linhas ainda sem valor (coluna recem-criada); as demais
+	-- ja sao mantidas pelo trigger. Usa o indice da coluna sombra quando existe.
+	execute format('update %I set %I = retira_acentos(upper(cast(%I as text))) '
+		|| 'where %I is null and %I is not null',
+		tabela, sombra, coluna, sombra, coluna);
+
+	if not exists (select 1 from pg_class where relname = sombra || '_idx') then
+		execute format('create index %I on %I (%I text_pattern_ops)', sombra || '_idx', tabela, sombra);
+	end if;
+
+	if exists (select 1 from pg_extension where extname = 'pg_trgm')
+			and not exists (select 1 from pg_class where relname = sombra || '_trgm_idx') then
+		execute format('create index %I on %I using gin (%I gin_trgm_ops)', sombra || '_trgm_idx', tabela, sombra);
+	end if;
+end;
+$$ language plpgsql;